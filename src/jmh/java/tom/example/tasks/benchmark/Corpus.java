@@ -0,0 +1,40 @@
+package tom.example.tasks.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Textos de prueba de src/jmh/resources/corpus. Los "*-long" repiten el "*-medium" hasta ~64 KB.
+ */
+final class Corpus {
+
+    static final int LONG_TEXT_CHARS = 64 * 1024;
+
+    private Corpus() {
+    }
+
+    static String load(String name) {
+        if (name.endsWith("-long")) {
+            String medium = read(name.replace("-long", "-medium"));
+            StringBuilder text = new StringBuilder(LONG_TEXT_CHARS + medium.length());
+            while (text.length() < LONG_TEXT_CHARS) {
+                text.append(medium).append('\n');
+            }
+            return text.toString();
+        }
+        return read(name);
+    }
+
+    private static String read(String name) {
+        try (InputStream input = Corpus.class.getResourceAsStream("/corpus/" + name + ".txt")) {
+            if (input == null) {
+                throw new IllegalArgumentException("Texto de corpus desconocido: " + name);
+            }
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
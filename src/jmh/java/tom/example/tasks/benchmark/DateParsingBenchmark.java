@@ -0,0 +1,89 @@
+package tom.example.tasks.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tom.example.tasks.service.RelativeDateParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de {@link RelativeDateParser} por línea. "expressions" son las frases con fecha de
+ * src/test/resources/dates/expressions.tsv (las mismas que valida RelativeDateParserTest);
+ * "es-medium" y "en-medium" son las líneas del corpus, casi todas sin fecha. Con -prof gc
+ * el gc.alloc.rate.norm debe quedar en unas decenas de bytes por operación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateParsingBenchmark {
+
+    @Param({ "expressions", "es-medium", "en-medium" })
+    public String corpus;
+
+    private RelativeDateParser parser;
+    private String[] lines;
+
+    @Setup
+    public void setUp() {
+        ZoneId zone = ZoneId.of("Europe/Madrid");
+        parser = new RelativeDateParser(Clock.fixed(ZonedDateTime.of(2025, 7, 16, 10, 0, 0, 0, zone).toInstant(), zone));
+        lines = corpus.equals("expressions") ? expressions() : Corpus.load(corpus).split("\n");
+
+        int dates = 0;
+        for (String line : lines) {
+            LocalDate date = parser.parse(line);
+            if (date != null) {
+                dates++;
+            }
+        }
+        System.out.printf("%n%s: %d líneas, %d con fecha%n", corpus, lines.length, dates);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(parser.parse(line));
+        }
+    }
+
+    private static String[] expressions() {
+        try (InputStream input = DateParsingBenchmark.class.getResourceAsStream("/dates/expressions.tsv")) {
+            if (input == null) {
+                throw new IllegalStateException("No se encuentra /dates/expressions.tsv en el classpath de test");
+            }
+            List<String> expressions = new ArrayList<>();
+            for (String line : new String(input.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.isBlank() && !line.startsWith("#")) {
+                    expressions.add(line.substring(0, line.indexOf('\t')));
+                }
+            }
+            return expressions.toArray(String[]::new);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package tom.example.tasks.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tom.example.tasks.model.Priority;
+import tom.example.tasks.model.Task;
+import tom.example.tasks.service.TaskDeduplicator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de deduplicar una tarea nueva contra la ventana de un remitente según el tamaño de la ventana.
+ * Con LSH el tiempo por tarea debe mantenerse casi constante de mil a cientos de miles de tareas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeduplicationBenchmark {
+
+    private static final String SENDER = "cliente@empresa.com";
+
+    @Param({ "1000", "10000", "100000", "300000" })
+    public int windowSize;
+
+    private TaskDeduplicator deduplicator;
+    private String[] vocabulary;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        vocabulary = new String[3000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 4 + random.nextInt(6);
+            for (int c = 0; c < length; c++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            vocabulary[i] = word.toString();
+        }
+
+        // La ventana queda llena: cada tarea nueva expulsa a la más antigua y el tamaño no cambia
+        deduplicator = new TaskDeduplicator(0.6, windowSize, Duration.ofDays(14), 10, windowSize);
+        List<Task> batch = new ArrayList<>(1000);
+        for (int i = 0; i < windowSize; i++) {
+            batch.add(randomTask());
+            if (batch.size() == 1000) {
+                deduplicator.deduplicate(SENDER, batch);
+                batch = new ArrayList<>(1000);
+            }
+        }
+        deduplicator.deduplicate(SENDER, batch);
+    }
+
+    @Benchmark
+    public List<Task> deduplicateAgainstWindow() {
+        return deduplicator.deduplicate(SENDER, List.of(randomTask()));
+    }
+
+    private Task randomTask() {
+        StringBuilder title = new StringBuilder();
+        int words = 3 + random.nextInt(4);
+        for (int i = 0; i < words; i++) {
+            title.append(i == 0 ? "" : " ").append(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return new Task(null, title.toString(), null, null, false, Priority.MEDIA, null, "work");
+    }
+}
@@ -0,0 +1,51 @@
+package tom.example.tasks.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tom.example.tasks.service.EmailPreprocessor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste del preprocesado de emails (HTML a texto, historial citado, firma y aviso legal) sobre
+ * emails reales del corpus. Debe quedar en microsegundos: la llamada a Gemini que abarata tarda
+ * cientos de milisegundos y cada 4 bytes quitados son un token de entrada menos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailPreprocessingBenchmark {
+
+    @Param({ "es-email-html", "en-email-plain" })
+    public String corpus;
+
+    private EmailPreprocessor preprocessor;
+    private String body;
+
+    @Setup
+    public void setUp() {
+        preprocessor = new EmailPreprocessor();
+        body = Corpus.load(corpus);
+        EmailPreprocessor.Result result = preprocessor.preprocess("RE: Informe trimestral", body);
+        System.out.printf("%n%s: %d -> %d bytes, %d tokens ahorrados%n",
+            corpus, result.originalBytes(), result.cleanedBytes(), result.tokensSaved());
+    }
+
+    @Benchmark
+    public EmailPreprocessor.Result preprocess() {
+        return preprocessor.preprocess("RE: Informe trimestral", body);
+    }
+}
@@ -0,0 +1,132 @@
+package tom.example.tasks.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tom.example.tasks.controller.ApiController;
+import tom.example.tasks.dto.ApiResponse;
+import tom.example.tasks.dto.TaskExportDto;
+import tom.example.tasks.model.Task;
+import tom.example.tasks.service.ExportFormat;
+import tom.example.tasks.service.ExtractionMetrics;
+import tom.example.tasks.service.GeminiAIService;
+import tom.example.tasks.service.TaskExportWriter;
+import tom.example.tasks.support.GeminiAIServiceFixture;
+
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversión a TaskExportDto (formatos standard, todoist, notion y clickup) y serialización
+ * Jackson de la respuesta completa, con las tareas extraídas del corpus fijo. Compara también
+ * la exportación completa basada en mapas con la de /export en streaming (TaskExportWriter).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExportBenchmark {
+
+    @Param({ "es-medium", "es-long", "en-medium", "en-long" })
+    public String corpus;
+
+    @Param({ "standard", "todoist", "notion", "clickup" })
+    public String format;
+
+    private MethodHandle convertToExportDto;
+    private ApiController controller;
+    private ObjectMapper objectMapper;
+    private List<Task> tasks;
+    private ApiResponse<List<TaskExportDto>> response;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Throwable {
+        // Mismo ObjectMapper que configura Spring Boot: módulos java.time y fechas ISO
+        objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        // Solo se usan los métodos de conversión, que no tocan el resto de dependencias
+        controller = new ApiController(null, null, null, null, null, null, null, null, null,
+            new ExtractionMetrics(new SimpleMeterRegistry()), objectMapper);
+
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(ApiController.class, MethodHandles.lookup());
+        convertToExportDto = lookup.findVirtual(ApiController.class, "convertToExportDto",
+            MethodType.methodType(TaskExportDto.class, Task.class, String.class));
+
+        GeminiAIService service = GeminiAIServiceFixture.local().build();
+        MethodHandle extract = MethodHandles.privateLookupIn(GeminiAIService.class, MethodHandles.lookup())
+            .findVirtual(GeminiAIService.class, "extractTasksLocally",
+                MethodType.methodType(List.class, String.class, String.class));
+        tasks = (List<Task>) extract.invoke(service, Corpus.load(corpus), "work");
+
+        List<TaskExportDto> dtos = new ArrayList<>();
+        for (Task task : tasks) {
+            dtos.add((TaskExportDto) convertToExportDto.invoke(controller, task, format));
+        }
+        response = new ApiResponse<>();
+        response.setSuccess(true);
+        response.setMessage("Tareas extraídas correctamente");
+        response.setData(dtos);
+        response.setCount(dtos.size());
+    }
+
+    @Benchmark
+    public void convertToExportDto(Blackhole blackhole) throws Throwable {
+        for (Task task : tasks) {
+            blackhole.consume(convertToExportDto.invoke(controller, task, format));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeApiResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public void mapBasedExport() throws Throwable {
+        List<TaskExportDto> dtos = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            dtos.add((TaskExportDto) convertToExportDto.invoke(controller, task, format));
+        }
+        ApiResponse<List<TaskExportDto>> export = new ApiResponse<>();
+        export.setSuccess(true);
+        export.setData(dtos);
+        export.setCount(dtos.size());
+        objectMapper.writeValue(OutputStream.nullOutputStream(), export);
+    }
+
+    @Benchmark
+    public int streamingExport() throws Exception {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream())) {
+            TaskExportWriter writer = new TaskExportWriter(generator, EnumSet.of(ExportFormat.fromName(format)));
+            writer.start(tasks.size());
+            for (Task task : tasks) {
+                writer.write(task);
+            }
+            writer.finish();
+            return writer.getCount();
+        }
+    }
+}
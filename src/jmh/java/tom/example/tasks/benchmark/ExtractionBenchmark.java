@@ -0,0 +1,125 @@
+package tom.example.tasks.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tom.example.tasks.model.Task;
+import tom.example.tasks.service.GeminiAIService;
+import tom.example.tasks.service.RelativeDateParser;
+import tom.example.tasks.support.GeminiAIServiceFixture;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Etapas de la extracción local y del parseo de la respuesta de Gemini sobre el corpus fijo.
+ * Los métodos privados se invocan con MethodHandles para medir exactamente el código de producción.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtractionBenchmark {
+
+    @Param({ "es-short", "es-medium", "es-long", "en-short", "en-medium", "en-long" })
+    public String corpus;
+
+    private GeminiAIService service;
+    private RelativeDateParser dateParser;
+    private MethodHandle extractTasksLocally;
+    private MethodHandle analyzeLocalPriority;
+    private MethodHandle parseTasksFromResponse;
+
+    private String text;
+    private List<Task> tasks;
+    private String[] titles;
+    private String geminiResponse;
+
+    @Setup
+    public void setUp() throws Throwable {
+        service = GeminiAIServiceFixture.local().build();
+        dateParser = new RelativeDateParser(Clock.systemDefaultZone());
+
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(GeminiAIService.class, MethodHandles.lookup());
+        extractTasksLocally = lookup.findVirtual(GeminiAIService.class, "extractTasksLocally",
+            MethodType.methodType(List.class, String.class, String.class));
+        analyzeLocalPriority = lookup.findVirtual(GeminiAIService.class, "analyzeLocalPriority",
+            MethodType.methodType(tom.example.tasks.model.Priority.class, Task.class, String.class));
+        parseTasksFromResponse = lookup.findVirtual(GeminiAIService.class, "parseTasksFromResponse",
+            MethodType.methodType(List.class, String.class, String.class));
+
+        text = Corpus.load(corpus);
+        tasks = localTasks(text);
+        titles = new String[tasks.size()];
+        for (int i = 0; i < tasks.size(); i++) {
+            titles[i] = tasks.get(i).getTitle();
+        }
+        geminiResponse = fencedGeminiResponse(tasks);
+    }
+
+    @Benchmark
+    public Object extractTasksLocally() throws Throwable {
+        return extractTasksLocally.invoke(service, text, "work");
+    }
+
+    @Benchmark
+    public void extractDate(Blackhole blackhole) {
+        for (String title : titles) {
+            blackhole.consume(dateParser.parse(title));
+        }
+    }
+
+    @Benchmark
+    public void analyzeLocalPriority(Blackhole blackhole) throws Throwable {
+        for (Task task : tasks) {
+            blackhole.consume(analyzeLocalPriority.invoke(service, task, "work"));
+        }
+    }
+
+    @Benchmark
+    public Object parseTasksFromResponse() throws Throwable {
+        return parseTasksFromResponse.invoke(service, geminiResponse, "work");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Task> localTasks(String text) throws Throwable {
+        return (List<Task>) extractTasksLocally.invoke(service, text, "work");
+    }
+
+    /**
+     * Respuesta con el formato habitual de Gemini: el array de tareas dentro de un bloque ```json.
+     */
+    private static String fencedGeminiResponse(List<Task> tasks) throws Exception {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (Task task : tasks) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("title", task.getTitle());
+            item.put("description", "Detalle de: " + task.getTitle());
+            item.put("dueDate", task.getDueDate() != null ? task.getDueDate().toString() : null);
+            item.put("priority", task.getPriority().name());
+            items.add(item);
+        }
+        return "Aquí están las tareas:\n```json\n"
+            + new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(items) + "\n```";
+    }
+}
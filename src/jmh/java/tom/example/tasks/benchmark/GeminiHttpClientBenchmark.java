@@ -0,0 +1,95 @@
+package tom.example.tasks.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.client.RestTemplate;
+
+import tom.example.tasks.config.GeminiHttpClientConfig;
+import tom.example.tasks.model.Task;
+import tom.example.tasks.service.GeminiAIService;
+import tom.example.tasks.support.GeminiAIServiceFixture;
+import tom.example.tasks.support.GeminiStubServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ráfaga de 400 extracciones contra un stub de Gemini con 50 ms de latencia: el RestTemplate por
+ * defecto en un pool fijo de 50 hilos (como el de Tomcat) frente al cliente HTTP con pool de
+ * conexiones sobre hilos virtuales. Cada operación es la ráfaga completa.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeminiHttpClientBenchmark {
+
+    private static final int REQUESTS = 400;
+    private static final int TOMCAT_LIKE_THREADS = 50;
+
+    @Param({ "fixed-pool", "virtual-threads" })
+    public String client;
+
+    private GeminiStubServer stub;
+    private GeminiAIService service;
+    private ExecutorService executor;
+    // Textos distintos en cada ráfaga para que no se agrupen llamadas idénticas
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @Setup
+    public void setUp() throws Exception {
+        stub = GeminiStubServer.start();
+        stub.setLatency(Duration.ofMillis(50));
+        stub.setResponseText("[{\"title\": \"Llamar al cliente\", \"priority\": \"ALTA\"}]");
+
+        RestTemplate restTemplate;
+        if (client.equals("virtual-threads")) {
+            GeminiHttpClientConfig config = new GeminiHttpClientConfig();
+            restTemplate = config.geminiRestTemplate(config.geminiHttpClient(Duration.ofSeconds(2)), Duration.ofSeconds(10));
+            executor = Executors.newVirtualThreadPerTaskExecutor();
+        } else {
+            restTemplate = new RestTemplate();
+            executor = Executors.newFixedThreadPool(TOMCAT_LIKE_THREADS);
+        }
+
+        service = GeminiAIServiceFixture.against(stub).restTemplate(restTemplate).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        stub.close();
+    }
+
+    @Benchmark
+    public int burst() throws Exception {
+        List<Future<List<Task>>> futures = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            String text = "Llamar al cliente número " + sequence.incrementAndGet();
+            futures.add(executor.submit(() -> service.extractTasksFromText(text, "work")));
+        }
+        int tasks = 0;
+        for (Future<List<Task>> future : futures) {
+            tasks += future.get().size();
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,71 @@
+package tom.example.tasks.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tom.example.tasks.service.PriorityClassifier;
+import tom.example.tasks.service.PriorityClassifierTrainer;
+import tom.example.tasks.service.TaskPatternMatcher;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clasificador de prioridad entrenado con src/test/resources/priority/tasks.tsv frente a las reglas
+ * de palabras clave, sobre las líneas del corpus. Con -prof gc el clasificador debe quedar en 0 B/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriorityClassificationBenchmark {
+
+    @Param({ "es-medium", "en-medium" })
+    public String corpus;
+
+    private PriorityClassifier classifier;
+    private TaskPatternMatcher matcher;
+    private String[] titles;
+
+    @Setup
+    public void setUp() throws Exception {
+        Path model = Files.createTempFile("priority-model", ".bin");
+        model.toFile().deleteOnExit();
+        Path tasks = Path.of(PriorityClassificationBenchmark.class.getResource("/priority/tasks.tsv").toURI());
+        PriorityClassifierTrainer.main(new String[] { tasks.toString(), model.toString() });
+
+        classifier = new PriorityClassifier(model.toString());
+        matcher = new TaskPatternMatcher();
+        titles = Arrays.stream(Corpus.load(corpus).split("\n"))
+            .filter(line -> !line.isBlank())
+            .toArray(String[]::new);
+    }
+
+    @Benchmark
+    public void classifier(Blackhole blackhole) {
+        for (String title : titles) {
+            blackhole.consume(classifier.classify(title, null, "work"));
+        }
+    }
+
+    @Benchmark
+    public void keywordRules(Blackhole blackhole) {
+        for (String title : titles) {
+            blackhole.consume(TaskPatternMatcher.priority(matcher.scan(title.toLowerCase())));
+        }
+    }
+}
@@ -3,11 +3,16 @@ package tom.example.tasks;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.util.Map;
+
 @SpringBootApplication
 public class TasksApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(TasksApplication.class, args);
+		SpringApplication application = new SpringApplication(TasksApplication.class);
+		// Peticiones atendidas en hilos virtuales: las esperas a Gemini no ocupan hilos de plataforma
+		application.setDefaultProperties(Map.of("spring.threads.virtual.enabled", "true"));
+		application.run(args);
 	}
 
 }
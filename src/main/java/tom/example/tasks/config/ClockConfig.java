@@ -0,0 +1,20 @@
+package tom.example.tasks.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+/**
+ * Reloj de la aplicación. Las fechas relativas ("mañana", "el viernes") y el día que forma parte
+ * de la clave de la caché de extracción se calculan siempre con este bean, así que los tests pueden
+ * sustituirlo por un {@link Clock#fixed} y ser deterministas.
+ */
+@Configuration
+public class ClockConfig {
+
+    @Bean
+    public Clock clock() {
+        return Clock.systemDefaultZone();
+    }
+}
@@ -0,0 +1,38 @@
+package tom.example.tasks.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * Cliente HTTP para Gemini: java.net.http con pool de conexiones persistentes,
+ * HTTP/2 cuando el servidor lo negocia (si no, HTTP/1.1) y timeouts configurables.
+ * Las respuestas se procesan en hilos virtuales para no bloquear hilos de plataforma.
+ */
+@Configuration
+public class GeminiHttpClientConfig {
+
+    @Bean
+    public HttpClient geminiHttpClient(@Value("${gemini.http.connect-timeout:PT5S}") Duration connectTimeout) {
+        return HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(connectTimeout)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    }
+
+    @Bean
+    public RestTemplate geminiRestTemplate(HttpClient geminiHttpClient,
+                                           @Value("${gemini.http.read-timeout:PT30S}") Duration readTimeout) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(geminiHttpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        return new RestTemplate(requestFactory);
+    }
+}
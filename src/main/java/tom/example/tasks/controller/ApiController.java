@@ -1,17 +1,53 @@
 package tom.example.tasks.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import tom.example.tasks.dto.TextAnalysisRequest;
 import tom.example.tasks.dto.ApiResponse;
+import tom.example.tasks.dto.BatchAnalysisResult;
+import tom.example.tasks.dto.JobStatus;
+import tom.example.tasks.dto.PriorityAnalysisRequest;
 import tom.example.tasks.dto.TaskExportDto;
 import tom.example.tasks.dto.WebhookRequest;
+import tom.example.tasks.model.Priority;
 import tom.example.tasks.model.Task;
+import tom.example.tasks.service.EmailIngestionQueue;
+import tom.example.tasks.service.EmailPreprocessor;
+import tom.example.tasks.service.ExportFormat;
+import tom.example.tasks.service.ExtractionMetrics;
 import tom.example.tasks.service.GeminiAIService;
+import tom.example.tasks.service.GeminiCircuitBreaker;
+import tom.example.tasks.service.GeminiQuotaScheduler.Urgency;
+import tom.example.tasks.service.TaskDeduplicator;
+import tom.example.tasks.service.TaskExportWriter;
+import tom.example.tasks.service.TaskResultCache;
+import tom.example.tasks.service.WebhookIdempotencyStore;
+import tom.example.tasks.store.TaskPage;
+import tom.example.tasks.store.TaskQuery;
+import tom.example.tasks.store.TaskStore;
+import tom.example.tasks.store.WebhookJournal;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -19,10 +55,38 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "*") // Para permitir llamadas desde n8n y otras herramientas
 public class ApiController {
 
+    private static final byte[] SSE_EVENT_END = "\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NDJSON_LINE_END = "\n".getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_QUERY_LIMIT = 500;
+
     private final GeminiAIService geminiAIService;
+    private final TaskResultCache resultCache;
+    private final GeminiCircuitBreaker circuitBreaker;
+    private final WebhookIdempotencyStore webhookIdempotencyStore;
+    private final TaskStore taskStore;
+    private final EmailIngestionQueue emailIngestionQueue;
+    private final WebhookJournal webhookJournal;
+    private final TaskDeduplicator taskDeduplicator;
+    private final EmailPreprocessor emailPreprocessor;
+    private final ExtractionMetrics metrics;
+    private final ObjectMapper objectMapper;
 
-    public ApiController(GeminiAIService geminiAIService) {
+    public ApiController(GeminiAIService geminiAIService, TaskResultCache resultCache,
+                         GeminiCircuitBreaker circuitBreaker, WebhookIdempotencyStore webhookIdempotencyStore,
+                         TaskStore taskStore, EmailIngestionQueue emailIngestionQueue, WebhookJournal webhookJournal,
+                         TaskDeduplicator taskDeduplicator, EmailPreprocessor emailPreprocessor,
+                         ExtractionMetrics metrics, ObjectMapper objectMapper) {
         this.geminiAIService = geminiAIService;
+        this.resultCache = resultCache;
+        this.circuitBreaker = circuitBreaker;
+        this.webhookIdempotencyStore = webhookIdempotencyStore;
+        this.taskStore = taskStore;
+        this.emailIngestionQueue = emailIngestionQueue;
+        this.webhookJournal = webhookJournal;
+        this.taskDeduplicator = taskDeduplicator;
+        this.emailPreprocessor = emailPreprocessor;
+        this.metrics = metrics;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -32,12 +96,13 @@ public class ApiController {
     @PostMapping("/analyze-text")
     public ResponseEntity<ApiResponse<List<TaskExportDto>>> analyzeText(@RequestBody TextAnalysisRequest request) {
         try {
-            List<Task> extractedTasks = geminiAIService.extractTasksFromText(request.getText(), request.getContext());
+            // Gemini a veces devuelve la misma acción con dos redacciones
+            List<Task> extractedTasks = taskDeduplicator.deduplicate(
+                geminiAIService.extractTasksFromText(request.getText(), request.getContext()));
+            taskStore.saveAll(extractedTasks);
             
             // Convertir a formato de exportación
-            List<TaskExportDto> exportTasks = extractedTasks.stream()
-                .map(this::convertToExportDto)
-                .collect(Collectors.toList());
+            List<TaskExportDto> exportTasks = convertToExportDtos(extractedTasks);
             
             ApiResponse<List<TaskExportDto>> response = new ApiResponse<>();
             response.setSuccess(true);
@@ -58,30 +123,170 @@ public class ApiController {
     }
 
     /**
-     * Webhook para recibir emails y procesarlos automáticamente
-     * Ideal para integración con servicios de email
+     * Análisis en streaming: cada tarea se envía en cuanto está lista
+     * format=ndjson (una tarea JSON por línea) o format=sse (Server-Sent Events)
+     * Si la extracción falla a mitad, el último evento es "error" (en NDJSON, una línea con "error")
      */
-    @PostMapping("/webhook/email")
-    public ResponseEntity<ApiResponse<List<TaskExportDto>>> processEmail(@RequestBody WebhookRequest webhook) {
+    @PostMapping("/analyze-text/stream")
+    public ResponseEntity<StreamingResponseBody> analyzeTextStream(@RequestBody TextAnalysisRequest request,
+                                                                   @RequestParam(defaultValue = "ndjson") String format) {
+        boolean sse = "sse".equalsIgnoreCase(format);
+        
+        StreamingResponseBody body = out -> {
+            // Como en /analyze-text, las repeticiones se fusionan y cada tarea se guarda antes de enviarse
+            TaskDeduplicator.IncrementalBatch batch = taskDeduplicator.startBatch();
+            int[] count = {0};
+            IOException[] clientError = {null};
+            try {
+                geminiAIService.streamTasksFromText(request.getText(), request.getContext(), task -> {
+                    Task accepted = batch.accept(task);
+                    if (accepted == null) {
+                        return;
+                    }
+                    taskStore.save(accepted);
+                    try {
+                        // Una repetición que sube la prioridad o adelanta la fecha actualiza la tarea ya enviada (mismo id)
+                        writeStreamEvent(out, sse, accepted == task ? "task" : "update", convertToExportDto(accepted));
+                    } catch (IOException e) {
+                        clientError[0] = e;
+                        throw new UncheckedIOException(e);
+                    }
+                    if (accepted == task) {
+                        count[0]++;
+                    }
+                });
+            } catch (RuntimeException e) {
+                if (clientError[0] != null) {
+                    // El cliente se ha desconectado: no queda nadie a quien avisar
+                    throw clientError[0];
+                }
+                writeStreamEvent(out, sse, "error",
+                    Map.of("error", "Error al analizar texto: " + e.getMessage(), "count", count[0]));
+                return;
+            }
+            if (sse) {
+                writeStreamEvent(out, true, "done", Map.of("count", count[0]));
+            }
+        };
+        
+        return ResponseEntity.ok()
+            .contentType(sse ? MediaType.TEXT_EVENT_STREAM : MediaType.APPLICATION_NDJSON)
+            .body(body);
+    }
+
+    /**
+     * Análisis de varios textos en una sola petición
+     * Agrupa los documentos en el menor número de llamadas a Gemini
+     */
+    @PostMapping("/analyze-batch")
+    public ResponseEntity<ApiResponse<List<BatchAnalysisResult>>> analyzeBatch(@RequestBody List<TextAnalysisRequest> requests) {
         try {
-            String emailContent = extractEmailContent(webhook);
-            String context = determineContextFromEmail(webhook);
+            List<List<Task>> extracted = geminiAIService.extractTasksFromTexts(requests);
+            
+            List<BatchAnalysisResult> results = new ArrayList<>(extracted.size());
+            int totalTasks = 0;
+            for (int i = 0; i < extracted.size(); i++) {
+                List<TaskExportDto> exportTasks = convertToExportDtos(extracted.get(i));
+                totalTasks += exportTasks.size();
+                results.add(new BatchAnalysisResult(i, requests.get(i).getContext(), exportTasks));
+            }
+            
+            ApiResponse<List<BatchAnalysisResult>> response = new ApiResponse<>();
+            response.setSuccess(true);
+            response.setMessage("Lote analizado correctamente: " + totalTasks + " tareas en " + results.size() + " documentos");
+            response.setData(results);
+            response.setCount(results.size());
             
-            List<Task> extractedTasks = geminiAIService.extractTasksFromText(emailContent, context);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            ApiResponse<List<BatchAnalysisResult>> errorResponse = new ApiResponse<>();
+            errorResponse.setSuccess(false);
+            errorResponse.setMessage("Error al analizar lote: " + e.getMessage());
             
-            List<TaskExportDto> exportTasks = extractedTasks.stream()
-                .map(this::convertToExportDto)
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    /**
+     * Re-prioriza una lista de tareas con una sola llamada a Gemini por bloque
+     */
+    @PostMapping("/prioritize")
+    public ResponseEntity<ApiResponse<List<TaskExportDto>>> prioritize(@RequestBody PriorityAnalysisRequest request) {
+        try {
+            List<Task> tasks = request.getTasks().stream()
+                .map(dto -> toTask(dto, request.getContext()))
                 .collect(Collectors.toList());
             
+            List<Priority> priorities = geminiAIService.analyzePriorities(tasks, request.getContext());
+            for (int i = 0; i < tasks.size(); i++) {
+                tasks.get(i).setPriority(priorities.get(i));
+            }
+            
+            List<TaskExportDto> exportTasks = convertToExportDtos(tasks);
+            
             ApiResponse<List<TaskExportDto>> response = new ApiResponse<>();
             response.setSuccess(true);
-            response.setMessage("Email procesado correctamente");
+            response.setMessage("Prioridades analizadas correctamente");
             response.setData(exportTasks);
             response.setCount(exportTasks.size());
-            response.setSource("email");
-            response.setSender(webhook.getSender());
             
             return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            ApiResponse<List<TaskExportDto>> errorResponse = new ApiResponse<>();
+            errorResponse.setSuccess(false);
+            errorResponse.setMessage("Error al priorizar tareas: " + e.getMessage());
+            
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    /**
+     * Webhook para recibir emails y procesarlos automáticamente
+     * Ideal para integración con servicios de email
+     * Con async=true responde 202 con un id de trabajo y procesa el email en segundo plano
+     */
+    @PostMapping("/webhook/email")
+    public ResponseEntity<ApiResponse<?>> processEmail(@RequestBody WebhookRequest webhook,
+                                                       @RequestParam(defaultValue = "false") boolean async,
+                                                       @RequestParam(required = false) String callbackUrl) {
+        long journalSequence = -1;
+        try {
+            // Reentregas del proveedor: se devuelve la respuesta original sin volver a llamar a Gemini
+            String deliveryKey = webhookIdempotencyStore.keyFor(webhook);
+            ApiResponse<List<TaskExportDto>> previous = webhookIdempotencyStore.findProcessed(deliveryKey);
+            if (previous != null) {
+                return ResponseEntity.ok().header("X-Duplicate-Delivery", "true").body(previous);
+            }
+
+            // El email queda en el journal antes de procesarse para sobrevivir a un reinicio
+            journalSequence = webhookJournal.append(journalRecord(webhook, callbackUrl));
+            long sequence = journalSequence;
+
+            if (async) {
+                JobStatus job = emailIngestionQueue.submit(() -> processJournaled(webhook, deliveryKey, sequence),
+                    callbackUrl);
+
+                ApiResponse<JobStatus> response = new ApiResponse<>();
+                response.setSuccess(true);
+                response.setMessage("Email en cola para procesar");
+                response.setData(job);
+                response.setSource("email");
+                response.setSender(webhook.getSender());
+
+                return ResponseEntity.accepted().header("Location", "/api/v1/jobs/" + job.getJobId()).body(response);
+            }
+
+            return ResponseEntity.ok(processJournaled(webhook, deliveryKey, sequence));
+        } catch (EmailIngestionQueue.QueueFullException e) {
+            // El cliente reintentará: no hay nada que recuperar del journal
+            webhookJournal.acknowledge(journalSequence);
+            ApiResponse<List<TaskExportDto>> errorResponse = new ApiResponse<>();
+            errorResponse.setSuccess(false);
+            errorResponse.setMessage("Cola de emails llena, reintentar en " + e.getRetryAfterSeconds() + " s");
+
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", String.valueOf(e.getRetryAfterSeconds()))
+                .body(errorResponse);
         } catch (Exception e) {
             ApiResponse<List<TaskExportDto>> errorResponse = new ApiResponse<>();
             errorResponse.setSuccess(false);
@@ -91,6 +296,86 @@ public class ApiController {
         }
     }
 
+    /**
+     * Al arrancar, vuelve a encolar los emails del journal que no llegaron a procesarse
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayJournal() {
+        for (WebhookJournal.Entry entry : webhookJournal.takeRecovered()) {
+            try {
+                JsonNode record = objectMapper.readTree(entry.payload());
+                WebhookRequest webhook = objectMapper.treeToValue(record.get("webhook"), WebhookRequest.class);
+                String callbackUrl = record.hasNonNull("callbackUrl") ? record.get("callbackUrl").asText() : null;
+                String deliveryKey = webhookIdempotencyStore.keyFor(webhook);
+                try {
+                    emailIngestionQueue.submit(() -> processJournaled(webhook, deliveryKey, entry.sequence()), callbackUrl);
+                } catch (EmailIngestionQueue.QueueFullException e) {
+                    processJournaled(webhook, deliveryKey, entry.sequence());
+                }
+            } catch (Exception e) {
+                System.err.println("Could not replay journaled email " + entry.sequence() + ": " + e.getMessage());
+                webhookJournal.acknowledge(entry.sequence());
+            }
+        }
+    }
+
+    /**
+     * Estado del journal de emails entrantes
+     */
+    @GetMapping("/webhook/journal/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> journalStats() {
+        ApiResponse<Map<String, Object>> response = new ApiResponse<>();
+        response.setSuccess(true);
+        response.setMessage("Estadísticas del journal de emails");
+        response.setData(webhookJournal.getStats());
+        
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Estado y resultado de un email procesado en modo asíncrono
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ApiResponse<JobStatus>> jobStatus(@PathVariable String id) {
+        JobStatus job = emailIngestionQueue.getStatus(id);
+        ApiResponse<JobStatus> response = new ApiResponse<>();
+        if (job == null) {
+            response.setSuccess(false);
+            response.setMessage("Trabajo no encontrado o caducado: " + id);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        response.setSuccess(true);
+        response.setMessage("Estado del trabajo: " + job.getStatus());
+        response.setData(job);
+        
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Ocupación de la cola de emails asíncronos
+     */
+    @GetMapping("/jobs/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> jobStats() {
+        ApiResponse<Map<String, Object>> response = new ApiResponse<>();
+        response.setSuccess(true);
+        response.setMessage("Estadísticas de la cola de emails");
+        response.setData(emailIngestionQueue.getStats());
+        
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Estadísticas de la deduplicación de webhooks
+     */
+    @GetMapping("/webhook/dedupe/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> webhookDedupeStats() {
+        ApiResponse<Map<String, Object>> response = new ApiResponse<>();
+        response.setSuccess(true);
+        response.setMessage("Estadísticas de deduplicación de webhooks");
+        response.setData(webhookIdempotencyStore.getStats());
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Endpoint para análisis rápido sin guardar en BD
      * Ideal para preview o testing
@@ -101,9 +386,7 @@ public class ApiController {
             // Usar directamente Gemini sin guardar en BD
             List<Task> extractedTasks = geminiAIService.extractTasksFromText(request.getText(), request.getContext());
             
-            List<TaskExportDto> exportTasks = extractedTasks.stream()
-                .map(this::convertToExportDto)
-                .collect(Collectors.toList());
+            List<TaskExportDto> exportTasks = convertToExportDtos(extractedTasks);
             
             ApiResponse<List<TaskExportDto>> response = new ApiResponse<>();
             response.setSuccess(true);
@@ -122,6 +405,115 @@ public class ApiController {
         }
     }
 
+    /**
+     * Consulta de tareas guardadas por fecha de vencimiento, prioridad, contexto, categoría y estado.
+     * Paginación por cursor: pasar el nextCursor de la respuesta anterior para obtener la siguiente página.
+     */
+    @GetMapping("/tasks")
+    public ResponseEntity<ApiResponse<List<TaskExportDto>>> queryTasks(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueTo,
+            @RequestParam(required = false) String priority,
+            @RequestParam(required = false) String context,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Boolean completed,
+            @RequestParam(required = false) Integer cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        Priority priorityFilter;
+        try {
+            priorityFilter = priority != null ? Priority.valueOf(priority.trim().toUpperCase()) : null;
+        } catch (IllegalArgumentException e) {
+            ApiResponse<List<TaskExportDto>> errorResponse = new ApiResponse<>();
+            errorResponse.setSuccess(false);
+            errorResponse.setMessage("Prioridad no válida: " + priority);
+
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+
+        try {
+            if (cursor != null && cursor < 0) {
+                throw new IllegalArgumentException("Cursor no válido: " + cursor);
+            }
+            TaskQuery query = new TaskQuery(dueFrom, dueTo, priorityFilter, context, category, completed,
+                cursor, Math.min(Math.max(limit, 1), MAX_QUERY_LIMIT));
+            TaskPage page = taskStore.query(query);
+
+            List<TaskExportDto> exportTasks = convertToExportDtos(page.tasks());
+
+            ApiResponse<List<TaskExportDto>> response = new ApiResponse<>();
+            response.setSuccess(true);
+            response.setMessage("Consulta completada");
+            response.setData(exportTasks);
+            response.setCount(exportTasks.size());
+            response.setTotal(page.total());
+            response.setNextCursor(page.nextCursor() != null ? page.nextCursor().toString() : null);
+
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            ApiResponse<List<TaskExportDto>> errorResponse = new ApiResponse<>();
+            errorResponse.setSuccess(false);
+            errorResponse.setMessage("Error al consultar tareas: " + e.getMessage());
+
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    /**
+     * Exportación de las tareas guardadas a uno o varios formatos (format=todoist,notion,clickup,standard),
+     * con los mismos filtros que /tasks. Se escribe en streaming página a página, así que exportaciones
+     * de miles de tareas no se cargan enteras en memoria.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportTasks(
+            @RequestParam(defaultValue = "standard") List<String> format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueTo,
+            @RequestParam(required = false) String priority,
+            @RequestParam(required = false) String context,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Boolean completed) {
+        Set<ExportFormat> formats = EnumSet.noneOf(ExportFormat.class);
+        Priority priorityFilter;
+        try {
+            for (String name : format) {
+                formats.add(ExportFormat.fromName(name));
+            }
+            priorityFilter = priority != null ? Priority.valueOf(priority.trim().toUpperCase()) : null;
+        } catch (IllegalArgumentException e) {
+            ApiResponse<List<TaskExportDto>> errorResponse = new ApiResponse<>();
+            errorResponse.setSuccess(false);
+            errorResponse.setMessage("Formato o prioridad no válidos: " + format + ", " + priority);
+
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                // El stream de la respuesta lo cierra el contenedor
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                TaskExportWriter writer = new TaskExportWriter(generator, formats);
+                TaskPage page = taskStore.query(new TaskQuery(dueFrom, dueTo, priorityFilter, context, category,
+                    completed, null, MAX_QUERY_LIMIT));
+                writer.start(page.total());
+                while (true) {
+                    for (Task task : page.tasks()) {
+                        writer.write(task);
+                    }
+                    if (page.nextCursor() == null) {
+                        break;
+                    }
+                    page = taskStore.query(new TaskQuery(dueFrom, dueTo, priorityFilter, context, category,
+                        completed, page.nextCursor(), MAX_QUERY_LIMIT));
+                }
+                writer.finish();
+            }
+        };
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(body);
+    }
+
     /**
      * Endpoint de salud para verificar estado de la API
      */
@@ -135,13 +527,164 @@ public class ApiController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Estadísticas de la caché de resultados (aciertos, fallos, expulsiones)
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> cacheStats() {
+        ApiResponse<Map<String, Object>> response = new ApiResponse<>();
+        response.setSuccess(true);
+        response.setMessage("Estadísticas de caché");
+        response.setData(resultCache.getStats());
+        
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Estado del almacén de tareas: segmentos, bytes vivos y compactaciones
+     */
+    @GetMapping("/store/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> storeStats() {
+        ApiResponse<Map<String, Object>> response = new ApiResponse<>();
+        response.setSuccess(true);
+        response.setMessage("Estadísticas del almacén de tareas");
+        response.setData(taskStore.getStats());
+        
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Detección de tareas casi duplicadas: remitentes en ventana, tareas revisadas y fusionadas
+     */
+    @GetMapping("/dedupe/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> dedupeStats() {
+        ApiResponse<Map<String, Object>> response = new ApiResponse<>();
+        response.setSuccess(true);
+        response.setMessage("Estadísticas de deduplicación");
+        response.setData(taskDeduplicator.getStats());
+        
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Peticiones idénticas agrupadas en una sola llamada a Gemini
+     */
+    @GetMapping("/coalescing/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> coalescingStats() {
+        ApiResponse<Map<String, Object>> response = new ApiResponse<>();
+        response.setSuccess(true);
+        response.setMessage("Estadísticas de peticiones agrupadas");
+        response.setData(geminiAIService.getCoalescingStats());
+        
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Cuota de Gemini por clave y llamadas en cola por urgencia
+     */
+    @GetMapping("/quota/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> quotaStats() {
+        ApiResponse<Map<String, Object>> response = new ApiResponse<>();
+        response.setSuccess(true);
+        response.setMessage("Estado de la cuota de Gemini");
+        response.setData(geminiAIService.getQuotaStats());
+        
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Decisiones del enrutador entre extracción local y Gemini, y resultados del modo sombra
+     */
+    @GetMapping("/router/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> routerStats() {
+        ApiResponse<Map<String, Object>> response = new ApiResponse<>();
+        response.setSuccess(true);
+        response.setMessage("Estadísticas del enrutador local/Gemini");
+        response.setData(geminiAIService.getRouterStats());
+        
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Estado del circuit breaker de Gemini y sus últimas transiciones
+     */
+    @GetMapping("/circuit")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> circuitStatus() {
+        ApiResponse<Map<String, Object>> response = new ApiResponse<>();
+        response.setSuccess(true);
+        response.setMessage("Estado del circuito de Gemini: " + circuitBreaker.getState());
+        response.setData(circuitBreaker.getStatus());
+        
+        return ResponseEntity.ok(response);
+    }
+
     // Métodos auxiliares
+    /**
+     * Procesa un email del journal y lo confirma al terminar, haya ido bien o no
+     */
+    private ApiResponse<List<TaskExportDto>> processJournaled(WebhookRequest webhook, String deliveryKey, long sequence) {
+        try {
+            return processEmailOnce(webhook, deliveryKey);
+        } finally {
+            webhookJournal.acknowledge(sequence);
+        }
+    }
+
+    private byte[] journalRecord(WebhookRequest webhook, String callbackUrl) throws IOException {
+        ObjectNode record = objectMapper.createObjectNode();
+        record.set("webhook", objectMapper.valueToTree(webhook));
+        if (callbackUrl != null) {
+            record.put("callbackUrl", callbackUrl);
+        }
+        return objectMapper.writeValueAsBytes(record);
+    }
+
+    /**
+     * Extrae, guarda y formatea las tareas de un email una sola vez por entrega
+     */
+    private ApiResponse<List<TaskExportDto>> processEmailOnce(WebhookRequest webhook, String deliveryKey) {
+        return webhookIdempotencyStore.processOnce(deliveryKey, () -> {
+            String emailContent = extractEmailContent(webhook);
+            String context = determineContextFromEmail(webhook);
+
+            // Las tareas ya enviadas por el mismo remitente no se repiten; si la fusión sube la prioridad
+            // o adelanta la fecha, se devuelven con su id original para actualizarlas. Los emails ceden
+            // la cuota de Gemini a las peticiones de usuarios
+            List<Task> extractedTasks = taskDeduplicator.deduplicate(webhook.getSender(),
+                geminiAIService.extractTasksFromText(emailContent, context, Urgency.BACKGROUND));
+            taskStore.saveAll(extractedTasks);
+            taskDeduplicator.recordIds(webhook.getSender(), extractedTasks);
+
+            List<TaskExportDto> exportTasks = convertToExportDtos(extractedTasks);
+
+            ApiResponse<List<TaskExportDto>> response = new ApiResponse<>();
+            response.setSuccess(true);
+            response.setMessage("Email procesado correctamente");
+            response.setData(exportTasks);
+            response.setCount(exportTasks.size());
+            response.setSource("email");
+            response.setSender(webhook.getSender());
+            return response;
+        });
+    }
+
+    private List<TaskExportDto> convertToExportDtos(List<Task> tasks) {
+        long start = System.nanoTime();
+        List<TaskExportDto> dtos = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            dtos.add(convertToExportDto(task));
+        }
+        metrics.recordStage(ExtractionMetrics.Stage.DTO_CONVERSION, start);
+        return dtos;
+    }
+    
     private TaskExportDto convertToExportDto(Task task) {
         return convertToExportDto(task, "standard");
     }
     
     private TaskExportDto convertToExportDto(Task task, String format) {
         TaskExportDto dto = new TaskExportDto();
+        dto.setId(task.getId());
         dto.setTitle(task.getTitle());
         dto.setDescription(task.getDescription());
         dto.setDueDate(task.getDueDate());
@@ -166,18 +709,37 @@ public class ApiController {
         return dto;
     }
     
-    private String extractEmailContent(WebhookRequest webhook) {
-        StringBuilder content = new StringBuilder();
-        
-        if (webhook.getSubject() != null) {
-            content.append("Asunto: ").append(webhook.getSubject()).append("\n");
-        }
-        
-        if (webhook.getBody() != null) {
-            content.append(webhook.getBody());
+    private Task toTask(TaskExportDto dto, String context) {
+        Task task = new Task();
+        task.setTitle(dto.getTitle());
+        task.setDescription(dto.getDescription());
+        task.setDueDate(dto.getDueDate());
+        task.setCompleted(dto.isCompleted());
+        task.setContext(dto.getContext() != null ? dto.getContext() : context);
+        task.setCategory(dto.getCategory() != null ? dto.getCategory() : task.getContext());
+        return task;
+    }
+    
+    private void writeStreamEvent(OutputStream out, boolean sse, String event, Object data) throws IOException {
+        if (sse) {
+            out.write(("event: " + event + "\ndata: ").getBytes(StandardCharsets.UTF_8));
         }
+        out.write(objectMapper.writeValueAsBytes(data));
+        out.write(sse ? SSE_EVENT_END : NDJSON_LINE_END);
+        out.flush();
+    }
+    
+    /**
+     * Asunto y cuerpo sin HTML, historial citado, firma ni avisos legales: solo se paga a Gemini
+     * por el mensaje nuevo
+     */
+    private String extractEmailContent(WebhookRequest webhook) {
+        long start = System.nanoTime();
+        EmailPreprocessor.Result content = emailPreprocessor.preprocess(webhook.getSubject(), webhook.getBody());
+        metrics.recordStage(ExtractionMetrics.Stage.EMAIL_PREPROCESS, start);
+        metrics.recordEmailSavings(content.bytesSaved(), content.tokensSaved());
         
-        return content.toString();
+        return content.text();
     }
     
     private String determineContextFromEmail(WebhookRequest webhook) {
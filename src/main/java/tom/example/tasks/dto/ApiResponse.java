@@ -12,6 +12,8 @@ public class ApiResponse<T> {
     private String source;
     private String sender;
     private boolean preview;
+    private Integer total;
+    private String nextCursor;
     
     public ApiResponse() {}
     
@@ -85,4 +87,20 @@ public class ApiResponse<T> {
     public void setPreview(boolean preview) {
         this.preview = preview;
     }
+    
+    public Integer getTotal() {
+        return total;
+    }
+    
+    public void setTotal(Integer total) {
+        this.total = total;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
 }
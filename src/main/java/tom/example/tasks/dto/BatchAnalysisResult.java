@@ -0,0 +1,54 @@
+package tom.example.tasks.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchAnalysisResult {
+    private int index;
+    private String context;
+    private List<TaskExportDto> tasks;
+    private int count;
+    
+    public BatchAnalysisResult() {}
+    
+    public BatchAnalysisResult(int index, String context, List<TaskExportDto> tasks) {
+        this.index = index;
+        this.context = context;
+        this.tasks = tasks;
+        this.count = tasks != null ? tasks.size() : 0;
+    }
+    
+    // Getters y Setters
+    public int getIndex() {
+        return index;
+    }
+    
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    
+    public String getContext() {
+        return context;
+    }
+    
+    public void setContext(String context) {
+        this.context = context;
+    }
+    
+    public List<TaskExportDto> getTasks() {
+        return tasks;
+    }
+    
+    public void setTasks(List<TaskExportDto> tasks) {
+        this.tasks = tasks;
+    }
+    
+    public int getCount() {
+        return count;
+    }
+    
+    public void setCount(int count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,66 @@
+package tom.example.tasks.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.time.Instant;
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JobStatus {
+    private String jobId;
+    private String status; // QUEUED, RUNNING, SUCCEEDED, FAILED
+    private Instant submittedAt;
+    private Instant completedAt;
+    private ApiResponse<List<TaskExportDto>> result;
+    private String error;
+    
+    public JobStatus() {}
+    
+    // Getters y Setters
+    public String getJobId() {
+        return jobId;
+    }
+    
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+    
+    public void setSubmittedAt(Instant submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+    
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+    
+    public void setCompletedAt(Instant completedAt) {
+        this.completedAt = completedAt;
+    }
+    
+    public ApiResponse<List<TaskExportDto>> getResult() {
+        return result;
+    }
+    
+    public void setResult(ApiResponse<List<TaskExportDto>> result) {
+        this.result = result;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+}
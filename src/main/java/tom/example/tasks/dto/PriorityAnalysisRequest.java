@@ -0,0 +1,31 @@
+package tom.example.tasks.dto;
+
+import java.util.List;
+
+public class PriorityAnalysisRequest {
+    private String context;
+    private List<TaskExportDto> tasks;
+    
+    public PriorityAnalysisRequest() {}
+    
+    public PriorityAnalysisRequest(String context, List<TaskExportDto> tasks) {
+        this.context = context;
+        this.tasks = tasks;
+    }
+    
+    public String getContext() {
+        return context;
+    }
+    
+    public void setContext(String context) {
+        this.context = context;
+    }
+    
+    public List<TaskExportDto> getTasks() {
+        return tasks;
+    }
+    
+    public void setTasks(List<TaskExportDto> tasks) {
+        this.tasks = tasks;
+    }
+}
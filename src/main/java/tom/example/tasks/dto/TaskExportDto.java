@@ -5,6 +5,7 @@ import java.time.LocalDate;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class TaskExportDto {
+    private Integer id;
     private String title;
     private String description;
     private LocalDate dueDate;
@@ -21,6 +22,14 @@ public class TaskExportDto {
     public TaskExportDto() {}
     
     // Getters y Setters
+    public Integer getId() {
+        return id;
+    }
+    
+    public void setId(Integer id) {
+        this.id = id;
+    }
+    
     public String getTitle() {
         return title;
     }
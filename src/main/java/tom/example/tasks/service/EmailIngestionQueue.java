@@ -0,0 +1,234 @@
+package tom.example.tasks.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import tom.example.tasks.dto.ApiResponse;
+import tom.example.tasks.dto.JobStatus;
+import tom.example.tasks.dto.TaskExportDto;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cola acotada para el modo asíncrono de /webhook/email. Un pool fijo de workers procesa los
+ * emails; cuando la cola está llena se rechaza el trabajo con una estimación de cuándo reintentar
+ * en lugar de acumular latencia. Los trabajos terminados se conservan un tiempo para consultarlos.
+ */
+@Component
+public class EmailIngestionQueue {
+
+    public enum State { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    private final ThreadPoolExecutor workers;
+    private final int workerCount;
+    private final long retentionNanos;
+    private final int maxJobs;
+    private final Duration callbackTimeout;
+    private final ObjectMapper objectMapper;
+    private final HttpClient callbackClient;
+
+    private final ConcurrentHashMap<String, Job> jobs = new ConcurrentHashMap<>();
+    // Trabajos terminados en orden de finalización: un trabajo lento no retiene la poda de los que acaban después
+    private final ConcurrentLinkedQueue<Job> finishedJobs = new ConcurrentLinkedQueue<>();
+
+    // Media móvil de la duración de un trabajo, para el Retry-After
+    private volatile double averageJobSeconds = 1.0;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong callbackFailures = new AtomicLong();
+
+    public EmailIngestionQueue(@Value("${webhook.async.workers:4}") int workerCount,
+                               @Value("${webhook.async.queue-capacity:1000}") int queueCapacity,
+                               @Value("${webhook.async.job-retention:PT1H}") Duration retention,
+                               @Value("${webhook.async.max-jobs:10000}") int maxJobs,
+                               @Value("${webhook.async.callback-timeout:PT10S}") Duration callbackTimeout,
+                               ObjectMapper objectMapper) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "email-worker-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        this.workerCount = workerCount;
+        this.retentionNanos = retention.toNanos();
+        this.maxJobs = maxJobs;
+        this.callbackTimeout = callbackTimeout;
+        this.objectMapper = objectMapper;
+        this.callbackClient = HttpClient.newBuilder().connectTimeout(callbackTimeout).build();
+    }
+
+    /**
+     * Encola el procesamiento y devuelve el estado inicial del trabajo.
+     *
+     * @throws QueueFullException si la cola está llena
+     */
+    public JobStatus submit(Supplier<ApiResponse<List<TaskExportDto>>> processor, String callbackUrl) {
+        pruneFinishedJobs();
+        Job job = new Job(UUID.randomUUID().toString(), callbackUrl);
+        jobs.put(job.id, job);
+        try {
+            workers.execute(() -> run(job, processor));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            rejected.incrementAndGet();
+            throw new QueueFullException(retryAfterSeconds());
+        }
+        accepted.incrementAndGet();
+        return job.toStatus();
+    }
+
+    public JobStatus getStatus(String jobId) {
+        Job job = jobs.get(jobId);
+        return job != null ? job.toStatus() : null;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workers", workerCount);
+        stats.put("active", workers.getActiveCount());
+        stats.put("queued", workers.getQueue().size());
+        stats.put("queueCapacity", workers.getQueue().size() + workers.getQueue().remainingCapacity());
+        stats.put("trackedJobs", jobs.size());
+        stats.put("accepted", accepted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("callbackFailures", callbackFailures.get());
+        stats.put("averageJobSeconds", averageJobSeconds);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private void run(Job job, Supplier<ApiResponse<List<TaskExportDto>>> processor) {
+        long start = System.nanoTime();
+        job.state = State.RUNNING;
+        try {
+            ApiResponse<List<TaskExportDto>> result = processor.get();
+            job.result = result;
+            job.state = result.isSuccess() ? State.SUCCEEDED : State.FAILED;
+            if (!result.isSuccess()) {
+                job.error = result.getMessage();
+            }
+        } catch (Exception e) {
+            job.error = "Error al procesar email: " + e.getMessage();
+            job.state = State.FAILED;
+        }
+        job.finishedNanos = System.nanoTime();
+        job.completedAt = Instant.now();
+        finishedJobs.add(job);
+        averageJobSeconds = averageJobSeconds * 0.8 + (job.finishedNanos - start) / 1e9 * 0.2;
+
+        if (job.callbackUrl != null && !job.callbackUrl.isBlank()) {
+            sendCallback(job);
+        }
+    }
+
+    private void sendCallback(Job job) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(job.callbackUrl))
+                .timeout(callbackTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(job.toStatus())))
+                .build();
+            callbackClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    if (error != null || response.statusCode() >= 400) {
+                        callbackFailures.incrementAndGet();
+                        System.err.println("Callback for job " + job.id + " failed: "
+                            + (error != null ? error.getMessage() : "HTTP " + response.statusCode()));
+                    }
+                });
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            callbackFailures.incrementAndGet();
+            System.err.println("Callback for job " + job.id + " failed: " + e.getMessage());
+        }
+    }
+
+    private int retryAfterSeconds() {
+        double seconds = workers.getQueue().size() * averageJobSeconds / workerCount;
+        return (int) Math.max(1, Math.min(60, Math.ceil(seconds)));
+    }
+
+    /**
+     * Olvida los trabajos que terminaron hace más tiempo cuando caducan o se supera el máximo.
+     * Los que siguen en cola o en curso nunca se olvidan.
+     */
+    private void pruneFinishedJobs() {
+        long now = System.nanoTime();
+        Job oldest;
+        while ((oldest = finishedJobs.peek()) != null
+                && (now - oldest.finishedNanos > retentionNanos || jobs.size() >= maxJobs)) {
+            if (finishedJobs.remove(oldest)) {
+                jobs.remove(oldest.id);
+            }
+        }
+    }
+
+    private static final class Job {
+        final String id;
+        final String callbackUrl;
+        final Instant submittedAt = Instant.now();
+        volatile State state = State.QUEUED;
+        volatile ApiResponse<List<TaskExportDto>> result;
+        volatile String error;
+        volatile Instant completedAt;
+        volatile long finishedNanos;
+
+        Job(String id, String callbackUrl) {
+            this.id = id;
+            this.callbackUrl = callbackUrl;
+        }
+
+        JobStatus toStatus() {
+            JobStatus status = new JobStatus();
+            status.setJobId(id);
+            status.setStatus(state.name());
+            status.setSubmittedAt(submittedAt);
+            status.setCompletedAt(completedAt);
+            status.setResult(result);
+            status.setError(error);
+            return status;
+        }
+    }
+
+    /**
+     * Cola llena: el cliente debe reintentar pasados {@link #getRetryAfterSeconds()} segundos.
+     */
+    public static class QueueFullException extends RuntimeException {
+
+        private final int retryAfterSeconds;
+
+        public QueueFullException(int retryAfterSeconds) {
+            super("Cola de emails llena", null, false, false);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
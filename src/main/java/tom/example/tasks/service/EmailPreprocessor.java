@@ -0,0 +1,577 @@
+package tom.example.tasks.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Limpia un email antes de mandarlo a Gemini: convierte el HTML en texto y quita el historial citado
+ * (líneas "&gt;", bloques "On ... wrote:" / "El ... escribió:" y cabeceras De:/Enviado:), la firma,
+ * los avisos legales y los espacios sobrantes. Recorre el cuerpo una sola vez: el HTML se decodifica
+ * carácter a carácter y cada línea se filtra en cuanto se completa, sin construir un árbol DOM ni
+ * copias intermedias del texto. Solo retiene las pocas líneas que siguen a una despedida, o a un
+ * aviso legal que no va tras un separador, hasta saber si de verdad son la firma o el pie del mensaje.
+ */
+@Component
+public class EmailPreprocessor {
+
+    private static final Pattern REPLY_PREFIX = Pattern.compile("^\\s*(?:(?:re|rv|fw|fwd|res)(?:\\[\\d+])?\\s*:\\s*)+",
+        Pattern.CASE_INSENSITIVE);
+    private static final Pattern ATTRIBUTION = Pattern.compile(
+        "^(?:on\\s.+\\swrote|el\\s.+\\sescribi[oó]|le\\s.+\\sa écrit)\\s*:$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ORIGINAL_MESSAGE = Pattern.compile(
+        "^-{2,}\\s*(?:original message|mensaje original)\\s*-{2,}$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FORWARD_MARKER = Pattern.compile(
+        "^-{2,}\\s*(?:forwarded message|mensaje reenviado)\\s*-{2,}$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FORWARD_HEADER = Pattern.compile(
+        "^(?:from|de|date|fecha|subject|asunto|to|para|cc)\\s*:.*", Pattern.CASE_INSENSITIVE);
+    private static final Pattern HEADER_FROM = Pattern.compile("^(?:from|de)\\s*:.+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern HEADER_FOLLOWING = Pattern.compile(
+        "^(?:sent|date|to|enviado(?: el)?|fecha|para)\\s*:.*", Pattern.CASE_INSENSITIVE);
+    private static final Pattern MOBILE_FOOTER = Pattern.compile(
+        "^(?:sent from my|enviado desde mi|get outlook for|obtener outlook para)\\b.*", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SIGN_OFF = Pattern.compile(
+        "^(?:saludos|un saludo|saludos cordiales|un abrazo|atentamente|cordialmente|gracias|muchas gracias"
+            + "|best|best regards|kind regards|regards|cheers|thanks|many thanks|thank you)[,.!]?$",
+        Pattern.CASE_INSENSITIVE);
+    private static final Pattern DISCLAIMER_START = Pattern.compile(
+        "^(?:confidential|confidencial|aviso|this e-?mail|this message|este mensaje|este correo"
+            + "|la informaci[oó]n contenida|the information contained|antes de imprimir|please consider"
+            + "|en cumplimiento|de conformidad|in compliance|privileged|disclaimer).*", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DISCLAIMER_KEYWORD = Pattern.compile(
+        "confiden|privileg|destinatario|recipient|prohibid|prohibited|datos personales|personal data"
+            + "|imprimir|print|legal|notice", Pattern.CASE_INSENSITIVE);
+
+    // Tras una despedida, más líneas que estas o una frase completa indican que no era la firma
+    private static final int MAX_SIGNATURE_LINES = 6;
+    private static final int MAX_SIGNATURE_LINE_CHARS = 100;
+    // Los avisos legales son párrafos largos; una frase corta que empiece igual es contenido
+    private static final int MIN_DISCLAIMER_CHARS = 50;
+    // Una línea de firma es corta: un nombre, un cargo, un teléfono o una web
+    private static final int MAX_SIGNATURE_LINE_WORDS = 5;
+    private static final int MIN_PHONE_DIGITS = 6;
+
+    private static final Set<String> BLOCK_TAGS = Set.of("p", "div", "br", "li", "tr", "h1", "h2", "h3", "h4",
+        "h5", "h6", "hr", "table", "ul", "ol", "blockquote", "pre", "section", "article", "header", "footer");
+    private static final Set<String> SKIPPED_TAGS = Set.of("head", "style", "script", "title");
+    private static final Map<String, String> ENTITIES = Map.ofEntries(
+        Map.entry("nbsp", " "), Map.entry("amp", "&"), Map.entry("lt", "<"), Map.entry("gt", ">"),
+        Map.entry("quot", "\""), Map.entry("apos", "'"), Map.entry("aacute", "á"), Map.entry("eacute", "é"),
+        Map.entry("iacute", "í"), Map.entry("oacute", "ó"), Map.entry("uacute", "ú"), Map.entry("ntilde", "ñ"),
+        Map.entry("Aacute", "Á"), Map.entry("Eacute", "É"), Map.entry("Iacute", "Í"), Map.entry("Oacute", "Ó"),
+        Map.entry("Uacute", "Ú"), Map.entry("Ntilde", "Ñ"), Map.entry("uuml", "ü"), Map.entry("iexcl", "¡"),
+        Map.entry("iquest", "¿"), Map.entry("euro", "€"), Map.entry("hellip", "…"), Map.entry("mdash", "—"),
+        Map.entry("ndash", "–"), Map.entry("laquo", "«"), Map.entry("raquo", "»"), Map.entry("ordf", "ª"),
+        Map.entry("ordm", "º"), Map.entry("copy", "©"), Map.entry("reg", "®"), Map.entry("zwnj", ""));
+
+    /**
+     * Texto limpio listo para el prompt ("Asunto: ..." y cuerpo) y tamaño antes y después de limpiarlo.
+     */
+    public record Result(String text, int originalBytes, int cleanedBytes) {
+
+        public int bytesSaved() {
+            return originalBytes - cleanedBytes;
+        }
+
+        /**
+         * Tokens de entrada ahorrados, con la aproximación habitual de 4 bytes por token.
+         */
+        public int tokensSaved() {
+            return estimateTokens(originalBytes) - estimateTokens(cleanedBytes);
+        }
+    }
+
+    public Result preprocess(String subject, String body) {
+        int originalBytes = 0;
+        StringBuilder text = new StringBuilder(body != null ? Math.min(body.length(), 16 * 1024) + 64 : 64);
+        if (subject != null) {
+            originalBytes += utf8Length("Asunto: ") + utf8Length(subject) + 1;
+            String cleanSubject = REPLY_PREFIX.matcher(subject).replaceFirst("").strip();
+            text.append("Asunto: ").append(cleanSubject.isEmpty() ? subject.strip() : cleanSubject).append('\n');
+        }
+        if (body != null) {
+            originalBytes += utf8Length(body);
+            int bodyStart = text.length();
+            clean(body, text, true);
+            if (!hasLetters(text, bodyStart)) {
+                // Todo el cuerpo era historial citado o firma (un reenvío sin comentario): mejor mandarlo entero
+                text.setLength(bodyStart);
+                clean(body, text, false);
+            }
+        }
+        return new Result(text.toString(), originalBytes, utf8Length(text));
+    }
+
+    static int estimateTokens(int bytes) {
+        return (bytes + 3) / 4;
+    }
+
+    private static void clean(String body, StringBuilder out, boolean stripHistory) {
+        LineFilter lines = new LineFilter(out, stripHistory);
+        if (looksLikeHtml(body)) {
+            new HtmlDecoder(lines).decode(body);
+        } else {
+            for (int i = 0; i < body.length(); i++) {
+                lines.accept(body.charAt(i));
+            }
+        }
+        lines.finish();
+    }
+
+    private static boolean looksLikeHtml(String body) {
+        int limit = Math.min(body.length(), 4096);
+        for (int i = body.indexOf('<'); i >= 0 && i < limit - 2; i = body.indexOf('<', i + 1)) {
+            char next = Character.toLowerCase(body.charAt(i + 1));
+            if (next == '/' || next == '!') {
+                return true;
+            }
+            int end = i + 1;
+            while (end < body.length() && Character.isLetterOrDigit(body.charAt(end))) {
+                end++;
+            }
+            String tag = body.substring(i + 1, end).toLowerCase(Locale.ROOT);
+            if (tag.equals("html") || tag.equals("body") || tag.equals("span") || BLOCK_TAGS.contains(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasLetters(CharSequence text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            if (Character.isLetter(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int utf8Length(CharSequence text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Convierte HTML en texto: omite etiquetas, comentarios, &lt;head&gt;, &lt;style&gt; y &lt;script&gt;,
+     * descarta el contenido de &lt;blockquote&gt; (la cita de Gmail, Apple Mail y Thunderbird),
+     * traduce las etiquetas de bloque en saltos de línea y decodifica las entidades.
+     */
+    private static final class HtmlDecoder {
+
+        private final LineFilter lines;
+        private int quoteDepth;
+        private String skippedTag;
+
+        HtmlDecoder(LineFilter lines) {
+            this.lines = lines;
+        }
+
+        void decode(String html) {
+            int i = 0;
+            int length = html.length();
+            while (i < length && !lines.isDone()) {
+                char c = html.charAt(i);
+                if (c == '<') {
+                    i = tag(html, i);
+                } else if (skippedTag != null || quoteDepth > 0) {
+                    i++;
+                } else if (c == '&') {
+                    i = entity(html, i);
+                } else {
+                    // En HTML los saltos de línea del fuente son espacios
+                    lines.accept(c == '\n' || c == '\r' ? ' ' : c);
+                    i++;
+                }
+            }
+        }
+
+        private int tag(String html, int start) {
+            if (html.startsWith("<!--", start)) {
+                int end = html.indexOf("-->", start + 4);
+                return end < 0 ? html.length() : end + 3;
+            }
+            int end = tagEnd(html, start);
+            int nameStart = start + 1;
+            boolean closing = nameStart < end && html.charAt(nameStart) == '/';
+            if (closing) {
+                nameStart++;
+            }
+            int nameEnd = nameStart;
+            while (nameEnd < end && Character.isLetterOrDigit(html.charAt(nameEnd))) {
+                nameEnd++;
+            }
+            String name = html.substring(nameStart, nameEnd).toLowerCase(Locale.ROOT);
+
+            if (skippedTag != null) {
+                if (closing && name.equals(skippedTag)) {
+                    skippedTag = null;
+                }
+            } else if (SKIPPED_TAGS.contains(name) && !closing && html.charAt(end - 1) != '/') {
+                skippedTag = name;
+            } else if (name.equals("blockquote")) {
+                quoteDepth = Math.max(0, quoteDepth + (closing ? -1 : 1));
+                lines.accept('\n');
+            } else if (quoteDepth == 0) {
+                if (BLOCK_TAGS.contains(name)) {
+                    lines.accept('\n');
+                } else if (name.equals("td") || name.equals("th")) {
+                    lines.accept(' ');
+                }
+            }
+            return end;
+        }
+
+        // Posición tras el '>' que cierra la etiqueta, ignorando los que van entre comillas
+        private static int tagEnd(String html, int start) {
+            char quote = 0;
+            for (int i = start + 1; i < html.length(); i++) {
+                char c = html.charAt(i);
+                if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == '>') {
+                    return i + 1;
+                }
+            }
+            return html.length();
+        }
+
+        private int entity(String html, int start) {
+            int end = start + 1;
+            while (end < html.length() && end - start <= 10 && html.charAt(end) != ';'
+                && (Character.isLetterOrDigit(html.charAt(end)) || html.charAt(end) == '#')) {
+                end++;
+            }
+            if (end < html.length() && html.charAt(end) == ';' && end > start + 1) {
+                String name = html.substring(start + 1, end);
+                String value = null;
+                if (name.charAt(0) == '#') {
+                    try {
+                        int codePoint = name.length() > 1 && (name.charAt(1) == 'x' || name.charAt(1) == 'X')
+                            ? Integer.parseInt(name.substring(2), 16)
+                            : Integer.parseInt(name.substring(1));
+                        value = codePoint == 0xA0 ? " " : new String(Character.toChars(codePoint));
+                    } catch (IllegalArgumentException e) {
+                        value = null;
+                    }
+                } else {
+                    value = ENTITIES.get(name);
+                }
+                if (value != null) {
+                    for (int i = 0; i < value.length(); i++) {
+                        lines.accept(value.charAt(i));
+                    }
+                    return end + 1;
+                }
+            }
+            lines.accept('&');
+            return start + 1;
+        }
+    }
+
+    /**
+     * Recibe el texto carácter a carácter, colapsa los espacios de cada línea y decide línea a línea
+     * qué pasa a la salida. Al encontrar el inicio del historial citado, o un aviso legal tras un
+     * separador, deja de aceptar texto: todo lo que sigue es historial o pie. Un aviso legal sin
+     * separador solo se descarta si llega hasta el final del mensaje (o hasta el historial).
+     */
+    private static final class LineFilter {
+
+        private final StringBuilder out;
+        private final boolean stripHistory;
+        private final StringBuilder line = new StringBuilder(128);
+        private boolean pendingSpace;
+        private boolean done;
+        private boolean wroteLine;
+        private boolean pendingBlankLine;
+
+        // Posible cabecera de respuesta partida en dos líneas ("El lun, 14 jul ... <ana@" / "x.com> escribió:")
+        private String heldHeader;
+        // Cabeceras de un mensaje reenviado: se quitan, pero el mensaje es el contenido y se conserva
+        private boolean inForwardHeader;
+        // Despedida y líneas posteriores, a la espera de saber si son la firma
+        private final List<String> heldSignature = new ArrayList<>();
+        private int heldSignatureLines = -1;
+        // Posible aviso legal, a la espera de saber si es el pie del mensaje o contenido que empieza igual
+        private final List<String> heldDisclaimer = new ArrayList<>();
+        private boolean disclaimerParagraphOpen;
+        // La última línea con texto era un separador ("-----", "_____")
+        private boolean afterSeparator;
+
+        LineFilter(StringBuilder out, boolean stripHistory) {
+            this.out = out;
+            this.stripHistory = stripHistory;
+        }
+
+        boolean isDone() {
+            return done;
+        }
+
+        void accept(char c) {
+            if (done) {
+                return;
+            }
+            if (c == '\n') {
+                endLine();
+            } else if (c == '\r') {
+                // Se trata con el '\n' que lo acompaña; un '\r' suelto no separa líneas
+            } else if (Character.isWhitespace(c) || c == '\u00A0' || c == '\u200B') {
+                pendingSpace = line.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    line.append(' ');
+                    pendingSpace = false;
+                }
+                line.append(c);
+            }
+        }
+
+        void finish() {
+            if (!done) {
+                endLine();
+                if (heldHeader != null) {
+                    releaseDisclaimer();
+                    emit(heldHeader);
+                    heldHeader = null;
+                }
+                done = true;
+            }
+            // Lo retenido tras la despedida o desde el aviso legal al final del email es el pie: se descarta
+        }
+
+        private void endLine() {
+            String text = line.toString();
+            line.setLength(0);
+            pendingSpace = false;
+            if (stripHistory) {
+                filter(text);
+            } else {
+                emit(text);
+            }
+        }
+
+        private void filter(String text) {
+            if (heldHeader != null) {
+                String held = heldHeader;
+                heldHeader = null;
+                if (ATTRIBUTION.matcher(held + " " + text).matches()
+                    || (HEADER_FROM.matcher(held).matches() && HEADER_FOLLOWING.matcher(text).matches())) {
+                    done = true;
+                    return;
+                }
+                releaseDisclaimer();
+                emit(held);
+            }
+
+            if (inForwardHeader) {
+                if (FORWARD_HEADER.matcher(text).matches()) {
+                    return;
+                }
+                inForwardHeader = false;
+            }
+            if (text.isEmpty()) {
+                if (heldDisclaimer.isEmpty()) {
+                    emit(text);
+                } else {
+                    heldDisclaimer.add(text);
+                    disclaimerParagraphOpen = false;
+                }
+                return;
+            }
+            if (FORWARD_MARKER.matcher(text).matches()) {
+                inForwardHeader = true;
+                return;
+            }
+            if (isRule(text)) {
+                afterSeparator = true;
+                return;
+            }
+            boolean separated = afterSeparator;
+            afterSeparator = false;
+            if (text.charAt(0) == '>' || MOBILE_FOOTER.matcher(text).matches()) {
+                return;
+            }
+            if (text.equals("--") || ATTRIBUTION.matcher(text).matches() || ORIGINAL_MESSAGE.matcher(text).matches()
+                || (separated && isDisclaimer(text))) {
+                done = true;
+                return;
+            }
+            if (heldDisclaimer.isEmpty() ? isDisclaimer(text) : continuesDisclaimer(text)) {
+                heldDisclaimer.add(text);
+                disclaimerParagraphOpen = true;
+                return;
+            }
+            if (HEADER_FROM.matcher(text).matches() || isAttributionStart(text)) {
+                heldHeader = text;
+                return;
+            }
+            releaseDisclaimer();
+            if (heldSignatureLines < 0 && SIGN_OFF.matcher(text).matches()) {
+                heldSignature.add(text);
+                heldSignatureLines = 0;
+                return;
+            }
+            emit(text);
+        }
+
+        private void emit(String text) {
+            if (heldSignatureLines >= 0) {
+                if (!text.isEmpty()) {
+                    heldSignatureLines++;
+                }
+                if (heldSignatureLines <= MAX_SIGNATURE_LINES && isSignatureLine(text)) {
+                    heldSignature.add(text);
+                    return;
+                }
+                // No era una firma: lo retenido vuelve a la salida
+                heldSignatureLines = -1;
+                for (String held : heldSignature) {
+                    append(held);
+                }
+                heldSignature.clear();
+            }
+            append(text);
+        }
+
+        // Tras el supuesto aviso legal sigue contenido: no era el pie y vuelve a la salida
+        private void releaseDisclaimer() {
+            for (String held : heldDisclaimer) {
+                emit(held);
+            }
+            heldDisclaimer.clear();
+        }
+
+        // Continuación de un aviso legal retenido: el mismo párrafo o uno que también suena a aviso
+        private boolean continuesDisclaimer(String text) {
+            return disclaimerParagraphOpen || DISCLAIMER_START.matcher(text).matches()
+                || DISCLAIMER_KEYWORD.matcher(text).find();
+        }
+
+        // Una sola línea en blanco entre párrafos y ninguna al principio ni al final
+        private void append(String text) {
+            if (text.isEmpty()) {
+                pendingBlankLine = wroteLine;
+                return;
+            }
+            if (wroteLine) {
+                out.append(pendingBlankLine ? "\n\n" : "\n");
+            }
+            out.append(text);
+            wroteLine = true;
+            pendingBlankLine = false;
+        }
+
+        // Frase de contenido y no línea de firma ("Director Comercial | ACME S.L." no lo es)
+        private static boolean isSentence(String text) {
+            if (text.length() > MAX_SIGNATURE_LINE_CHARS) {
+                return true;
+            }
+            if (text.isEmpty() || ".?!:".indexOf(text.charAt(text.length() - 1)) < 0 || text.indexOf('|') >= 0) {
+                return false;
+            }
+            int lastWord = text.lastIndexOf(' ') + 1;
+            if (text.indexOf('.', lastWord) < text.length() - 1) {
+                return false;
+            }
+            int words = 1;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == ' ') {
+                    words++;
+                }
+            }
+            return words >= 6;
+        }
+
+        // Nombre, cargo, teléfono, web o línea con "|"; cualquier otra cosa tras la despedida es contenido
+        private static boolean isSignatureLine(String text) {
+            if (text.isEmpty()) {
+                return true;
+            }
+            if (isSentence(text)) {
+                return false;
+            }
+            String lower = text.toLowerCase(Locale.ROOT);
+            if (text.indexOf('|') >= 0 || text.indexOf('@') >= 0 || lower.contains("http") || lower.contains("www.")) {
+                return true;
+            }
+            int digits = 0;
+            int letters = 0;
+            for (int i = 0; i < text.length(); i++) {
+                if (Character.isDigit(text.charAt(i))) {
+                    digits++;
+                } else if (Character.isLetter(text.charAt(i))) {
+                    letters++;
+                }
+            }
+            if (digits >= MIN_PHONE_DIGITS && digits >= letters) {
+                return true;
+            }
+            // Nombre o cargo: pocas palabras y la mayoría de las largas en mayúscula ("Responsable de Compras")
+            String[] words = text.split(" ");
+            if (words.length > MAX_SIGNATURE_LINE_WORDS || !Character.isUpperCase(text.charAt(0))) {
+                return false;
+            }
+            int capitalized = 0;
+            int lowercase = 0;
+            for (String word : words) {
+                if (word.length() > 3) {
+                    if (Character.isUpperCase(word.charAt(0))) {
+                        capitalized++;
+                    } else {
+                        lowercase++;
+                    }
+                }
+            }
+            return capitalized >= lowercase;
+        }
+
+        private static boolean isAttributionStart(String text) {
+            String lower = text.toLowerCase(Locale.ROOT);
+            return (lower.startsWith("on ") || lower.startsWith("el ")) && text.indexOf('@') >= 0;
+        }
+
+        private static boolean isRule(String text) {
+            if (text.length() < 10) {
+                return false;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c != '_' && c != '-' && c != '=' && c != '*') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isDisclaimer(String text) {
+            String heading = text.length() > 40 ? "" : text.replaceAll("[^\\p{L} ]", "").strip().toLowerCase(Locale.ROOT);
+            if (heading.equals("aviso legal") || heading.equals("legal notice") || heading.equals("disclaimer")
+                || heading.equals("confidentiality notice") || heading.equals("aviso de confidencialidad")) {
+                return true;
+            }
+            return text.length() >= MIN_DISCLAIMER_CHARS
+                && DISCLAIMER_START.matcher(text).matches() && DISCLAIMER_KEYWORD.matcher(text).find();
+        }
+    }
+}
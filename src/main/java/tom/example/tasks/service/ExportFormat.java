@@ -0,0 +1,129 @@
+package tom.example.tasks.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import tom.example.tasks.model.Priority;
+import tom.example.tasks.model.Task;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Formatos de exportación por plataforma. Cada uno escribe su objeto directamente con el
+ * JsonGenerator, con los mismos campos que los mapas de ApiController pero sin crear un
+ * HashMap por tarea. Los nombres de campo van precodificados en SerializedString.
+ */
+public enum ExportFormat {
+
+    STANDARD(null) {
+        @Override
+        void writeFields(JsonGenerator generator, Task task) {
+            // El formato estándar son los campos comunes de la tarea, sin objeto adicional
+        }
+    },
+
+    TODOIST("todoistFormat") {
+        @Override
+        void writeFields(JsonGenerator generator, Task task) throws IOException {
+            generator.writeFieldName(CONTENT);
+            generator.writeString(task.getTitle());
+            generator.writeFieldName(DESCRIPTION);
+            generator.writeString(task.getDescription());
+            generator.writeFieldName(DUE_DATE_SNAKE);
+            writeDate(generator, task.getDueDate());
+            generator.writeFieldName(PRIORITY);
+            // Todoist usa 4 para la más urgente, igual que el nivel de Priority
+            generator.writeNumber(task.getPriority().getLevel());
+        }
+    },
+
+    NOTION("notionFormat") {
+        @Override
+        void writeFields(JsonGenerator generator, Task task) throws IOException {
+            generator.writeFieldName(TITLE);
+            generator.writeString(task.getTitle());
+            generator.writeFieldName(STATUS);
+            generator.writeString(task.isCompleted() ? "Done" : "Not started");
+            generator.writeFieldName(PRIORITY);
+            generator.writeString(task.getPriority().name());
+            generator.writeFieldName(DUE);
+            writeDate(generator, task.getDueDate());
+        }
+    },
+
+    CLICKUP("clickUpFormat") {
+        @Override
+        void writeFields(JsonGenerator generator, Task task) throws IOException {
+            generator.writeFieldName(NAME);
+            generator.writeString(task.getTitle());
+            generator.writeFieldName(DESCRIPTION);
+            generator.writeString(task.getDescription());
+            generator.writeFieldName(STATUS);
+            generator.writeString(task.isCompleted() ? "complete" : "open");
+            generator.writeFieldName(PRIORITY);
+            generator.writeString(clickUpPriority(task.getPriority()));
+        }
+    };
+
+    private static final SerializedString CONTENT = new SerializedString("content");
+    private static final SerializedString DESCRIPTION = new SerializedString("description");
+    private static final SerializedString DUE_DATE_SNAKE = new SerializedString("due_date");
+    private static final SerializedString PRIORITY = new SerializedString("priority");
+    private static final SerializedString TITLE = new SerializedString("title");
+    private static final SerializedString STATUS = new SerializedString("status");
+    private static final SerializedString DUE = new SerializedString("due");
+    private static final SerializedString NAME = new SerializedString("name");
+
+    private final SerializedString fieldName;
+
+    ExportFormat(String fieldName) {
+        this.fieldName = fieldName != null ? new SerializedString(fieldName) : null;
+    }
+
+    /**
+     * Formato por nombre ("todoist", "notion"...), sin distinguir mayúsculas.
+     *
+     * @throws IllegalArgumentException si el formato no existe
+     */
+    public static ExportFormat fromName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Escribe el objeto de la plataforma como campo del objeto de tarea abierto en el generador.
+     */
+    void write(JsonGenerator generator, Task task) throws IOException {
+        if (fieldName == null) {
+            return;
+        }
+        generator.writeFieldName(fieldName);
+        generator.writeStartObject();
+        writeFields(generator, task);
+        generator.writeEndObject();
+    }
+
+    abstract void writeFields(JsonGenerator generator, Task task) throws IOException;
+
+    private static void writeDate(JsonGenerator generator, LocalDate date) throws IOException {
+        if (date != null) {
+            generator.writeString(date.toString());
+        } else {
+            generator.writeNull();
+        }
+    }
+
+    private static String clickUpPriority(Priority priority) {
+        return switch (priority) {
+            case CRITICA -> "urgent";
+            case ALTA -> "high";
+            case MEDIA -> "normal";
+            case BAJA -> "low";
+        };
+    }
+}
@@ -0,0 +1,153 @@
+package tom.example.tasks.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas Micrometer del camino de extracción: un timer por etapa, fallbacks a la IA local
+ * por motivo, número de tareas por petición, bytes y tokens que el preprocesado quita a cada email
+ * y decisiones del enrutador local/Gemini con sus comparaciones en modo sombra. Todos los medidores
+ * se registran al arrancar y se guardan en EnumMap, así que registrar una medida no busca tags ni reserva memoria:
+ * solo incrementa contadores atómicos. Se exponen en /actuator/prometheus.
+ */
+@Component
+public class ExtractionMetrics {
+
+    public enum Stage { EMAIL_PREPROCESS, PROMPT_BUILD, QUOTA_WAIT, GEMINI_CALL, RESPONSE_PARSE, LOCAL_EXTRACTION, DTO_CONVERSION }
+
+    public enum Operation { EXTRACTION, PRIORITY }
+
+    public enum FallbackReason { NO_API_KEY, CIRCUIT_OPEN, RATE_LIMITED, HTTP_ERROR, PARSE_ERROR }
+
+    public enum Route { LOCAL, GEMINI }
+
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Map<Operation, Map<FallbackReason, Counter>> fallbacks = new EnumMap<>(Operation.class);
+    private final DistributionSummary tasksPerRequest;
+    private final DistributionSummary emailBytesSaved;
+    private final DistributionSummary emailTokensSaved;
+    private final Map<Route, Counter> routes = new EnumMap<>(Route.class);
+    private final Map<Route, Counter> shadowAgreements = new EnumMap<>(Route.class);
+    private final Map<Route, Counter> shadowDisagreements = new EnumMap<>(Route.class);
+    private final DistributionSummary routeConfidence;
+
+    public ExtractionMetrics(MeterRegistry registry) {
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("tasks.extraction.stage")
+                .description("Duración de cada etapa de la extracción de tareas")
+                .tag("stage", tagValue(stage))
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(10_000))
+                .maximumExpectedValue(Duration.ofSeconds(60))
+                .register(registry));
+        }
+        for (Operation operation : Operation.values()) {
+            Map<FallbackReason, Counter> counters = new EnumMap<>(FallbackReason.class);
+            for (FallbackReason reason : FallbackReason.values()) {
+                counters.put(reason, Counter.builder("tasks.extraction.fallbacks")
+                    .description("Peticiones resueltas con la IA local en lugar de Gemini")
+                    .tag("operation", tagValue(operation))
+                    .tag("reason", tagValue(reason))
+                    .register(registry));
+            }
+            fallbacks.put(operation, counters);
+        }
+        this.tasksPerRequest = DistributionSummary.builder("tasks.extraction.tasks.per.request")
+            .description("Número de tareas extraídas por petición")
+            .baseUnit("tasks")
+            .publishPercentileHistogram()
+            .maximumExpectedValue(1000.0)
+            .register(registry);
+        this.emailBytesSaved = DistributionSummary.builder("tasks.email.preprocess.saved.bytes")
+            .description("Bytes de historial citado, firma, avisos y HTML quitados de cada email")
+            .baseUnit("bytes")
+            .register(registry);
+        this.emailTokensSaved = DistributionSummary.builder("tasks.email.preprocess.saved.tokens")
+            .description("Tokens de entrada estimados que se ahorran en cada email")
+            .baseUnit("tokens")
+            .register(registry);
+        for (Route route : Route.values()) {
+            routes.put(route, Counter.builder("tasks.router.decisions")
+                .description("Peticiones enviadas a la extracción local o a Gemini por el enrutador")
+                .tag("route", tagValue(route))
+                .register(registry));
+            shadowAgreements.put(route, shadowCounter(registry, route, "agree"));
+            shadowDisagreements.put(route, shadowCounter(registry, route, "disagree"));
+        }
+        this.routeConfidence = DistributionSummary.builder("tasks.router.confidence")
+            .description("Confianza del enrutador en la extracción local")
+            .publishPercentileHistogram()
+            .maximumExpectedValue(1.0)
+            .register(registry);
+    }
+
+    private static Counter shadowCounter(MeterRegistry registry, Route route, String outcome) {
+        return Counter.builder("tasks.router.shadow.comparisons")
+            .description("Peticiones en modo sombra resueltas por los dos caminos, según coincidan o no")
+            .tag("route", tagValue(route))
+            .tag("outcome", outcome)
+            .register(registry);
+    }
+
+    /**
+     * Registra la duración de una etapa medida con {@code System.nanoTime()}.
+     */
+    public void recordStage(Stage stage, long startNanos) {
+        stageTimers.get(stage).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFallback(Operation operation, FallbackReason reason) {
+        fallbacks.get(operation).get(reason).increment();
+    }
+
+    public void recordTasksPerRequest(int tasks) {
+        tasksPerRequest.record(tasks);
+    }
+
+    public void recordEmailSavings(int bytesSaved, int tokensSaved) {
+        emailBytesSaved.record(bytesSaved);
+        emailTokensSaved.record(tokensSaved);
+    }
+
+    public void recordRoute(Route route, double confidence) {
+        routes.get(route).increment();
+        routeConfidence.record(confidence);
+    }
+
+    public void recordShadowComparison(Route route, boolean agree) {
+        (agree ? shadowAgreements : shadowDisagreements).get(route).increment();
+    }
+
+    long routeCount(Route route) {
+        return (long) routes.get(route).count();
+    }
+
+    long shadowCount(Route route, boolean agree) {
+        return (long) (agree ? shadowAgreements : shadowDisagreements).get(route).count();
+    }
+
+    /**
+     * Motivo de un fallo al llamar a Gemini, distinguiendo el circuito abierto y la falta de cuota del error HTTP.
+     */
+    static FallbackReason callFailureReason(Exception e) {
+        if (e instanceof GeminiCircuitBreaker.CircuitOpenException) {
+            return FallbackReason.CIRCUIT_OPEN;
+        }
+        return e instanceof GeminiQuotaScheduler.QuotaExhaustedException
+            ? FallbackReason.RATE_LIMITED
+            : FallbackReason.HTTP_ERROR;
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,162 @@
+package tom.example.tasks.service;
+
+import tom.example.tasks.model.Task;
+import tom.example.tasks.service.ExtractionMetrics.Route;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Decide por petición si basta con la extracción local o hace falta Gemini. La confianza (0..1)
+ * es la parte de las frases que el extractor local reconoce (elementos de lista o frases con
+ * obligación, plazo o verbo de acción), con más peso si son listas, y se rebaja si el texto está
+ * en inglés (las reglas locales son en español) o es largo. Por encima del umbral se usa la vía local.
+ */
+final class ExtractionRouter {
+
+    // Mismo troceado que extractTasksLocally
+    private static final Pattern SENTENCE_BOUNDARY = Pattern.compile("[.!?\\n\\r]+");
+    private static final Pattern WORD = Pattern.compile("[\\p{L}']+");
+
+    private static final Set<String> ENGLISH = Set.of(
+        "the", "and", "to", "i", "need", "needs", "please", "should", "must", "will", "you", "we", "by",
+        "it", "is", "are", "have", "has", "of", "for", "with", "this", "that", "my", "our", "on");
+    private static final Set<String> SPANISH = Set.of(
+        "el", "la", "los", "las", "de", "del", "que", "y", "para", "con", "por", "en", "un", "una",
+        "hay", "tengo", "tiene", "debe", "es", "al", "lo", "mi", "su", "se", "no");
+
+    // A partir de aquí la confianza baja linealmente hasta 0 en LONG_TEXT_CHARS * 3
+    private static final int LONG_TEXT_CHARS = 2000;
+
+    private final TaskPatternMatcher patternMatcher;
+
+    ExtractionRouter(TaskPatternMatcher patternMatcher) {
+        this.patternMatcher = patternMatcher;
+    }
+
+    record Decision(Route route, double confidence, int sentences, int listItems, int keywordSentences,
+                    double englishRatio, int chars) {
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                "route=%s confidence=%.2f sentences=%d listItems=%d keywordSentences=%d english=%.2f chars=%d",
+                route, confidence, sentences, listItems, keywordSentences, englishRatio, chars);
+        }
+    }
+
+    Decision route(String text, double threshold) {
+        int sentences = 0;
+        int listItems = 0;
+        int keywordSentences = 0;
+        for (String raw : SENTENCE_BOUNDARY.split(text)) {
+            String sentence = raw.trim();
+            // Los encabezados ("Pendientes:") no son tareas por ninguno de los dos caminos
+            if (sentence.length() < 8 || sentence.endsWith(":")) {
+                continue;
+            }
+            sentences++;
+            if (TaskPatternMatcher.listItemTitleStart(sentence) >= 0) {
+                listItems++;
+                continue;
+            }
+            String lower = sentence.toLowerCase();
+            int matches = patternMatcher.scan(lower);
+            if ((matches & (TaskPatternMatcher.OBLIGATION | TaskPatternMatcher.DEADLINE)) != 0
+                || (patternMatcher.scanPrefix(lower, 0) & TaskPatternMatcher.ACTION_VERB) != 0
+                || patternMatcher.startsWithNameAction(lower)) {
+                keywordSentences++;
+            }
+        }
+
+        double englishRatio = englishRatio(text);
+        double confidence = 0;
+        if (sentences > 0) {
+            double coverage = (double) (listItems + keywordSentences) / sentences;
+            double listShare = (double) listItems / sentences;
+            double lengthFactor = text.length() <= LONG_TEXT_CHARS
+                ? 1
+                : Math.max(0, 1 - (double) (text.length() - LONG_TEXT_CHARS) / (2 * LONG_TEXT_CHARS));
+            confidence = coverage * (0.6 + 0.4 * listShare) * (1 - englishRatio) * lengthFactor;
+        }
+        Route route = confidence >= threshold ? Route.LOCAL : Route.GEMINI;
+        return new Decision(route, confidence, sentences, listItems, keywordSentences, englishRatio, text.length());
+    }
+
+    /**
+     * Parte de las palabras funcionales reconocidas que son inglesas (0 si no hay ninguna).
+     */
+    static double englishRatio(String text) {
+        int english = 0;
+        int spanish = 0;
+        var words = WORD.matcher(text);
+        while (words.find()) {
+            String word = words.group().toLowerCase(Locale.ROOT);
+            if (ENGLISH.contains(word)) {
+                english++;
+            } else if (SPANISH.contains(word)) {
+                spanish++;
+            }
+        }
+        return english + spanish == 0 ? 0 : (double) english / (english + spanish);
+    }
+
+    /**
+     * Los dos caminos coinciden si sacan el mismo número de tareas y cada tarea local tiene una
+     * de Gemini con al menos la mitad de palabras en común (Gemini suele reformular los títulos).
+     */
+    static boolean agree(List<Task> local, List<Task> gemini) {
+        if (local.size() != gemini.size()) {
+            return false;
+        }
+        boolean[] used = new boolean[gemini.size()];
+        for (Task task : local) {
+            Set<String> words = titleWords(task);
+            int best = -1;
+            double bestSimilarity = 0.5;
+            for (int i = 0; i < gemini.size(); i++) {
+                if (used[i]) {
+                    continue;
+                }
+                double similarity = jaccard(words, titleWords(gemini.get(i)));
+                if (similarity >= bestSimilarity) {
+                    best = i;
+                    bestSimilarity = similarity;
+                }
+            }
+            if (best < 0) {
+                return false;
+            }
+            used[best] = true;
+        }
+        return true;
+    }
+
+    private static Set<String> titleWords(Task task) {
+        Set<String> words = new HashSet<>();
+        String title = task.getTitle() != null ? TaskResultCache.normalize(task.getTitle()) : "";
+        var matcher = WORD.matcher(title.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            if (matcher.group().length() >= 3) {
+                words.add(matcher.group());
+            }
+        }
+        return words;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1;
+        }
+        int common = 0;
+        for (String word : a) {
+            if (b.contains(word)) {
+                common++;
+            }
+        }
+        return (double) common / (a.size() + b.size() - common);
+    }
+}
@@ -10,15 +10,35 @@ import org.springframework.http.MediaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 
+import tom.example.tasks.dto.TextAnalysisRequest;
 import tom.example.tasks.model.Priority;
 import tom.example.tasks.model.Task;
+import tom.example.tasks.service.ExtractionMetrics.FallbackReason;
+import tom.example.tasks.service.ExtractionMetrics.Operation;
+import tom.example.tasks.service.ExtractionMetrics.Route;
+import tom.example.tasks.service.ExtractionMetrics.Stage;
+import tom.example.tasks.service.GeminiQuotaScheduler.Urgency;
 
-import java.time.LocalDate;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 @Service
 public class GeminiAIService {
@@ -26,46 +46,540 @@ public class GeminiAIService {
     @Value("${gemini.api.key:}")
     private String apiKey;
     
+    @Value("${gemini.api.base-url:https://generativelanguage.googleapis.com}")
+    private String apiBaseUrl = "https://generativelanguage.googleapis.com";
+    
+    @Value("${gemini.model:gemini-1.5-flash-latest}")
+    private String model = "gemini-1.5-flash-latest";
+    
+    @Value("${gemini.batch.max-prompt-chars:24000}")
+    private int batchMaxPromptChars = 24000;
+    
+    @Value("${gemini.batch.max-documents:20}")
+    private int batchMaxDocuments = 20;
+    
+    @Value("${gemini.batch.max-output-tokens:8192}")
+    private int batchMaxOutputTokens = 8192;
+    
+    @Value("${gemini.chunk.max-chars:6000}")
+    private int chunkMaxChars = 6000;
+    
+    @Value("${gemini.chunk.max-concurrency:4}")
+    private int chunkMaxConcurrency = 4;
+    
+    @Value("${gemini.router.enabled:true}")
+    private boolean routerEnabled = true;
+    
+    @Value("${gemini.router.threshold:0.8}")
+    private double routerThreshold = 0.8;
+    
+    @Value("${gemini.router.shadow-sample-rate:0.0}")
+    private double routerShadowSampleRate = 0.0;
+    
+    @Value("${gemini.router.log-decisions:false}")
+    private boolean routerLogDecisions = false;
+    
+    @Value("${gemini.priority.chunk-size:50}")
+    private int priorityChunkSize = 50;
+    
+    @Value("${gemini.priority.max-concurrency:4}")
+    private int priorityMaxConcurrency = 4;
+    
+    private static final Pattern SENTENCE_BOUNDARY = Pattern.compile("[.!?\\n\\r]+");
+    
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final TaskPatternMatcher patternMatcher;
+    private final ExtractionRouter router;
+    private final RelativeDateParser dateParser;
+    private final PriorityClassifier priorityClassifier;
+    private final TaskResponseParser responseParser;
+    private final TaskResultCache resultCache;
+    private final GeminiCircuitBreaker circuitBreaker;
+    private final GeminiQuotaScheduler quotaScheduler;
+    private final ExtractionMetrics metrics;
+    private final ExecutorService chunkExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final SingleFlight<ExtractionKey, ChunkExtraction> extractionFlights = new SingleFlight<>(
+        extraction -> new ChunkExtraction(TaskResultCache.copyOf(extraction.tasks()), extraction.fromGemini()));
     
-    public GeminiAIService() {
-        this.restTemplate = new RestTemplate();
+    public GeminiAIService(RestTemplate geminiRestTemplate, TaskResultCache resultCache,
+                           GeminiCircuitBreaker circuitBreaker, GeminiQuotaScheduler quotaScheduler,
+                           ExtractionMetrics metrics, Clock clock, PriorityClassifier priorityClassifier) {
+        this.restTemplate = geminiRestTemplate;
         this.objectMapper = new ObjectMapper();
+        this.patternMatcher = new TaskPatternMatcher();
+        this.router = new ExtractionRouter(patternMatcher);
+        this.dateParser = new RelativeDateParser(clock);
+        this.priorityClassifier = priorityClassifier;
+        this.responseParser = new TaskResponseParser(objectMapper.getFactory());
+        this.resultCache = resultCache;
+        this.circuitBreaker = circuitBreaker;
+        this.quotaScheduler = quotaScheduler;
+        this.metrics = metrics;
     }
 
     public List<Task> extractTasksFromText(String text, String context) {
+        return extractTasksFromText(text, context, Urgency.INTERACTIVE);
+    }
+    
+    /**
+     * Con cuota limitada, las llamadas menos urgentes esperan detrás de las demás (ver {@link GeminiQuotaScheduler}).
+     */
+    public List<Task> extractTasksFromText(String text, String context, Urgency urgency) {
+        List<Task> tasks = extractTasks(text, context, urgency);
+        metrics.recordTasksPerRequest(tasks.size());
+        return tasks;
+    }
+    
+    private List<Task> extractTasks(String text, String context, Urgency urgency) {
         if (apiKey.isEmpty()) {
             // Fallback a IA local si no hay API key
+            metrics.recordFallback(Operation.EXTRACTION, FallbackReason.NO_API_KEY);
             return extractTasksLocally(text, context);
         }
         
+        if (routerEnabled) {
+            ExtractionRouter.Decision decision = route(text);
+            if (routerShadowSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < routerShadowSampleRate) {
+                return extractInShadowMode(text, context, decision, urgency);
+            }
+            if (decision.route() == Route.LOCAL) {
+                return extractTasksLocally(text, context);
+            }
+        }
+        return extractTasksWithGemini(text, context, urgency).tasks();
+    }
+    
+    private ExtractionRouter.Decision route(String text) {
+        ExtractionRouter.Decision decision = router.route(text, routerThreshold);
+        metrics.recordRoute(decision.route(), decision.confidence());
+        if (routerLogDecisions) {
+            System.out.println("Extraction router: " + decision);
+        }
+        return decision;
+    }
+    
+    /**
+     * Modo sombra: además del camino elegido se ejecuta el otro y se registra si coinciden. Si el elegido
+     * es el local, Gemini se llama en segundo plano para no retrasar la respuesta. Las comparaciones en
+     * las que Gemini ha fallado y ha respondido la IA local no cuentan.
+     */
+    private List<Task> extractInShadowMode(String text, String context, ExtractionRouter.Decision decision,
+                                           Urgency urgency) {
+        List<Task> local = extractTasksLocally(text, context);
+        if (decision.route() == Route.LOCAL) {
+            List<Task> localCopy = TaskResultCache.copyOf(local);
+            // La comparación no tiene prisa: cede la cuota al resto de llamadas
+            chunkExecutor.submit(() -> compareShadow(decision, localCopy,
+                extractTasksWithGemini(text, context, Urgency.BACKGROUND)));
+            return local;
+        }
+        ChunkExtraction gemini = extractTasksWithGemini(text, context, urgency);
+        compareShadow(decision, local, gemini);
+        return gemini.tasks();
+    }
+    
+    private void compareShadow(ExtractionRouter.Decision decision, List<Task> local, ChunkExtraction gemini) {
+        if (!gemini.fromGemini()) {
+            return;
+        }
+        boolean agree = ExtractionRouter.agree(local, gemini.tasks());
+        metrics.recordShadowComparison(decision.route(), agree);
+        if (!agree && routerLogDecisions) {
+            System.out.println("Extraction router shadow disagreement: " + decision
+                + " localTasks=" + local.size() + " geminiTasks=" + gemini.tasks().size());
+        }
+    }
+    
+    private ChunkExtraction extractTasksWithGemini(String text, String context, Urgency urgency) {
+        List<Task> cached = resultCache.get(text, context);
+        if (cached != null) {
+            return new ChunkExtraction(cached, true);
+        }
+        
+        // Peticiones idénticas simultáneas comparten una sola llamada a Gemini
+        ExtractionKey key = new ExtractionKey(TaskResultCache.normalize(text), context);
+        return extractionFlights.execute(key, () -> {
+            List<String> chunks = TextChunker.split(text, Math.max(1, chunkMaxChars));
+            if (chunks.size() == 1) {
+                ChunkExtraction extraction = extractChunk(text, context, urgency);
+                if (extraction.fromGemini()) {
+                    resultCache.put(text, context, extraction.tasks());
+                }
+                return extraction;
+            }
+            
+            List<ChunkExtraction> extractions = extractChunks(chunks, context, urgency);
+            List<Task> tasks = mergeChunkTasks(extractions);
+            boolean fromGemini = extractions.stream().allMatch(ChunkExtraction::fromGemini);
+            if (fromGemini) {
+                resultCache.put(text, context, tasks);
+            }
+            return new ChunkExtraction(tasks, fromGemini);
+        });
+    }
+    
+    /**
+     * Extrae las tareas de un trozo con Gemini; ante cualquier fallo ese trozo se resuelve con la IA local.
+     */
+    private ChunkExtraction extractChunk(String text, String context, Urgency urgency) {
+        String response = null;
         try {
+            long start = System.nanoTime();
             String prompt = buildExtractionPrompt(text, context);
-            String response = callGeminiAPI(prompt);
-            return parseTasksFromResponse(response, context);
+            metrics.recordStage(Stage.PROMPT_BUILD, start);
+            response = callGeminiAPI(prompt, urgency);
+            return new ChunkExtraction(parseTasksFromResponse(response, context), true);
         } catch (Exception e) {
             System.err.println("Error calling Gemini API: " + e.getMessage());
             // Fallback a IA local en caso de error
-            return extractTasksLocally(text, context);
+            metrics.recordFallback(Operation.EXTRACTION,
+                response == null ? ExtractionMetrics.callFailureReason(e) : FallbackReason.PARSE_ERROR);
+            return new ChunkExtraction(extractTasksLocally(text, context), false);
+        }
+    }
+    
+    /**
+     * Procesa los trozos de un texto largo en paralelo con un máximo de chunkMaxConcurrency llamadas
+     * a la vez. El resultado conserva el orden de los trozos en el texto original.
+     */
+    private List<ChunkExtraction> extractChunks(List<String> chunks, String context, Urgency urgency) {
+        Semaphore permits = new Semaphore(Math.max(1, chunkMaxConcurrency));
+        List<Future<ChunkExtraction>> futures = new ArrayList<>(chunks.size());
+        for (String chunk : chunks) {
+            futures.add(chunkExecutor.submit(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    return extractChunk(chunk, context, urgency);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+        
+        List<ChunkExtraction> extractions = new ArrayList<>(chunks.size());
+        boolean interrupted = false;
+        for (int i = 0; i < futures.size(); i++) {
+            ChunkExtraction extraction = null;
+            if (!interrupted) {
+                try {
+                    extraction = futures.get(i).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    System.err.println("Error extracting chunk with Gemini: " + e.getCause().getMessage());
+                }
+            }
+            extractions.add(extraction != null
+                ? extraction
+                : new ChunkExtraction(extractTasksLocally(chunks.get(i), context), false));
+        }
+        return extractions;
+    }
+    
+    /**
+     * Une las tareas de todos los trozos en orden y descarta las repetidas entre trozos (mismo título
+     * normalizado): se queda la primera aparición y, si no tenía fecha, toma la de la repetida.
+     */
+    private static List<Task> mergeChunkTasks(List<ChunkExtraction> extractions) {
+        Map<String, Task> byTitle = new LinkedHashMap<>();
+        for (ChunkExtraction extraction : extractions) {
+            for (Task task : extraction.tasks()) {
+                String title = TaskResultCache.normalize(task.getTitle()).toLowerCase(Locale.ROOT);
+                Task first = byTitle.putIfAbsent(title, task);
+                if (first != null && first.getDueDate() == null) {
+                    first.setDueDate(task.getDueDate());
+                }
+            }
+        }
+        return new ArrayList<>(byTitle.values());
+    }
+    
+    public Map<String, Object> getCoalescingStats() {
+        return extractionFlights.getStats();
+    }
+    
+    public Map<String, Object> getQuotaStats() {
+        return quotaScheduler.getStats();
+    }
+    
+    public Map<String, Object> getRouterStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", routerEnabled);
+        stats.put("threshold", routerThreshold);
+        stats.put("shadowSampleRate", routerShadowSampleRate);
+        long local = metrics.routeCount(Route.LOCAL);
+        long gemini = metrics.routeCount(Route.GEMINI);
+        stats.put("localDecisions", local);
+        stats.put("geminiDecisions", gemini);
+        stats.put("localShare", local + gemini == 0 ? 0.0 : (double) local / (local + gemini));
+        for (Route route : Route.values()) {
+            long agree = metrics.shadowCount(route, true);
+            long disagree = metrics.shadowCount(route, false);
+            String prefix = "shadow" + (route == Route.LOCAL ? "Local" : "Gemini");
+            stats.put(prefix + "Agree", agree);
+            stats.put(prefix + "Disagree", disagree);
+            stats.put(prefix + "DisagreementRate", agree + disagree == 0 ? 0.0 : (double) disagree / (agree + disagree));
+        }
+        return stats;
+    }
+    
+    /**
+     * Variante en streaming: entrega cada tarea al consumidor en cuanto su objeto JSON
+     * está completo en la respuesta de Gemini. El fallback local entrega frase a frase.
+     * Si Gemini falla después de haber entregado alguna tarea se lanza IllegalStateException;
+     * las excepciones del consumidor se propagan tal cual.
+     */
+    public void streamTasksFromText(String text, String context, Consumer<Task> consumer) {
+        if (apiKey.isEmpty()) {
+            metrics.recordFallback(Operation.EXTRACTION, FallbackReason.NO_API_KEY);
+            extractTasksLocally(text, context, consumer);
+            return;
+        }
+        
+        // En streaming no hay modo sombra: solo se respeta la decisión del enrutador
+        if (routerEnabled && route(text).route() == Route.LOCAL) {
+            extractTasksLocally(text, context, consumer);
+            return;
+        }
+        
+        List<Task> cached = resultCache.get(text, context);
+        if (cached != null) {
+            cached.forEach(consumer);
+            return;
+        }
+        
+        List<Task> emitted = new ArrayList<>();
+        boolean[] responded = new boolean[1];
+        try {
+            long start = System.nanoTime();
+            String prompt = buildExtractionPrompt(text, context);
+            metrics.recordStage(Stage.PROMPT_BUILD, start);
+            JsonArrayElementSplitter splitter = new JsonArrayElementSplitter(element -> {
+                responded[0] = true;
+                Task task = responseParser.parseElement(element.toCharArray(), 0, element.length(), context);
+                if (task != null) {
+                    emitted.add(task);
+                    consumer.accept(task);
+                }
+            });
+            callGeminiStreamingAPI(prompt, splitter::feed);
+            if (splitter.isComplete()) {
+                resultCache.put(text, context, emitted);
+            }
+        } catch (DownstreamException e) {
+            // Ha fallado quien recibe las tareas (p. ej. el cliente se ha desconectado): no hay fallback posible
+            throw e.getCause();
+        } catch (Exception e) {
+            System.err.println("Error streaming from Gemini API: " + e.getMessage());
+            // Solo se recurre a la IA local si todavía no se ha enviado ninguna tarea;
+            // si no, el llamador debe saber que la lista que ha recibido está incompleta
+            if (!emitted.isEmpty()) {
+                throw new IllegalStateException("La respuesta de Gemini se interrumpió tras " + emitted.size()
+                    + " tareas: " + e.getMessage(), e);
+            }
+            metrics.recordFallback(Operation.EXTRACTION,
+                responded[0] ? FallbackReason.PARSE_ERROR : ExtractionMetrics.callFailureReason(e));
+            extractTasksLocally(text, context, consumer);
+        }
+    }
+    
+    /**
+     * Extrae tareas de varios documentos agrupándolos en el menor número de llamadas a Gemini.
+     * Devuelve una lista de resultados en el mismo orden que los documentos recibidos.
+     */
+    public List<List<Task>> extractTasksFromTexts(List<TextAnalysisRequest> documents) {
+        List<List<Task>> results = new ArrayList<>(documents.size());
+        if (apiKey.isEmpty()) {
+            for (TextAnalysisRequest document : documents) {
+                metrics.recordFallback(Operation.EXTRACTION, FallbackReason.NO_API_KEY);
+                results.add(extractTasksLocally(document.getText(), document.getContext()));
+            }
+            recordTasksPerRequest(results);
+            return results;
+        }
+        
+        // Solo se envían a Gemini los documentos que no están en caché
+        List<TextAnalysisRequest> pending = new ArrayList<>();
+        List<Integer> pendingIndexes = new ArrayList<>();
+        for (int i = 0; i < documents.size(); i++) {
+            TextAnalysisRequest document = documents.get(i);
+            List<Task> cached = resultCache.get(document.getText(), document.getContext());
+            results.add(cached);
+            if (cached == null) {
+                pending.add(document);
+                pendingIndexes.add(i);
+            }
+        }
+        
+        // Empaquetar tantos documentos como quepan en cada prompt
+        int from = 0;
+        while (from < pending.size()) {
+            int to = from;
+            int promptChars = 0;
+            while (to < pending.size() && to - from < batchMaxDocuments) {
+                String text = pending.get(to).getText();
+                int length = text != null ? text.length() : 0;
+                if (to > from && promptChars + length > batchMaxPromptChars) {
+                    break;
+                }
+                promptChars += length;
+                to++;
+            }
+            
+            Map<String, List<Task>> parsed = Map.of();
+            // Motivo por el que un documento del lote acaba en la IA local si no tiene respuesta
+            FallbackReason missingReason = FallbackReason.PARSE_ERROR;
+            String response = null;
+            try {
+                long start = System.nanoTime();
+                String prompt = buildBatchExtractionPrompt(pending, from, to);
+                metrics.recordStage(Stage.PROMPT_BUILD, start);
+                response = callGeminiAPI(prompt, batchMaxOutputTokens, Urgency.NORMAL);
+                parsed = parseBatchTasksFromResponse(response, pending, from, to);
+            } catch (Exception e) {
+                System.err.println("Error calling Gemini API (batch): " + e.getMessage());
+                if (response == null) {
+                    missingReason = ExtractionMetrics.callFailureReason(e);
+                }
+            }
+            
+            // Cada documento sin respuesta válida se resuelve por separado con la IA local
+            for (int i = from; i < to; i++) {
+                TextAnalysisRequest document = pending.get(i);
+                List<Task> tasks = parsed.get(documentId(i));
+                if (tasks != null) {
+                    resultCache.put(document.getText(), document.getContext(), tasks);
+                } else {
+                    metrics.recordFallback(Operation.EXTRACTION, missingReason);
+                    tasks = extractTasksLocally(document.getText(), document.getContext());
+                }
+                results.set(pendingIndexes.get(i), tasks);
+            }
+            from = to;
+        }
+        
+        recordTasksPerRequest(results);
+        return results;
+    }
+    
+    private void recordTasksPerRequest(List<List<Task>> results) {
+        for (List<Task> tasks : results) {
+            metrics.recordTasksPerRequest(tasks.size());
         }
     }
     
     public Priority analyzePriority(Task task, String context) {
+        if (priorityClassifier.isLoaded()) {
+            // El modelo entrenado offline sustituye a la llamada por tarea
+            return analyzeLocalPriority(task, context);
+        }
         if (apiKey.isEmpty()) {
             // Fallback a análisis local
+            metrics.recordFallback(Operation.PRIORITY, FallbackReason.NO_API_KEY);
             return analyzeLocalPriority(task, context);
         }
         
         try {
+            long start = System.nanoTime();
             String prompt = buildPriorityPrompt(task, context);
-            String response = callGeminiAPI(prompt);
+            metrics.recordStage(Stage.PROMPT_BUILD, start);
+            String response = callGeminiAPI(prompt, Urgency.INTERACTIVE);
             return parsePriorityFromResponse(response);
         } catch (Exception e) {
             System.err.println("Error analyzing priority with Gemini: " + e.getMessage());
+            metrics.recordFallback(Operation.PRIORITY, ExtractionMetrics.callFailureReason(e));
             return analyzeLocalPriority(task, context);
         }
     }
+    
+    /**
+     * Prioriza varias tareas con un prompt por bloque (id -> prioridad) en lugar de una llamada por tarea.
+     * Los bloques se procesan en paralelo con un máximo de priorityMaxConcurrency a la vez.
+     * Las entradas que falten o no se puedan interpretar se resuelven con el análisis local.
+     */
+    public List<Priority> analyzePriorities(List<Task> tasks, String context) {
+        if (priorityClassifier.isLoaded()) {
+            // El modelo entrenado offline sustituye a Gemini
+            List<Priority> result = new ArrayList<>(tasks.size());
+            for (Task task : tasks) {
+                result.add(analyzeLocalPriority(task, context));
+            }
+            return result;
+        }
+        
+        Priority[] priorities = new Priority[tasks.size()];
+        
+        if (apiKey.isEmpty()) {
+            metrics.recordFallback(Operation.PRIORITY, FallbackReason.NO_API_KEY);
+        } else if (!tasks.isEmpty()) {
+            Semaphore permits = new Semaphore(Math.max(1, priorityMaxConcurrency));
+            int chunkSize = Math.max(1, priorityChunkSize);
+            List<Future<?>> chunks = new ArrayList<>();
+            for (int from = 0; from < tasks.size(); from += chunkSize) {
+                int chunkFrom = from;
+                int chunkTo = Math.min(tasks.size(), from + chunkSize);
+                chunks.add(chunkExecutor.submit(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        scorePriorityChunk(tasks, chunkFrom, chunkTo, context, priorities);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            
+            for (Future<?> chunk : chunks) {
+                try {
+                    chunk.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    System.err.println("Error analyzing priorities with Gemini: " + e.getCause().getMessage());
+                }
+            }
+        }
+        
+        List<Priority> result = new ArrayList<>(priorities.length);
+        for (int i = 0; i < priorities.length; i++) {
+            result.add(priorities[i] != null ? priorities[i] : analyzeLocalPriority(tasks.get(i), context));
+        }
+        return result;
+    }
+    
+    private void scorePriorityChunk(List<Task> tasks, int from, int to, String context, Priority[] priorities) {
+        String response = null;
+        try {
+            long promptStart = System.nanoTime();
+            String prompt = buildBatchPriorityPrompt(tasks, from, to, context);
+            metrics.recordStage(Stage.PROMPT_BUILD, promptStart);
+            response = callGeminiAPI(prompt, 16 * (to - from) + 64, Urgency.NORMAL);
+            
+            String json = stripCodeFence(response);
+            int start = json.indexOf('{');
+            if (start < 0) {
+                metrics.recordFallback(Operation.PRIORITY, FallbackReason.PARSE_ERROR);
+                return;
+            }
+            JsonNode root = objectMapper.readTree(json.substring(start));
+            for (int i = from; i < to; i++) {
+                JsonNode value = root.get(taskId(i));
+                if (value != null && value.isTextual()) {
+                    try {
+                        priorities[i] = Priority.valueOf(value.asText().trim().toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        // Queda sin asignar y se usa el análisis local
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Error analyzing priority batch with Gemini: " + e.getMessage());
+            metrics.recordFallback(Operation.PRIORITY,
+                response == null ? ExtractionMetrics.callFailureReason(e) : FallbackReason.PARSE_ERROR);
+        }
+    }
 
     private String buildExtractionPrompt(String text, String context) {
         return String.format("""
@@ -94,11 +608,57 @@ public class GeminiAIService {
             %s
             """, 
             getContextDescription(context),
-            LocalDate.now().format(DateTimeFormatter.ISO_LOCAL_DATE),
+            dateParser.today().format(DateTimeFormatter.ISO_LOCAL_DATE),
             text
         );
     }
     
+    private String buildBatchExtractionPrompt(List<TextAnalysisRequest> documents, int from, int to) {
+        StringBuilder docs = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            TextAnalysisRequest document = documents.get(i);
+            docs.append("### DOCUMENTO ").append(documentId(i)).append('\n')
+                .append("Contexto del usuario: ").append(getContextDescription(document.getContext())).append('\n')
+                .append(document.getText() != null ? document.getText() : "").append("\n\n");
+        }
+        
+        return String.format("""
+            Analiza cada uno de los siguientes documentos y extrae todas las tareas que encuentres en cada uno.
+            
+            Devuelve SOLO un objeto JSON válido cuyas claves sean los identificadores de documento
+            y cuyos valores sean la lista de tareas de ese documento, con este formato exacto:
+            {
+              "d0": [
+                {
+                  "title": "título de la tarea",
+                  "description": "descripción opcional",
+                  "dueDate": "YYYY-MM-DD o null",
+                  "priority": "CRITICA|ALTA|MEDIA|BAJA"
+                }
+              ]
+            }
+            
+            Reglas:
+            - Solo devuelve el JSON, sin texto adicional
+            - Incluye todos los identificadores, con lista vacía si un documento no tiene tareas
+            - Prioridad CRITICA: exámenes, deadlines urgentes, emergencias
+            - Prioridad ALTA: reuniones importantes, proyectos con fecha próxima
+            - Prioridad MEDIA: tareas regulares con fecha
+            - Prioridad BAJA: tareas opcionales o sin fecha límite
+            - Para fechas relativas (hoy, mañana), usa la fecha actual: %s
+            
+            Documentos a analizar:
+            %s
+            """,
+            dateParser.today().format(DateTimeFormatter.ISO_LOCAL_DATE),
+            docs
+        );
+    }
+    
+    private static String documentId(int index) {
+        return "d" + index;
+    }
+    
     private String buildPriorityPrompt(Task task, String context) {
         return String.format("""
             Analiza la prioridad de esta tarea según el contexto del usuario.
@@ -123,7 +683,45 @@ public class GeminiAIService {
         );
     }
     
+    private String buildBatchPriorityPrompt(List<Task> tasks, int from, int to, String context) {
+        StringBuilder list = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            Task task = tasks.get(i);
+            list.append(taskId(i)).append(": ").append(task.getTitle())
+                .append(" | Descripción: ").append(task.getDescription() != null ? task.getDescription() : "Sin descripción")
+                .append(" | Fecha límite: ").append(task.getDueDate() != null ? task.getDueDate().toString() : "Sin fecha")
+                .append('\n');
+        }
+        
+        return String.format("""
+            Analiza la prioridad de cada una de estas tareas según el contexto del usuario.
+            
+            Contexto del usuario: %s
+            
+            Tareas:
+            %s
+            Devuelve SOLO un objeto JSON que asigne a cada identificador una de estas opciones:
+            CRITICA, ALTA, MEDIA, BAJA. Ejemplo: {"t0": "ALTA", "t1": "BAJA"}
+            
+            Reglas:
+            - CRITICA: exámenes, emergencias, deadlines críticos
+            - ALTA: reuniones importantes, proyectos urgentes
+            - MEDIA: tareas con fecha próxima
+            - BAJA: tareas opcionales o sin urgencia
+            """,
+            getContextDescription(context),
+            list
+        );
+    }
+    
+    private static String taskId(int index) {
+        return "t" + index;
+    }
+    
     private String getContextDescription(String context) {
+        if (context == null) {
+            return getContextDescription("mixed");
+        }
         return switch (context) {
             case "student" -> "Estudiante universitario (priorizar exámenes, proyectos académicos)";
             case "work" -> "Profesional (priorizar reuniones, deadlines laborales)";
@@ -132,9 +730,160 @@ public class GeminiAIService {
         };
     }
 
-    private String callGeminiAPI(String prompt) throws Exception {
-        String url = "https://generativelanguage.googleapis.com/v1beta/models/gemini-1.5-flash-latest:generateContent?key=" + apiKey;
+    private String callGeminiAPI(String prompt, Urgency urgency) throws Exception {
+        return callGeminiAPI(prompt, 1000, urgency);
+    }
+    
+    private String callGeminiAPI(String prompt, int maxOutputTokens, Urgency urgency) throws Exception {
+        // Con el circuito abierto se falla al instante, sin esperar a la red
+        GeminiCircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            throw new GeminiCircuitBreaker.CircuitOpenException();
+        }
+        
+        try {
+            String text = quotaScheduler.execute(apiKeys(), urgency, estimateTokens(prompt, maxOutputTokens), lease -> {
+                metrics.recordStage(Stage.QUOTA_WAIT, lease.queuedAt());
+                long start = System.nanoTime();
+                try {
+                    return executeGeminiRequest(prompt, maxOutputTokens, lease);
+                } finally {
+                    metrics.recordStage(Stage.GEMINI_CALL, start);
+                }
+            });
+            circuitBreaker.onSuccess(permit);
+            return text;
+        } catch (GeminiQuotaScheduler.QuotaExhaustedException e) {
+            // Gemini no ha fallado: ni siquiera se le ha llamado
+            circuitBreaker.release(permit);
+            throw e;
+        } catch (Exception e) {
+            circuitBreaker.onFailure(permit);
+            throw e;
+        }
+    }
+    
+    private void callGeminiStreamingAPI(String prompt, Consumer<String> textConsumer) throws Exception {
+        GeminiCircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            throw new GeminiCircuitBreaker.CircuitOpenException();
+        }
         
+        Map<String, Object> content = buildGeminiPayload(prompt, 1000);
+        
+        try {
+            // Un 429 llega antes del cuerpo, así que reintentar no repite fragmentos ya entregados
+            quotaScheduler.execute(apiKeys(), Urgency.INTERACTIVE, estimateTokens(prompt, 1000), lease -> {
+                metrics.recordStage(Stage.QUOTA_WAIT, lease.queuedAt());
+                String url = apiBaseUrl + "/v1beta/models/" + model + ":streamGenerateContent?alt=sse&key=" + lease.key();
+                return restTemplate.execute(url, HttpMethod.POST,
+                    request -> {
+                        request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                        objectMapper.writeValue(request.getBody(), content);
+                    },
+                    response -> {
+                        // Cada evento SSE "data: {...}" trae un fragmento del texto generado
+                        BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(response.getBody(), StandardCharsets.UTF_8));
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            if (line.startsWith("data:")) {
+                                JsonNode event = objectMapper.readTree(line.substring(5).trim());
+                                reportUsage(event, lease);
+                                String fragment = extractCandidateText(event);
+                                if (fragment != null) {
+                                    deliver(textConsumer, fragment);
+                                }
+                            }
+                        }
+                        return null;
+                    });
+            });
+            circuitBreaker.onSuccess(permit);
+        } catch (GeminiQuotaScheduler.QuotaExhaustedException e) {
+            circuitBreaker.release(permit);
+            throw e;
+        } catch (DownstreamException e) {
+            // El cliente ha cortado la conexión: Gemini seguía respondiendo bien
+            circuitBreaker.release(permit);
+            throw e;
+        } catch (Exception e) {
+            circuitBreaker.onFailure(permit);
+            throw e;
+        }
+    }
+    
+    private static void deliver(Consumer<String> textConsumer, String fragment) {
+        try {
+            textConsumer.accept(fragment);
+        } catch (RuntimeException e) {
+            throw new DownstreamException(e);
+        }
+    }
+    
+    /**
+     * Fallo de quien consume el streaming (p. ej. el cliente HTTP se ha desconectado), no de Gemini.
+     */
+    private static class DownstreamException extends RuntimeException {
+        DownstreamException(RuntimeException cause) {
+            super(cause.getMessage(), cause, false, false);
+        }
+        
+        @Override
+        public synchronized RuntimeException getCause() {
+            return (RuntimeException) super.getCause();
+        }
+    }
+    
+    private String executeGeminiRequest(String prompt, int maxOutputTokens, GeminiQuotaScheduler.Lease lease)
+        throws Exception {
+        String url = apiBaseUrl + "/v1beta/models/" + model + ":generateContent?key=" + lease.key();
+        Map<String, Object> content = buildGeminiPayload(prompt, maxOutputTokens);
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(content, headers);
+        
+        var response = restTemplate.exchange(url, HttpMethod.POST, request, String.class);
+        
+        // Parsear respuesta de Gemini
+        JsonNode jsonResponse = objectMapper.readTree(response.getBody());
+        reportUsage(jsonResponse, lease);
+        String text = extractCandidateText(jsonResponse);
+        if (text != null) {
+            return text;
+        }
+        
+        throw new Exception("No se pudo obtener respuesta válida de Gemini");
+    }
+    
+    /**
+     * gemini.api.key admite varias claves separadas por comas; el planificador de cuota las usa por turnos.
+     */
+    private List<String> apiKeys() {
+        List<String> keys = new ArrayList<>();
+        for (String key : apiKey.split(",")) {
+            if (!key.isBlank()) {
+                keys.add(key.trim());
+            }
+        }
+        return keys;
+    }
+    
+    // Unos 4 caracteres por token de entrada, más el máximo de salida; se corrige con usageMetadata
+    private static long estimateTokens(String prompt, int maxOutputTokens) {
+        return prompt.length() / 4 + maxOutputTokens;
+    }
+    
+    private static void reportUsage(JsonNode jsonResponse, GeminiQuotaScheduler.Lease lease) {
+        JsonNode usage = jsonResponse.get("usageMetadata");
+        if (usage != null && usage.has("totalTokenCount")) {
+            lease.reportUsage(usage.get("totalTokenCount").asLong());
+        }
+    }
+    
+    private Map<String, Object> buildGeminiPayload(String prompt, int maxOutputTokens) {
         // Preparar el payload para Gemini
         Map<String, Object> content = new HashMap<>();
         Map<String, Object> part = new HashMap<>();
@@ -148,19 +897,14 @@ public class GeminiAIService {
         // Configuración de generación
         Map<String, Object> generationConfig = new HashMap<>();
         generationConfig.put("temperature", 0.1);
-        generationConfig.put("maxOutputTokens", 1000);
+        generationConfig.put("maxOutputTokens", maxOutputTokens);
         
         content.put("generationConfig", generationConfig);
         
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(content, headers);
-        
-        var response = restTemplate.exchange(url, HttpMethod.POST, request, String.class);
-        
-        // Parsear respuesta de Gemini
-        JsonNode jsonResponse = objectMapper.readTree(response.getBody());
+        return content;
+    }
+    
+    private String extractCandidateText(JsonNode jsonResponse) {
         JsonNode candidates = jsonResponse.get("candidates");
         
         if (candidates != null && candidates.size() > 0) {
@@ -168,68 +912,55 @@ public class GeminiAIService {
             JsonNode content_response = firstCandidate.get("content");
             if (content_response != null) {
                 JsonNode parts = content_response.get("parts");
-                if (parts != null && parts.size() > 0) {
+                if (parts != null && parts.size() > 0 && parts.get(0).has("text")) {
                     return parts.get(0).get("text").asText();
                 }
             }
         }
         
-        throw new Exception("No se pudo obtener respuesta válida de Gemini");
+        return null;
     }
     
-    private List<Task> parseTasksFromResponse(String response, String context) {
-        List<Task> tasks = new ArrayList<>();
-        
+    private List<Task> parseTasksFromResponse(String response, String context) throws IOException {
+        // Si no hay array se propaga el error y el llamador usa la IA local sobre el texto original
+        long start = System.nanoTime();
         try {
-            // Limpiar la respuesta para extraer solo el JSON
-            String jsonStr = response.trim();
-            if (jsonStr.startsWith("```json")) {
-                jsonStr = jsonStr.substring(7);
-            }
-            if (jsonStr.endsWith("```")) {
-                jsonStr = jsonStr.substring(0, jsonStr.length() - 3);
-            }
-            jsonStr = jsonStr.trim();
-            
-            JsonNode jsonArray = objectMapper.readTree(jsonStr);
-            
-            if (jsonArray.isArray()) {
-                for (JsonNode taskNode : jsonArray) {
-                    Task task = new Task();
-                    task.setTitle(taskNode.get("title").asText());
-                    
-                    if (taskNode.has("description") && !taskNode.get("description").isNull()) {
-                        task.setDescription(taskNode.get("description").asText());
-                    }
-                    
-                    if (taskNode.has("dueDate") && !taskNode.get("dueDate").isNull()) {
-                        String dateStr = taskNode.get("dueDate").asText();
-                        if (!dateStr.equals("null")) {
-                            task.setDueDate(LocalDate.parse(dateStr));
-                        }
-                    }
-                    
-                    if (taskNode.has("priority")) {
-                        String priorityStr = taskNode.get("priority").asText();
-                        task.setPriority(Priority.valueOf(priorityStr));
-                    } else {
-                        task.setPriority(Priority.MEDIA);
-                    }
-                    
-                    task.setCompleted(false);
-                    task.setContext(context);
-                    task.setCategory(context != null ? context : "general");
-                    
-                    tasks.add(task);
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error parsing Gemini response: " + e.getMessage());
-            // Fallback a extracción local
-            return extractTasksLocally(response, context);
+            return responseParser.parse(response, context);
+        } finally {
+            metrics.recordStage(Stage.RESPONSE_PARSE, start);
+        }
+    }
+    
+    private Map<String, List<Task>> parseBatchTasksFromResponse(String response, List<TextAnalysisRequest> documents,
+                                                                int from, int to) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return parseBatchEntries(response, documents, from, to);
+        } finally {
+            metrics.recordStage(Stage.RESPONSE_PARSE, start);
         }
-        
-        return tasks;
+    }
+    
+    private Map<String, List<Task>> parseBatchEntries(String response, List<TextAnalysisRequest> documents,
+                                                      int from, int to) throws IOException {
+        // Un documento mal formado o truncado no invalida a los que ya se han leído completos
+        Map<String, String> contexts = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            contexts.put(documentId(i), documents.get(i).getContext());
+        }
+        return responseParser.parseBatch(response, contexts);
+    }
+    
+    private String stripCodeFence(String response) {
+        // Limpiar la respuesta para extraer solo el JSON
+        String jsonStr = response.trim();
+        if (jsonStr.startsWith("```json")) {
+            jsonStr = jsonStr.substring(7);
+        }
+        if (jsonStr.endsWith("```")) {
+            jsonStr = jsonStr.substring(0, jsonStr.length() - 3);
+        }
+        return jsonStr.trim();
     }
     
     private Priority parsePriorityFromResponse(String response) {
@@ -253,45 +984,44 @@ public class GeminiAIService {
     
     // Métodos de fallback para IA local
     private List<Task> extractTasksLocally(String text, String context) {
+        long start = System.nanoTime();
         List<Task> tasks = new ArrayList<>();
-        
-        System.out.println("DEBUG: Executing extractTasksLocally with text: " + text);
-        System.out.println("DEBUG: Context: " + context);
-        
+        extractTasksLocally(text, context, tasks::add);
+        metrics.recordStage(Stage.LOCAL_EXTRACTION, start);
+        return tasks;
+    }
+    
+    private void extractTasksLocally(String text, String context, Consumer<Task> consumer) {
         // Dividir por puntos Y saltos de línea para mejor detección
-        String[] sentences = text.split("[.!?\\n\\r]+");
+        String[] sentences = SENTENCE_BOUNDARY.split(text);
         for (String sentence : sentences) {
             sentence = sentence.trim();
             
             if (sentence.length() < 8) continue; // Ignorar frases muy cortas
             
-            // Patrones expandidos para detectar tareas
-            boolean isTask = false;
+            String lowerSentence = sentence.toLowerCase();
             String taskTitle = sentence;
+            int titleMatches;
             
             // Patrones de listas tradicionales
-            if (sentence.matches("^[-*•]\\s*.+") || sentence.matches("^\\d+[.):]\\s*.+")) {
-                taskTitle = sentence.replaceFirst("^[-*•\\d.):]+\\s*", "").trim();
-                isTask = true;
-            }
-            // Patrones de acción directa
-            else if (sentence.toLowerCase().matches(".*(debe|tiene que|necesita|hay que|tengo que|tienes que).*")) {
-                isTask = true;
-            }
-            // Verbos de acción al inicio
-            else if (sentence.toLowerCase().matches("^(hacer|revisar|enviar|llamar|comprar|estudiar|reunir|contactar|completar|terminar|preparar|organizar|planificar|coordinar|inscribir|pagar|limpiar|cambiar|agendar|actualizar|documentar|ejecutar|restaurar|identificar|corregir).*")) {
-                isTask = true;
-            }
-            // Patrones de obligación en español
-            else if (sentence.toLowerCase().matches(".*(antes del|antes de|para el|para hoy|urgente|importante|deadline|fecha límite).*")) {
-                isTask = true;
-            }
-            // Patrones de nombres + acción
-            else if (sentence.toLowerCase().matches("^[a-záéíóúü]+\\s+(debe|tiene|necesita|va a).*")) {
-                isTask = true;
+            int titleStart = TaskPatternMatcher.listItemTitleStart(sentence);
+            if (titleStart >= 0) {
+                taskTitle = sentence.substring(titleStart);
+                titleMatches = lowerSentence.length() == sentence.length()
+                    ? patternMatcher.scan(lowerSentence, titleStart, lowerSentence.length())
+                    : patternMatcher.scan(taskTitle.toLowerCase());
+            } else {
+                // Una sola pasada para obligaciones, plazos y prioridad
+                titleMatches = patternMatcher.scan(lowerSentence);
+                boolean isTask = (titleMatches & (TaskPatternMatcher.OBLIGATION | TaskPatternMatcher.DEADLINE)) != 0
+                    || (patternMatcher.scanPrefix(lowerSentence, 0) & TaskPatternMatcher.ACTION_VERB) != 0
+                    || patternMatcher.startsWithNameAction(lowerSentence);
+                if (!isTask) continue;
             }
             
-            if (isTask && taskTitle.length() > 5) {
+            if ((titleMatches & TaskPatternMatcher.LINE_TERMINATOR) != 0) continue;
+            
+            if (taskTitle.length() > 5) {
                 Task task = new Task();
                 task.setTitle(taskTitle);
                 task.setCompleted(false);
@@ -299,63 +1029,30 @@ public class GeminiAIService {
                 task.setCategory(context != null ? context : "general");
                 
                 // Detectar fechas en el texto
-                LocalDate dueDate = extractDateFromText(taskTitle);
-                task.setDueDate(dueDate);
+                task.setDueDate(dateParser.parse(taskTitle));
                 
                 // Analizar prioridad
-                task.setPriority(analyzeLocalPriority(task, context));
+                task.setPriority(priorityClassifier.isLoaded()
+                    ? priorityClassifier.classify(taskTitle, null, context)
+                    : TaskPatternMatcher.priority(titleMatches));
                 
-                tasks.add(task);
-                System.out.println("DEBUG: Task extracted: " + taskTitle);
+                consumer.accept(task);
             }
         }
-        
-        System.out.println("DEBUG: Total tasks extracted: " + tasks.size());
-        return tasks;
     }
     
-    private LocalDate extractDateFromText(String text) {
-        String lowerText = text.toLowerCase();
-        LocalDate today = LocalDate.now();
-        
-        if (lowerText.contains("hoy")) {
-            return today;
-        } else if (lowerText.contains("mañana")) {
-            return today.plusDays(1);
-        } else if (lowerText.contains("viernes") && lowerText.contains("19")) {
-            return LocalDate.of(2025, 7, 19);
-        } else if (lowerText.contains("lunes") && lowerText.contains("22")) {
-            return LocalDate.of(2025, 7, 22);
-        } else if (lowerText.contains("miércoles")) {
-            return today.plusDays((3 - today.getDayOfWeek().getValue() + 7) % 7);
-        } else if (lowerText.contains("antes del") || lowerText.contains("para el")) {
-            // Aquí podrías agregar más lógica de parsing de fechas
-            return null;
+    private Priority analyzeLocalPriority(Task task, String context) {
+        if (priorityClassifier.isLoaded()) {
+            return priorityClassifier.classify(task.getTitle(), task.getDescription(), context);
         }
-        
-        return null;
+        String text = (task.getTitle() + " " + (task.getDescription() != null ? task.getDescription() : "")).toLowerCase();
+        return TaskPatternMatcher.priority(patternMatcher.scan(text));
     }
     
-    private Priority analyzeLocalPriority(Task task, String context) {
-        String text = (task.getTitle() + " " + (task.getDescription() != null ? task.getDescription() : "")).toLowerCase();
-        
-        // Palabras clave para prioridad crítica
-        if (text.contains("urgente") || text.contains("examen") || text.contains("emergencia") || 
-            text.contains("crítico") || text.contains("deadline")) {
-            return Priority.CRITICA;
-        }
-        
-        // Palabras clave para prioridad alta
-        if (text.contains("importante") || text.contains("reunión") || text.contains("cliente") ||
-            text.contains("proyecto") || text.contains("entrega")) {
-            return Priority.ALTA;
-        }
-        
-        // Palabras clave para prioridad baja
-        if (text.contains("opcional") || text.contains("cuando pueda") || text.contains("algún día")) {
-            return Priority.BAJA;
-        }
-        
-        return Priority.MEDIA;
+    // Tareas de un trozo (o del texto entero) y si salieron de Gemini o del fallback local
+    private record ChunkExtraction(List<Task> tasks, boolean fromGemini) {
+    }
+    
+    private record ExtractionKey(String normalizedText, String context) {
     }
 }
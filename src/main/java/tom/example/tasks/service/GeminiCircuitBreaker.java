@@ -0,0 +1,213 @@
+package tom.example.tasks.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Circuit breaker alrededor de las llamadas a Gemini.
+ * CLOSED: se llama normalmente y se mide la tasa de fallos en una ventana deslizante.
+ * OPEN: se rechaza sin tocar la red hasta que pasa openDuration.
+ * HALF_OPEN: se deja pasar un número limitado de llamadas de prueba; si todas van bien se cierra.
+ * Cada cambio de estado abre una nueva generación: el resultado de una llamada autorizada en una
+ * generación anterior (p. ej. una llamada lenta que termina con el circuito ya medio abierto) se ignora.
+ */
+@Component
+public class GeminiCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Autorización para una llamada, ligada a la generación del circuito en la que se concedió.
+     */
+    public record Permit(long generation) {}
+
+    private static final int MAX_TRANSITIONS = 50;
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenProbes;
+
+    // Ventana circular de resultados (true = fallo)
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+    private long rejectedCalls;
+    private final Deque<Map<String, Object>> transitions = new ArrayDeque<>();
+
+    public GeminiCircuitBreaker(@Value("${gemini.circuit.window-size:20}") int windowSize,
+                                @Value("${gemini.circuit.minimum-calls:10}") int minimumCalls,
+                                @Value("${gemini.circuit.failure-rate-threshold:50}") double failureRateThreshold,
+                                @Value("${gemini.circuit.open-duration:PT30S}") Duration openDuration,
+                                @Value("${gemini.circuit.half-open-probes:3}") int halfOpenProbes) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("gemini.circuit.window-size debe ser mayor que 0: " + windowSize);
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenProbes = halfOpenProbes;
+        this.window = new boolean[windowSize];
+    }
+
+    /**
+     * Indica si se puede llamar a Gemini: devuelve null si no. Con un permiso, el llamador debe
+     * informar el resultado con {@link #onSuccess(Permit)}, {@link #onFailure(Permit)} o {@link #release(Permit)}.
+     */
+    public synchronized Permit tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openDurationNanos) {
+                rejectedCalls++;
+                return null;
+            }
+            transitionTo(State.HALF_OPEN, "fin del tiempo de espera");
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight + probeSuccesses >= halfOpenProbes) {
+                rejectedCalls++;
+                return null;
+            }
+            probesInFlight++;
+        }
+        return new Permit(generation);
+    }
+
+    public synchronized void onSuccess(Permit permit) {
+        if (permit.generation() != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+            probeSuccesses++;
+            if (probeSuccesses >= halfOpenProbes) {
+                transitionTo(State.CLOSED, probeSuccesses + " pruebas correctas");
+            }
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure(Permit permit) {
+        if (permit.generation() != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN, "fallo en llamada de prueba");
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(true);
+            if (windowCount >= minimumCalls && getFailureRate() >= failureRateThreshold) {
+                transitionTo(State.OPEN, String.format("tasa de fallos %.1f%% en %d llamadas", getFailureRate(), windowCount));
+            }
+        }
+    }
+
+    /**
+     * La llamada autorizada no dice nada de Gemini (no había cuota o el cliente cortó el streaming):
+     * no cuenta como éxito ni como fallo, solo libera la llamada de prueba si el circuito está medio abierto.
+     */
+    public synchronized void release(Permit permit) {
+        if (permit.generation() == generation && state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state.name());
+        status.put("failureRate", getFailureRate());
+        status.put("failureRateThreshold", failureRateThreshold);
+        status.put("windowCalls", windowCount);
+        status.put("windowFailures", windowFailures);
+        status.put("rejectedCalls", rejectedCalls);
+        if (state == State.OPEN) {
+            long remaining = openDurationNanos - (System.nanoTime() - openedAt);
+            status.put("retryInMillis", Math.max(0, Duration.ofNanos(remaining).toMillis()));
+        }
+        if (state == State.HALF_OPEN) {
+            status.put("probesInFlight", probesInFlight);
+            status.put("probeSuccesses", probeSuccesses);
+        }
+        status.put("transitions", new ArrayList<>(transitions));
+        return status;
+    }
+
+    private double getFailureRate() {
+        return windowCount == 0 ? 0.0 : 100.0 * windowFailures / windowCount;
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == windowSize) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % windowSize;
+    }
+
+    private void transitionTo(State next, String reason) {
+        Map<String, Object> transition = new LinkedHashMap<>();
+        transition.put("from", state.name());
+        transition.put("to", next.name());
+        transition.put("at", Instant.now().toString());
+        transition.put("reason", reason);
+        transitions.addLast(transition);
+        if (transitions.size() > MAX_TRANSITIONS) {
+            transitions.removeFirst();
+        }
+        System.err.println("Gemini circuit breaker: " + state + " -> " + next + " (" + reason + ")");
+
+        state = next;
+        generation++;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        if (next == State.OPEN) {
+            openedAt = System.nanoTime();
+        }
+        if (next == State.CLOSED) {
+            windowIndex = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+    }
+
+    /**
+     * Rechazo inmediato mientras el circuito está abierto. Sin stack trace: es un camino habitual.
+     */
+    static class CircuitOpenException extends Exception {
+        CircuitOpenException() {
+            super("Circuito de Gemini abierto, se usa la IA local", null, false, false);
+        }
+    }
+}
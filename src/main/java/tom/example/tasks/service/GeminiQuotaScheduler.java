@@ -0,0 +1,393 @@
+package tom.example.tasks.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reparte las llamadas a Gemini entre las claves configuradas sin pasarse de su cuota.
+ * Cada clave tiene dos token buckets que se rellenan de forma continua: peticiones por minuto
+ * y tokens por minuto (0 = sin límite); burstWindow es la parte del minuto que se puede gastar de golpe.
+ * Las llamadas esperan en una cola ordenada por urgencia y, dentro de la misma urgencia, por llegada;
+ * solo la primera de la cola toma hueco, en la siguiente clave por turnos que lo tenga en los dos buckets.
+ * Un 429 bloquea la clave durante su Retry-After y la llamada vuelve a la cola; si la espera total
+ * supera maxWait o la cola está llena se lanza {@link QuotaExhaustedException} y el llamador usa la IA local.
+ */
+@Component
+public class GeminiQuotaScheduler {
+
+    public enum Urgency { INTERACTIVE, NORMAL, BACKGROUND }
+
+    private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final int requestsPerMinute;
+    private final long tokensPerMinute;
+    private final double requestsPerNano;
+    private final double tokensPerNano;
+    private final double requestCapacity;
+    private final double tokenCapacity;
+    private final long maxWaitNanos;
+    private final int maxQueued;
+    private final long defaultRetryAfterNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>();
+    private final Map<String, KeyState> keys = new LinkedHashMap<>();
+    private int nextKey;
+    private long sequence;
+    private long granted;
+    private long rateLimited;
+    private long timedOut;
+    private long rejected;
+
+    public GeminiQuotaScheduler(@Value("${gemini.quota.requests-per-minute:0}") int requestsPerMinute,
+                                @Value("${gemini.quota.tokens-per-minute:0}") long tokensPerMinute,
+                                @Value("${gemini.quota.burst-window:PT1M}") Duration burstWindow,
+                                @Value("${gemini.quota.max-wait:PT30S}") Duration maxWait,
+                                @Value("${gemini.quota.max-queued:1000}") int maxQueued,
+                                @Value("${gemini.quota.default-retry-after:PT10S}") Duration defaultRetryAfter) {
+        this.requestsPerMinute = requestsPerMinute;
+        this.tokensPerMinute = tokensPerMinute;
+        this.requestsPerNano = Math.max(0, requestsPerMinute) / NANOS_PER_MINUTE;
+        this.tokensPerNano = Math.max(0, tokensPerMinute) / NANOS_PER_MINUTE;
+        // Al menos una petición y un token de capacidad, o nada podría pasar nunca
+        this.requestCapacity = Math.max(1, requestsPerNano * burstWindow.toNanos());
+        this.tokenCapacity = Math.max(1, tokensPerNano * burstWindow.toNanos());
+        this.maxWaitNanos = maxWait.toNanos();
+        this.maxQueued = maxQueued;
+        this.defaultRetryAfterNanos = defaultRetryAfter.toNanos();
+    }
+
+    /**
+     * Ejecuta la llamada con la primera clave que tenga cuota, reintentando tras cada 429.
+     * estimatedTokens se reserva del bucket de tokens y se ajusta con lo que informe la llamada
+     * mediante {@link Lease#reportUsage(long)}.
+     */
+    <T> T execute(List<String> apiKeys, Urgency urgency, long estimatedTokens, GeminiCall<T> call) throws Exception {
+        if (apiKeys.isEmpty()) {
+            throw new IllegalArgumentException("No hay claves de Gemini configuradas");
+        }
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (true) {
+            Lease lease = acquire(apiKeys, urgency, estimatedTokens, deadline);
+            try {
+                T result = call.execute(lease);
+                release(lease);
+                return result;
+            } catch (HttpClientErrorException.TooManyRequests e) {
+                long retryAfter = retryAfterNanos(e.getResponseHeaders());
+                onRateLimited(lease, retryAfter);
+                System.err.println("Gemini rate limited key " + mask(lease.key()) + ", retrying in "
+                    + TimeUnit.NANOSECONDS.toMillis(retryAfter) + " ms");
+            } catch (Exception e) {
+                release(lease);
+                throw e;
+            }
+        }
+    }
+
+    private Lease acquire(List<String> apiKeys, Urgency urgency, long estimatedTokens, long deadline)
+        throws InterruptedException, QuotaExhaustedException {
+        lock.lock();
+        try {
+            if (queue.size() >= maxQueued) {
+                rejected++;
+                throw new QuotaExhaustedException("Cola de cuota de Gemini llena (" + maxQueued + " llamadas)");
+            }
+            // Una llamada más grande que el bucket entero no pasaría nunca
+            double tokens = tokensPerNano > 0 ? Math.min(estimatedTokens, tokenCapacity) : 0;
+            Waiter waiter = new Waiter(urgency, sequence++);
+            queue.add(waiter);
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    long waitNanos = deadline - now;
+                    if (queue.peek() == waiter) {
+                        long keyWait = Long.MAX_VALUE;
+                        for (int i = 0; i < apiKeys.size(); i++) {
+                            int index = (nextKey + i) % apiKeys.size();
+                            KeyState key = keys.computeIfAbsent(apiKeys.get(index), k -> new KeyState(k, now));
+                            key.refill(now);
+                            long wait = key.nanosUntilAvailable(tokens, now);
+                            if (wait == 0) {
+                                nextKey = (index + 1) % apiKeys.size();
+                                key.consume(tokens);
+                                granted++;
+                                return new Lease(key, tokens, waiter.queuedAt);
+                            }
+                            keyWait = Math.min(keyWait, wait);
+                        }
+                        waitNanos = Math.min(waitNanos, keyWait);
+                    }
+                    if (deadline - now <= 0) {
+                        timedOut++;
+                        throw new QuotaExhaustedException("Sin cuota de Gemini tras "
+                            + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms de espera");
+                    }
+                    waiter.turn.awaitNanos(waitNanos);
+                }
+            } finally {
+                queue.remove(waiter);
+                signalHead();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Lease lease) {
+        lock.lock();
+        try {
+            KeyState key = lease.keyState;
+            if (lease.usedTokens >= 0 && tokensPerNano > 0) {
+                key.refill(System.nanoTime());
+                // Se devuelve lo reservado de más; si se gastó más, el bucket queda en deuda
+                key.tokens = Math.min(tokenCapacity, key.tokens + lease.reservedTokens - lease.usedTokens);
+            }
+            signalHead();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onRateLimited(Lease lease, long retryAfterNanos) {
+        lock.lock();
+        try {
+            KeyState key = lease.keyState;
+            long now = System.nanoTime();
+            key.refill(now);
+            // La petición rechazada no consume tokens, pero la clave no se vuelve a usar hasta Retry-After
+            key.tokens = Math.min(tokenCapacity, key.tokens + lease.reservedTokens);
+            if (key.blockedUntil - (now + retryAfterNanos) < 0) {
+                key.blockedUntil = now + retryAfterNanos;
+            }
+            key.rateLimited++;
+            rateLimited++;
+            signalHead();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signalHead() {
+        Waiter head = queue.peek();
+        if (head != null) {
+            head.turn.signal();
+        }
+    }
+
+    /**
+     * Retry-After en segundos o como fecha HTTP; si no viene, defaultRetryAfter.
+     */
+    private long retryAfterNanos(HttpHeaders headers) {
+        String value = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (value != null) {
+            try {
+                return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(value.trim())));
+            } catch (NumberFormatException e) {
+                try {
+                    ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                    return Math.max(0, Duration.between(Instant.now(), at).toNanos());
+                } catch (DateTimeParseException ignored) {
+                    // Valor no válido: se usa el de por defecto
+                }
+            }
+        }
+        return defaultRetryAfterNanos;
+    }
+
+    public Map<String, Object> getStats() {
+        lock.lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("requestsPerMinute", requestsPerMinute);
+            stats.put("tokensPerMinute", tokensPerMinute);
+            Map<Urgency, Integer> queued = new EnumMap<>(Urgency.class);
+            for (Urgency urgency : Urgency.values()) {
+                queued.put(urgency, queued(urgency));
+            }
+            stats.put("queued", queued);
+            stats.put("granted", granted);
+            stats.put("rateLimited", rateLimited);
+            stats.put("timedOut", timedOut);
+            stats.put("rejected", rejected);
+
+            long now = System.nanoTime();
+            List<Map<String, Object>> keyStats = new ArrayList<>();
+            for (KeyState key : keys.values()) {
+                key.refill(now);
+                Map<String, Object> keyStat = new LinkedHashMap<>();
+                keyStat.put("key", mask(key.key));
+                keyStat.put("calls", key.calls);
+                keyStat.put("rateLimited", key.rateLimited);
+                if (requestsPerNano > 0) {
+                    keyStat.put("availableRequests", (long) key.requests);
+                }
+                if (tokensPerNano > 0) {
+                    keyStat.put("availableTokens", (long) key.tokens);
+                }
+                keyStat.put("blockedForMillis", TimeUnit.NANOSECONDS.toMillis(Math.max(0, key.blockedUntil - now)));
+                keyStats.add(keyStat);
+            }
+            stats.put("keys", keyStats);
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int queued(Urgency urgency) {
+        lock.lock();
+        try {
+            int count = 0;
+            for (Waiter waiter : queue) {
+                if (waiter.urgency == urgency) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Solo los últimos caracteres: las claves no deben aparecer en logs ni en /quota/stats
+    private static String mask(String key) {
+        return key.length() <= 8 ? "****" : "****" + key.substring(key.length() - 4);
+    }
+
+    @FunctionalInterface
+    interface GeminiCall<T> {
+
+        T execute(Lease lease) throws Exception;
+    }
+
+    /**
+     * Permiso para una llamada con una clave concreta.
+     */
+    final class Lease {
+
+        private final KeyState keyState;
+        private final double reservedTokens;
+        private final long queuedAt;
+        private long usedTokens = -1;
+
+        private Lease(KeyState keyState, double reservedTokens, long queuedAt) {
+            this.keyState = keyState;
+            this.reservedTokens = reservedTokens;
+            this.queuedAt = queuedAt;
+        }
+
+        String key() {
+            return keyState.key;
+        }
+
+        /**
+         * Momento ({@code System.nanoTime()}) en que la llamada entró en la cola.
+         */
+        long queuedAt() {
+            return queuedAt;
+        }
+
+        /**
+         * Tokens que ha contado Gemini (usageMetadata.totalTokenCount) en lugar de la estimación.
+         */
+        void reportUsage(long totalTokens) {
+            usedTokens = totalTokens;
+        }
+    }
+
+    private final class KeyState {
+
+        private final String key;
+        private double requests;
+        private double tokens;
+        private long refilledAt;
+        private long blockedUntil;
+        private long calls;
+        private long rateLimited;
+
+        KeyState(String key, long now) {
+            this.key = key;
+            this.requests = requestCapacity;
+            this.tokens = tokenCapacity;
+            this.refilledAt = now;
+            this.blockedUntil = now;
+        }
+
+        void refill(long now) {
+            long elapsed = now - refilledAt;
+            if (elapsed > 0) {
+                requests = Math.min(requestCapacity, requests + elapsed * requestsPerNano);
+                tokens = Math.min(tokenCapacity, tokens + elapsed * tokensPerNano);
+                refilledAt = now;
+            }
+        }
+
+        /**
+         * Nanosegundos hasta que la clave admita una petición de {@code needed} tokens (0 si ya la admite).
+         */
+        long nanosUntilAvailable(double needed, long now) {
+            long wait = Math.max(0, blockedUntil - now);
+            if (requestsPerNano > 0 && requests < 1) {
+                wait = Math.max(wait, (long) Math.ceil((1 - requests) / requestsPerNano));
+            }
+            if (tokensPerNano > 0 && tokens < needed) {
+                wait = Math.max(wait, (long) Math.ceil((needed - tokens) / tokensPerNano));
+            }
+            return wait;
+        }
+
+        void consume(double needed) {
+            if (requestsPerNano > 0) {
+                requests -= 1;
+            }
+            tokens -= needed;
+            calls++;
+        }
+    }
+
+    private final class Waiter implements Comparable<Waiter> {
+
+        private final Urgency urgency;
+        private final long sequence;
+        private final long queuedAt = System.nanoTime();
+        private final Condition turn = lock.newCondition();
+
+        Waiter(Urgency urgency, long sequence) {
+            this.urgency = urgency;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int byUrgency = urgency.compareTo(other.urgency);
+            return byUrgency != 0 ? byUrgency : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * No se ha conseguido cuota a tiempo. Sin stack trace: bajo carga es un camino habitual.
+     */
+    static class QuotaExhaustedException extends Exception {
+        QuotaExhaustedException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package tom.example.tasks.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Recibe fragmentos de texto tal como llegan del modelo y entrega cada objeto del
+ * primer array JSON en cuanto se cierra. Ignora el texto anterior al '[' (prosa,
+ * bloques ```json) y todo lo que venga después del ']' final.
+ */
+public class JsonArrayElementSplitter {
+
+    private final Consumer<String> elementConsumer;
+    private final StringBuilder current = new StringBuilder();
+
+    private boolean arrayStarted;
+    private boolean arrayClosed;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+
+    public JsonArrayElementSplitter(Consumer<String> elementConsumer) {
+        this.elementConsumer = elementConsumer;
+    }
+
+    public void feed(CharSequence fragment) {
+        for (int i = 0; i < fragment.length() && !arrayClosed; i++) {
+            char c = fragment.charAt(i);
+
+            if (!arrayStarted) {
+                if (c == '[') {
+                    arrayStarted = true;
+                    depth = 1;
+                }
+                continue;
+            }
+
+            if (depth > 1) {
+                current.append(c);
+            }
+
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+
+            switch (c) {
+                case '"' -> inString = true;
+                case '{', '[' -> {
+                    if (depth == 1) {
+                        current.setLength(0);
+                        current.append(c);
+                    }
+                    depth++;
+                }
+                case '}', ']' -> {
+                    depth--;
+                    if (depth == 1 && c == '}') {
+                        elementConsumer.accept(current.toString());
+                        current.setLength(0);
+                    } else if (depth == 0) {
+                        arrayClosed = true;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    public boolean isComplete() {
+        return arrayClosed;
+    }
+}
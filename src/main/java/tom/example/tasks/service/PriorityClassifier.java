@@ -0,0 +1,55 @@
+package tom.example.tasks.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import tom.example.tasks.model.Priority;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Clasificador de prioridad en proceso entrenado offline con {@link PriorityClassifierTrainer}.
+ * El modelo se carga al arrancar desde tasks.priority.model-path; si no hay modelo configurado,
+ * {@link #isLoaded()} es false y se siguen usando Gemini y las reglas de palabras clave.
+ * Clasificar una tarea tarda microsegundos y solo reserva un acumulador de unos pocos campos por llamada:
+ * con hilos virtuales cada petición es un hilo nuevo, así que un ThreadLocal no lo reutilizaría.
+ */
+@Component
+public class PriorityClassifier {
+
+    private final PriorityModel model;
+
+    @Autowired
+    public PriorityClassifier(@Value("${tasks.priority.model-path:}") String modelPath) {
+        this(modelPath.isBlank() ? null : load(Path.of(modelPath)));
+    }
+
+    PriorityClassifier(PriorityModel model) {
+        this.model = model;
+    }
+
+    public boolean isLoaded() {
+        return model != null;
+    }
+
+    public Priority classify(CharSequence title, CharSequence description, CharSequence context) {
+        if (model == null) {
+            throw new IllegalStateException("No hay modelo de prioridad cargado");
+        }
+        return model.predict(title, description, context, new PriorityModel.Scorer());
+    }
+
+    static PriorityModel load(Path path) {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(path))) {
+            return PriorityModel.read(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo cargar el modelo de prioridad " + path, e);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package tom.example.tasks.service;
+
+import tom.example.tasks.model.Priority;
+import tom.example.tasks.service.PriorityModel.Example;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Entrena offline el modelo de {@link PriorityClassifier} a partir de un corpus etiquetado y
+ * muestra un informe de validación cruzada frente a las reglas de palabras clave:
+ * <pre>
+ * ./mvnw compile
+ * java -cp target/classes tom.example.tasks.service.PriorityClassifierTrainer \
+ *     src/test/resources/priority/tasks.tsv data/priority-model.bin [--bits 16] [--alpha 0.05] [--folds 5]
+ * </pre>
+ * Corpus: una tarea por línea, {@code PRIORIDAD<TAB>título[<TAB>descripción[<TAB>contexto]]};
+ * las líneas vacías y las que empiezan por # se ignoran. El modelo final se entrena con todo el corpus.
+ */
+public final class PriorityClassifierTrainer {
+
+    static final int DEFAULT_BITS = 16;
+    static final double DEFAULT_ALPHA = 0.05;
+    static final int DEFAULT_FOLDS = 5;
+
+    private PriorityClassifierTrainer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PriorityClassifierTrainer <corpus.tsv> <model.bin> [--bits N] [--alpha A] [--folds K]");
+            System.exit(2);
+        }
+        int bits = DEFAULT_BITS;
+        double alpha = DEFAULT_ALPHA;
+        int folds = DEFAULT_FOLDS;
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--bits" -> bits = Integer.parseInt(args[i + 1]);
+                case "--alpha" -> alpha = Double.parseDouble(args[i + 1]);
+                case "--folds" -> folds = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        List<Example> examples = readCorpus(Path.of(args[0]));
+        System.out.printf("%d examples, %d bits, alpha %s, %d-fold cross-validation%n%n",
+            examples.size(), bits, alpha, folds);
+
+        Report report = crossValidate(examples, folds, bits, alpha);
+        System.out.println(report.classifier().format("Naive Bayes classifier"));
+        System.out.println(report.keywords().format("Keyword rules"));
+
+        PriorityModel model = PriorityModel.train(examples, bits, alpha);
+        System.out.printf("Inference: %.2f us per task%n", microsPerTask(model, examples));
+
+        Path output = Path.of(args[1]);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(output))) {
+            model.write(stream);
+        }
+        System.out.printf("Model written to %s (%d KB)%n", output, Files.size(output) / 1024);
+    }
+
+    static List<Example> readCorpus(Path path) throws IOException {
+        List<Example> examples = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t", -1);
+            if (fields.length < 2) {
+                throw new IOException(path + ":" + lineNumber + ": se esperaba PRIORIDAD<TAB>título");
+            }
+            Priority priority;
+            try {
+                priority = Priority.valueOf(fields[0].trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(path + ":" + lineNumber + ": prioridad desconocida " + fields[0]);
+            }
+            examples.add(new Example(priority, fields[1].trim(),
+                fields.length > 2 && !fields[2].isBlank() ? fields[2].trim() : null,
+                fields.length > 3 && !fields[3].isBlank() ? fields[3].trim() : null));
+        }
+        return examples;
+    }
+
+    /**
+     * Validación cruzada en k particiones con un barajado fijo: el clasificador se entrena con k-1
+     * y se evalúa en la restante; las reglas de palabras clave se evalúan sobre las mismas tareas.
+     */
+    static Report crossValidate(List<Example> examples, int folds, int bits, double alpha) {
+        List<Example> shuffled = new ArrayList<>(examples);
+        Collections.shuffle(shuffled, new Random(42));
+
+        Evaluation classifier = new Evaluation();
+        Evaluation keywords = new Evaluation();
+        TaskPatternMatcher matcher = new TaskPatternMatcher();
+        Function<Example, Priority> rules = example -> TaskPatternMatcher.priority(matcher.scan(
+            (example.title() + " " + (example.description() != null ? example.description() : "")).toLowerCase()));
+
+        for (int fold = 0; fold < folds; fold++) {
+            List<Example> training = new ArrayList<>();
+            List<Example> test = new ArrayList<>();
+            for (int i = 0; i < shuffled.size(); i++) {
+                (i % folds == fold ? test : training).add(shuffled.get(i));
+            }
+            PriorityModel model = PriorityModel.train(training, bits, alpha);
+            PriorityModel.Scorer scorer = new PriorityModel.Scorer();
+            for (Example example : test) {
+                classifier.add(example.priority(),
+                    model.predict(example.title(), example.description(), example.context(), scorer));
+                keywords.add(example.priority(), rules.apply(example));
+            }
+        }
+        return new Report(classifier, keywords);
+    }
+
+    private static double microsPerTask(PriorityModel model, List<Example> examples) {
+        PriorityModel.Scorer scorer = new PriorityModel.Scorer();
+        int sink = 0;
+        int rounds = Math.max(10, 200_000 / Math.max(1, examples.size()));
+        long start = 0;
+        // La primera mitad de las vueltas es calentamiento del JIT
+        for (int round = 0; round < rounds * 2; round++) {
+            if (round == rounds) {
+                start = System.nanoTime();
+            }
+            for (Example example : examples) {
+                sink += model.predict(example.title(), example.description(), example.context(), scorer).ordinal();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        return sink >= 0 ? elapsed / 1000.0 / ((double) rounds * examples.size()) : 0;
+    }
+
+    record Report(Evaluation classifier, Evaluation keywords) {
+    }
+
+    /**
+     * Matriz de confusión (fila = prioridad real, columna = predicha) con sus métricas.
+     */
+    static final class Evaluation {
+
+        private final int[][] confusion = new int[PriorityModel.CLASSES][PriorityModel.CLASSES];
+        private int total;
+
+        void add(Priority expected, Priority predicted) {
+            confusion[expected.ordinal()][predicted.ordinal()]++;
+            total++;
+        }
+
+        double accuracy() {
+            int correct = 0;
+            for (int c = 0; c < PriorityModel.CLASSES; c++) {
+                correct += confusion[c][c];
+            }
+            return total == 0 ? 0 : (double) correct / total;
+        }
+
+        double precision(int c) {
+            int predicted = 0;
+            for (int[] row : confusion) {
+                predicted += row[c];
+            }
+            return predicted == 0 ? 0 : (double) confusion[c][c] / predicted;
+        }
+
+        double recall(int c) {
+            int actual = 0;
+            for (int count : confusion[c]) {
+                actual += count;
+            }
+            return actual == 0 ? 0 : (double) confusion[c][c] / actual;
+        }
+
+        double macroF1() {
+            double sum = 0;
+            for (int c = 0; c < PriorityModel.CLASSES; c++) {
+                double p = precision(c);
+                double r = recall(c);
+                sum += p + r == 0 ? 0 : 2 * p * r / (p + r);
+            }
+            return sum / PriorityModel.CLASSES;
+        }
+
+        String format(String title) {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format(Locale.ROOT, "== %s: accuracy %.1f%%, macro-F1 %.3f (%d tasks)%n",
+                title, 100 * accuracy(), macroF1(), total));
+            out.append(String.format(Locale.ROOT, "  %-8s %9s %6s  %s%n", "", "precision", "recall", "confusion (predicted ->)"));
+            Priority[] priorities = Priority.values();
+            for (int c = 0; c < priorities.length; c++) {
+                out.append(String.format(Locale.ROOT, "  %-8s %9.2f %6.2f ", priorities[c], precision(c), recall(c)));
+                for (int p = 0; p < priorities.length; p++) {
+                    out.append(String.format(Locale.ROOT, " %4d", confusion[c][p]));
+                }
+                out.append(System.lineSeparator());
+            }
+            return out.toString();
+        }
+    }
+}
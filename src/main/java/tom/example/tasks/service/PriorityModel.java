@@ -0,0 +1,285 @@
+package tom.example.tasks.service;
+
+import tom.example.tasks.model.Priority;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Naive Bayes multinomial sobre n-gramas de palabras (unigramas y bigramas) con hashing:
+ * cada n-grama cae en uno de 2^bits cubos y el modelo es un único float[] con log P(cubo | prioridad)
+ * intercalado por cubo, así que puntuar un texto no reserva memoria y solo recorre el texto una vez.
+ * <p>
+ * Formato binario (big-endian): magic "TPC1", versión, número de clases, bits, ejemplos de
+ * entrenamiento, log-priors en float y pesos en float16 (la mitad de tamaño y precisión de sobra
+ * para log-probabilidades).
+ */
+final class PriorityModel {
+
+    static final int CLASSES = 4;
+
+    // Priority.values() copia el array en cada llamada
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private static final int MAGIC = 0x54504331;
+    private static final int VERSION = 1;
+
+    private static final int FNV_OFFSET = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+    private static final int CONTEXT_SEED = 0x3C6EF372;
+    private static final int CHAR_GRAM_SEED = 0x27D4EB2F;
+    private static final int CHAR_GRAM = 4;
+
+    private final int bits;
+    private final int examples;
+    private final float[] logPriors;
+    // weights[cubo * CLASSES + clase]
+    private final float[] weights;
+
+    private PriorityModel(int bits, int examples, float[] logPriors, float[] weights) {
+        this.bits = bits;
+        this.examples = examples;
+        this.logPriors = logPriors;
+        this.weights = weights;
+    }
+
+    record Example(Priority priority, String title, String description, String context) {
+    }
+
+    static PriorityModel train(List<Example> examples, int bits, double alpha) {
+        if (bits < 8 || bits > 24) {
+            throw new IllegalArgumentException("bits debe estar entre 8 y 24: " + bits);
+        }
+        int buckets = 1 << bits;
+        Counter counter = new Counter(buckets);
+        int[] documents = new int[CLASSES];
+        for (Example example : examples) {
+            counter.label = example.priority().ordinal();
+            documents[counter.label]++;
+            features(example.title(), example.description(), example.context(), counter);
+        }
+        double[] counts = counter.counts;
+        double[] totals = counter.totals;
+
+        float[] logPriors = new float[CLASSES];
+        float[] weights = new float[buckets * CLASSES];
+        for (int c = 0; c < CLASSES; c++) {
+            // Suavizado también en los priors: una prioridad sin ejemplos no queda a -infinito
+            logPriors[c] = (float) Math.log((documents[c] + 1.0) / (examples.size() + CLASSES));
+            double denominator = Math.log(totals[c] + alpha * buckets);
+            for (int b = 0; b < buckets; b++) {
+                weights[b * CLASSES + c] = (float) (Math.log(counts[b * CLASSES + c] + alpha) - denominator);
+            }
+        }
+        return new PriorityModel(bits, examples.size(), logPriors, weights);
+    }
+
+    /**
+     * Prioridad más probable. No reserva memoria: las puntuaciones se acumulan en el Scorer del hilo.
+     */
+    Priority predict(CharSequence title, CharSequence description, CharSequence context, Scorer scorer) {
+        scorer.reset(this);
+        features(title, description, context, scorer);
+        return PRIORITIES[scorer.best()];
+    }
+
+    int bits() {
+        return bits;
+    }
+
+    int examples() {
+        return examples;
+    }
+
+    void write(OutputStream output) throws IOException {
+        DataOutputStream data = new DataOutputStream(output);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(CLASSES);
+        data.writeInt(bits);
+        data.writeInt(examples);
+        for (float logPrior : logPriors) {
+            data.writeFloat(logPrior);
+        }
+        for (float weight : weights) {
+            data.writeShort(Float.floatToFloat16(weight));
+        }
+        data.flush();
+    }
+
+    static PriorityModel read(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(input);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("No es un modelo de prioridad");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Versión de modelo no soportada: " + version);
+        }
+        int classes = data.readInt();
+        int bits = data.readInt();
+        if (classes != CLASSES || bits < 8 || bits > 24) {
+            throw new IOException("Modelo de prioridad corrupto: " + classes + " clases, " + bits + " bits");
+        }
+        int examples = data.readInt();
+        float[] logPriors = new float[CLASSES];
+        for (int c = 0; c < CLASSES; c++) {
+            logPriors[c] = data.readFloat();
+        }
+        float[] weights = new float[(1 << bits) * CLASSES];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = Float.float16ToFloat(data.readShort());
+        }
+        return new PriorityModel(bits, examples, logPriors, weights);
+    }
+
+    /**
+     * Unigramas y bigramas de palabras en minúsculas y sin tildes del título y la descripción,
+     * más el contexto como rasgo propio. Los bigramas no cruzan del título a la descripción.
+     */
+    static void features(CharSequence title, CharSequence description, CharSequence context, FeatureSink sink) {
+        words(title, sink);
+        if (description != null) {
+            words(description, sink);
+        }
+        if (context != null && context.length() > 0) {
+            int hash = CONTEXT_SEED;
+            for (int i = 0; i < context.length(); i++) {
+                hash = (hash ^ fold(context.charAt(i))) * FNV_PRIME;
+            }
+            sink.accept(hash);
+        }
+    }
+
+    private static void words(CharSequence text, FeatureSink sink) {
+        int previous = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            int start = i;
+            int hash = FNV_OFFSET;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                hash = (hash ^ fold(text.charAt(i))) * FNV_PRIME;
+                i++;
+            }
+            sink.accept(hash);
+            charGrams(text, start, i, sink);
+            if (previous != 0) {
+                sink.accept((previous * 31 + hash) * FNV_PRIME ^ 0x5BD1E995);
+            }
+            previous = hash;
+        }
+    }
+
+    /**
+     * N-gramas de CHAR_GRAM caracteres de la palabra con marcas de inicio y fin ("^urg", "nte$"), para
+     * que "urgente" y "urgent" o "caído" y "caída" compartan rasgos aunque no coincida la palabra entera.
+     */
+    private static void charGrams(CharSequence text, int start, int end, FeatureSink sink) {
+        // Posiciones -1 y end son las marcas; las palabras cortas ya están cubiertas por el unigrama
+        if (end - start < CHAR_GRAM - 1) {
+            return;
+        }
+        for (int from = start - 1; from + CHAR_GRAM <= end + 1; from++) {
+            int hash = CHAR_GRAM_SEED;
+            for (int k = from; k < from + CHAR_GRAM; k++) {
+                char c = k < start ? '^' : k >= end ? '$' : fold(text.charAt(k));
+                hash = (hash ^ c) * FNV_PRIME;
+            }
+            sink.accept(hash);
+        }
+    }
+
+    private static char fold(char c) {
+        char lower = Character.toLowerCase(c);
+        return switch (lower) {
+            case 'á', 'à', 'ä', 'â' -> 'a';
+            case 'é', 'è', 'ë', 'ê' -> 'e';
+            case 'í', 'ì', 'ï', 'î' -> 'i';
+            case 'ó', 'ò', 'ö', 'ô' -> 'o';
+            case 'ú', 'ù', 'ü', 'û' -> 'u';
+            case 'ñ' -> 'n';
+            default -> lower;
+        };
+    }
+
+    abstract static class FeatureSink {
+
+        abstract void accept(int hash);
+    }
+
+    private static final class Counter extends FeatureSink {
+
+        private final double[] counts;
+        private final double[] totals = new double[CLASSES];
+        private final int mask;
+        private int label;
+
+        Counter(int buckets) {
+            this.counts = new double[buckets * CLASSES];
+            this.mask = buckets - 1;
+        }
+
+        @Override
+        void accept(int hash) {
+            counts[(hash & mask) * CLASSES + label]++;
+            totals[label]++;
+        }
+    }
+
+    /**
+     * Acumulador reutilizable de log-probabilidades; uno por hilo.
+     */
+    static final class Scorer extends FeatureSink {
+
+        private float[] weights;
+        private int mask;
+        private double s0, s1, s2, s3;
+
+        void reset(PriorityModel model) {
+            weights = model.weights;
+            mask = (1 << model.bits) - 1;
+            s0 = model.logPriors[0];
+            s1 = model.logPriors[1];
+            s2 = model.logPriors[2];
+            s3 = model.logPriors[3];
+        }
+
+        @Override
+        void accept(int hash) {
+            int base = (hash & mask) * CLASSES;
+            s0 += weights[base];
+            s1 += weights[base + 1];
+            s2 += weights[base + 2];
+            s3 += weights[base + 3];
+        }
+
+        int best() {
+            int best = 0;
+            double max = s0;
+            if (s1 > max) {
+                best = 1;
+                max = s1;
+            }
+            if (s2 > max) {
+                best = 2;
+                max = s2;
+            }
+            if (s3 > max) {
+                best = 3;
+            }
+            weights = null;
+            return best;
+        }
+    }
+}
@@ -0,0 +1,658 @@
+package tom.example.tasks.service;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Reconoce la primera expresión de fecha de un texto en español o inglés y la resuelve respecto al
+ * {@link Clock}: "hoy", "pasado mañana", "el viernes", "el lunes de la semana que viene", "next friday",
+ * "en 3 días", "in two weeks", "15 de agosto", "August 15, 2025", "el 19", "2025-08-15", "15/08" y "8/15/25".
+ * <p>
+ * Una sola pasada: el tokenizador recorre el texto carácter a carácter, busca cada palabra en una tabla
+ * hash precompilada sin crear Strings y resuelve las fechas numéricas al leerlas; la gramática se evalúa
+ * sobre una ventana de los últimos tokens. Las fechas que dependen del día (hoy + n, próximo día de la
+ * semana, próximo día del mes) se calculan una vez al día y se reutilizan, así que casi ninguna
+ * expresión reserva memoria. Las fechas pasadas ("el lunes pasado", "last friday") se ignoran.
+ */
+public final class RelativeDateParser {
+
+    // Categorías de palabra (0 = palabra desconocida)
+    private static final int REL_DAY = 1;
+    private static final int MANANA = 2;
+    private static final int WEEKDAY = 3;
+    private static final int MONTH = 4;
+    private static final int NEXT = 5;
+    private static final int IN = 6;
+    private static final int UNIT = 7;
+    private static final int NUMBER_WORD = 8;
+    private static final int OF = 9;
+    private static final int ARTICLE = 10;
+    private static final int QUE = 11;
+    private static final int VIENE = 12;
+    private static final int PASADO = 13;
+    private static final int AFTER = 14;
+    private static final int LA = 15;
+    private static final int THIS = 16;
+    private static final int NIGHT = 17;
+    private static final int LAST = 18;
+    // Tokens que no son palabras
+    private static final int NUMBER = 30;
+    private static final int OTHER_NUMBER = 31;
+    private static final int DATE = 32;
+    private static final int END = -1;
+
+    private static final int DAYS = 1;
+    private static final int WEEKS = 7;
+    private static final int MONTHS = 30;
+
+    private static final int ES = 1;
+    private static final int EN = 2;
+
+    private static final int LOOKAHEAD = 6;
+    private static final int WINDOW = 8;
+    private static final int CACHED_OFFSETS = 62;
+
+    private static final WordTable WORDS = new WordTable();
+
+    static {
+        WORDS.add(REL_DAY, 0, ES, "hoy");
+        WORDS.add(REL_DAY, 0, EN, "today", "tonight");
+        WORDS.add(REL_DAY, 1, EN, "tomorrow");
+        WORDS.add(MANANA, 1, ES, "mañana", "manana");
+        WORDS.add(PASADO, 0, ES, "pasado");
+        WORDS.add(AFTER, 0, EN, "after");
+        WORDS.add(THIS, 0, ES, "este", "esta");
+        WORDS.add(THIS, 0, EN, "this");
+        WORDS.add(NIGHT, 0, ES, "noche");
+        WORDS.add(LAST, 0, EN, "last");
+        WORDS.add(LA, 0, ES, "la");
+        WORDS.add(QUE, 0, ES, "que");
+        WORDS.add(VIENE, 0, ES, "viene");
+        WORDS.add(OF, 0, ES, "de");
+        WORDS.add(OF, 0, EN, "of");
+        WORDS.add(ARTICLE, 0, ES, "el", "del");
+        WORDS.add(ARTICLE, 0, EN, "the", "on");
+        WORDS.add(NEXT, 0, ES, "próximo", "próxima", "proximo", "proxima", "siguiente");
+        WORDS.add(NEXT, 0, EN, "next");
+        WORDS.add(IN, 0, ES, "en", "dentro");
+        WORDS.add(IN, 0, EN, "in", "within");
+        WORDS.add(UNIT, DAYS, ES, "día", "días", "dia", "dias");
+        WORDS.add(UNIT, DAYS, EN, "day", "days");
+        WORDS.add(UNIT, WEEKS, ES, "semana", "semanas");
+        WORDS.add(UNIT, WEEKS, EN, "week", "weeks");
+        WORDS.add(UNIT, MONTHS, ES, "mes", "meses");
+        WORDS.add(UNIT, MONTHS, EN, "month", "months");
+
+        String[][] weekdays = {
+            { "lunes", "monday", "mon" }, { "martes", "tuesday", "tue", "tues" },
+            { "miércoles", "miercoles", "wednesday", "wed" }, { "jueves", "thursday", "thu", "thur", "thurs" },
+            { "viernes", "friday", "fri" }, { "sábado", "sabado", "saturday" }, { "domingo", "sunday" }
+        };
+        for (int day = 0; day < weekdays.length; day++) {
+            for (String word : weekdays[day]) {
+                WORDS.add(WEEKDAY, day + 1, isSpanishWord(word) ? ES : EN, word);
+            }
+        }
+        String[][] months = {
+            { "enero", "ene", "january", "jan" }, { "febrero", "feb", "february" }, { "marzo", "march" },
+            { "abril", "abr", "april", "apr" }, { "mayo", "may" }, { "junio", "jun", "june" },
+            { "julio", "jul", "july" }, { "agosto", "august", "aug" },
+            { "septiembre", "setiembre", "sept", "september", "sep" }, { "octubre", "oct", "october" },
+            { "noviembre", "nov", "november" }, { "diciembre", "dic", "december", "dec" }
+        };
+        for (int month = 0; month < months.length; month++) {
+            for (String word : months[month]) {
+                WORDS.add(MONTH, month + 1, isSpanishWord(word) ? ES : EN, word);
+            }
+        }
+        String[] spanishNumbers = { "un", "dos", "tres", "cuatro", "cinco", "seis", "siete", "ocho", "nueve", "diez" };
+        String[] englishNumbers = { "one", "two", "three", "four", "five", "six", "seven", "eight", "nine", "ten" };
+        for (int n = 0; n < spanishNumbers.length; n++) {
+            WORDS.add(NUMBER_WORD, n + 1, ES, spanishNumbers[n]);
+            WORDS.add(NUMBER_WORD, n + 1, EN, englishNumbers[n]);
+        }
+        WORDS.add(NUMBER_WORD, 1, ES, "una", "uno");
+        WORDS.add(NUMBER_WORD, 1, 0, "a", "an");
+        WORDS.add(NUMBER_WORD, 15, ES, "quince");
+    }
+
+    // La ventana de tokens se reutiliza en cada hilo de plataforma (p. ej. los workers de emails). Un hilo
+    // virtual por petición crea la suya en cada llamada: es una reserva pequeña y de vida corta
+    private static final ThreadLocal<Scan> SCANS = ThreadLocal.withInitial(Scan::new);
+
+    private final Clock clock;
+    private volatile DayTables tables;
+
+    public RelativeDateParser(Clock clock) {
+        this.clock = clock;
+    }
+
+    public LocalDate today() {
+        return tables().today;
+    }
+
+    public LocalDate parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Fecha de la primera expresión reconocida en text[from, to) o null si no hay ninguna.
+     */
+    public LocalDate parse(CharSequence text, int from, int to) {
+        Scan scan = SCANS.get();
+        try {
+            return scan.reset(tables(), text, to).run(from);
+        } finally {
+            scan.text = null;
+        }
+    }
+
+    private DayTables tables() {
+        long now = clock.millis();
+        DayTables current = tables;
+        if (current == null || now < current.startMillis || now >= current.endMillis
+            || !current.zone.equals(clock.getZone())) {
+            current = new DayTables(Instant.ofEpochMilli(now), clock.getZone());
+            tables = current;
+        }
+        return current;
+    }
+
+    private static boolean isSpanishWord(String word) {
+        return switch (word) {
+            case "lunes", "martes", "miércoles", "miercoles", "jueves", "viernes", "sábado", "sabado", "domingo",
+                 "enero", "ene", "febrero", "marzo", "abril", "abr", "mayo", "junio", "julio", "agosto",
+                 "septiembre", "setiembre", "octubre", "noviembre", "diciembre", "dic" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Una pasada sobre el texto: los tokens entran en una ventana circular y cada regla se evalúa
+     * cuando ya hay LOOKAHEAD tokens por delante de su inicio (o se ha llegado al final).
+     */
+    private static final class Scan {
+
+        private DayTables day;
+        private CharSequence text;
+        private int to;
+
+        private final int[] kinds = new int[WINDOW];
+        private final int[] values = new int[WINDOW];
+        private final byte[] digits = new byte[WINDOW];
+        private final LocalDate[] dates = new LocalDate[WINDOW];
+        private int count;
+        private int spanishWords;
+        private int englishWords;
+
+        Scan reset(DayTables day, CharSequence text, int to) {
+            this.day = day;
+            this.text = text;
+            this.to = to;
+            this.count = 0;
+            this.spanishWords = 0;
+            this.englishWords = 0;
+            return this;
+        }
+
+        LocalDate run(int from) {
+            int next = 0;
+            int i = from;
+            while (i < to) {
+                char c = text.charAt(i);
+                if (Character.isLetter(c)) {
+                    i = word(i);
+                } else if (c >= '0' && c <= '9') {
+                    i = number(i);
+                } else {
+                    i++;
+                    continue;
+                }
+                while (count - next > LOOKAHEAD) {
+                    LocalDate date = match(next++);
+                    if (date != null) {
+                        return date;
+                    }
+                }
+            }
+            while (next < count) {
+                LocalDate date = match(next++);
+                if (date != null) {
+                    return date;
+                }
+            }
+            return null;
+        }
+
+        private int word(int start) {
+            int end = start;
+            int hash = 0;
+            while (end < to && Character.isLetter(text.charAt(end))) {
+                hash = 31 * hash + Character.toLowerCase(text.charAt(end));
+                end++;
+            }
+            int entry = WORDS.find(text, start, end, hash);
+            if (entry < 0) {
+                push(0, 0, 0, null);
+            } else {
+                if ((WORDS.languages[entry] & ES) != 0) {
+                    spanishWords++;
+                }
+                if ((WORDS.languages[entry] & EN) != 0) {
+                    englishWords++;
+                }
+                push(WORDS.categories[entry], WORDS.values[entry], 0, null);
+            }
+            return end;
+        }
+
+        private int number(int start) {
+            int end = start;
+            int value = 0;
+            while (end < to && isDigit(text.charAt(end))) {
+                value = end - start < 9 ? value * 10 + (text.charAt(end) - '0') : value;
+                end++;
+            }
+            int length = end - start;
+            boolean glued = start > 0 && (Character.isLetterOrDigit(text.charAt(start - 1)) || isCurrency(text.charAt(start - 1)));
+
+            char sep = end < to ? text.charAt(end) : 0;
+            if ((sep == '/' || sep == '-' || sep == '.') && end + 1 < to && isDigit(text.charAt(end + 1))) {
+                return numericDate(start, value, length, sep, end + 1);
+            }
+            if (glued || (end < to && (sep == ':' || sep == '%' || sep == ',' || isCurrency(sep))
+                && !(sep == ',' && (end + 1 >= to || text.charAt(end + 1) == ' ')))) {
+                push(OTHER_NUMBER, value, length, null);
+                return skipNumberTail(end);
+            }
+            // Ordinales pegados: 19th, 1st, 2nd, 3rd, 1º, 1ª, 1er
+            int suffixEnd = end;
+            while (suffixEnd < to && Character.isLetter(text.charAt(suffixEnd))) {
+                suffixEnd++;
+            }
+            if (suffixEnd > end && !isOrdinalSuffix(end, suffixEnd)) {
+                push(OTHER_NUMBER, value, length, null);
+                return suffixEnd;
+            }
+            push(NUMBER, value, length, null);
+            return suffixEnd;
+        }
+
+        // dd/mm[/aa[aa]], mm/dd/aaaa en textos en inglés, dd-mm-aaaa, dd.mm.aaaa y aaaa-mm-dd
+        private int numericDate(int start, int first, int firstLength, char sep, int secondStart) {
+            int end = secondStart;
+            int second = 0;
+            while (end < to && isDigit(text.charAt(end)) && end - secondStart < 4) {
+                second = second * 10 + (text.charAt(end) - '0');
+                end++;
+            }
+            int secondLength = end - secondStart;
+            int third = -1;
+            int thirdLength = 0;
+            if (end + 1 < to && text.charAt(end) == sep && isDigit(text.charAt(end + 1))) {
+                int thirdStart = end + 1;
+                third = 0;
+                end = thirdStart;
+                while (end < to && isDigit(text.charAt(end)) && end - thirdStart < 4) {
+                    third = third * 10 + (text.charAt(end) - '0');
+                    end++;
+                }
+                thirdLength = end - thirdStart;
+            }
+            if (end < to && isDigit(text.charAt(end))) {
+                push(OTHER_NUMBER, first, firstLength, null);
+                return skipNumberTail(end);
+            }
+
+            LocalDate date = null;
+            if (firstLength == 4 && third >= 0 && secondLength <= 2 && thirdLength <= 2) {
+                date = dateOf(first, second, third);
+            } else if (firstLength <= 2 && secondLength <= 2 && (third >= 0 || sep == '/')
+                && (third < 0 || thirdLength == 2 || thirdLength == 4)) {
+                // Sin año, "3-5" y "3.5" son rangos o decimales, no fechas
+                boolean monthFirst = second > 12 || (first <= 12 && englishWords > spanishWords);
+                int dayOfMonth = monthFirst ? second : first;
+                int month = monthFirst ? first : second;
+                if (third < 0) {
+                    date = day.upcoming(month, dayOfMonth);
+                } else {
+                    date = dateOf(thirdLength == 2 ? 2000 + third : third, month, dayOfMonth);
+                }
+            }
+            if (date != null) {
+                push(DATE, 0, 0, date);
+            } else {
+                push(OTHER_NUMBER, first, firstLength, null);
+            }
+            return end;
+        }
+
+        private int skipNumberTail(int end) {
+            while (end < to && (isDigit(text.charAt(end)) || text.charAt(end) == ':' || text.charAt(end) == '.'
+                || text.charAt(end) == ',' || text.charAt(end) == '%')) {
+                end++;
+            }
+            return end;
+        }
+
+        private boolean isOrdinalSuffix(int start, int end) {
+            int length = end - start;
+            char a = Character.toLowerCase(text.charAt(start));
+            char b = length > 1 ? Character.toLowerCase(text.charAt(start + 1)) : 0;
+            if (length == 1) {
+                return a == 'º' || a == 'ª' || a == 'o';
+            }
+            if (length == 2) {
+                return (a == 's' && b == 't') || (a == 'n' && b == 'd') || (a == 'r' && b == 'd') || (a == 't' && b == 'h');
+            }
+            return length == 3 && a == 'e' && b == 'r' && Character.toLowerCase(text.charAt(start + 2)) == 'o';
+        }
+
+        private void push(int kind, int value, int length, LocalDate date) {
+            int slot = count & (WINDOW - 1);
+            kinds[slot] = kind;
+            values[slot] = value;
+            digits[slot] = (byte) Math.min(length, 127);
+            dates[slot] = date;
+            count++;
+        }
+
+        private int kind(int index) {
+            return index < 0 || index >= count || index < count - WINDOW ? END : kinds[index & (WINDOW - 1)];
+        }
+
+        private int value(int index) {
+            return values[index & (WINDOW - 1)];
+        }
+
+        private boolean is(int index, int kind, int value) {
+            return kind(index) == kind && value(index) == value;
+        }
+
+        private boolean isDayNumber(int index) {
+            return kind(index) == NUMBER && digits[index & (WINDOW - 1)] <= 2 && value(index) >= 1 && value(index) <= 31;
+        }
+
+        private boolean isYear(int index) {
+            return kind(index) == NUMBER && digits[index & (WINDOW - 1)] == 4 && value(index) >= 1900 && value(index) <= 2199;
+        }
+
+        private LocalDate match(int i) {
+            switch (kind(i)) {
+                case DATE:
+                    return dates[i & (WINDOW - 1)];
+                case REL_DAY:
+                    return day.plusDays(value(i));
+                case MANANA:
+                    // "por la mañana" es la mañana, no mañana; "esta mañana" es hoy
+                    if (kind(i - 1) == LA) {
+                        return null;
+                    }
+                    return kind(i - 1) == THIS ? day.today : day.plusDays(1);
+                case PASADO:
+                    return kind(i + 1) == MANANA ? day.plusDays(2) : null;
+                case THIS:
+                    return kind(i + 1) == NIGHT ? day.today : null;
+                case WEEKDAY:
+                    return weekday(i);
+                case NEXT:
+                    return next(i + 1);
+                case UNIT:
+                    if (value(i) == DAYS && kind(i + 1) == AFTER && is(i + 2, REL_DAY, 1)) {
+                        return day.plusDays(2);
+                    }
+                    if (kind(i + 1) == NEXT || (kind(i + 1) == QUE && kind(i + 2) == VIENE)) {
+                        return following(value(i));
+                    }
+                    return value(i) == DAYS && kind(i - 1) != ARTICLE ? dayOfMonth(i + 1) : null;
+                case IN:
+                    return in(i + 1);
+                case NUMBER:
+                    return dayMonth(i);
+                case MONTH:
+                    return monthDay(i);
+                case ARTICLE:
+                    return dayOfMonth(i + 1);
+                default:
+                    return null;
+            }
+        }
+
+        private LocalDate weekday(int i) {
+            int weekday = value(i);
+            if (kind(i - 1) == LAST || kind(i + 1) == PASADO) {
+                return null;
+            }
+            if (isDayNumber(i + 1)) {
+                // "viernes 19": manda el número; "lunes 3 de marzo" lo resuelve la regla del número
+                return isMonthAhead(i + 2) ? null : day.dayOfMonth(value(i + 1));
+            }
+            int j = i + 1;
+            while (kind(j) == OF || kind(j) == LA || kind(j) == ARTICLE) {
+                j++;
+            }
+            boolean nextWeek = (kind(j) == NEXT && is(j + 1, UNIT, WEEKS))
+                || (is(j, UNIT, WEEKS) && (kind(j + 1) == NEXT || (kind(j + 1) == QUE && kind(j + 2) == VIENE)));
+            return nextWeek ? day.weekdayNextWeek(weekday) : day.upcomingWeekday(weekday);
+        }
+
+        private LocalDate next(int j) {
+            if (kind(j) == WEEKDAY) {
+                return day.upcomingWeekday(value(j));
+            }
+            return kind(j) == UNIT ? following(value(j)) : null;
+        }
+
+        private LocalDate following(int unit) {
+            return switch (unit) {
+                case DAYS -> day.plusDays(1);
+                case WEEKS -> day.nextMonday;
+                default -> day.nextMonthFirst;
+            };
+        }
+
+        private LocalDate in(int j) {
+            if (kind(j) == OF) {
+                j++;
+            }
+            int amount;
+            if (kind(j) == NUMBER && digits[j & (WINDOW - 1)] <= 3) {
+                amount = value(j);
+            } else if (kind(j) == NUMBER_WORD) {
+                amount = value(j);
+            } else {
+                return null;
+            }
+            if (kind(j + 1) != UNIT) {
+                return null;
+            }
+            return switch (value(j + 1)) {
+                case DAYS -> day.plusDays(amount);
+                case WEEKS -> day.plusDays(7 * amount);
+                default -> day.today.plusMonths(amount);
+            };
+        }
+
+        private boolean isMonthAhead(int j) {
+            return kind(j) == MONTH || (kind(j) == OF && kind(j + 1) == MONTH);
+        }
+
+        // 15 de agosto [de 2025], 15 agosto, 15th of August
+        private LocalDate dayMonth(int i) {
+            if (!isDayNumber(i)) {
+                return null;
+            }
+            int j = kind(i + 1) == OF ? i + 2 : i + 1;
+            if (kind(j) != MONTH) {
+                return null;
+            }
+            int month = value(j);
+            int y = j + 1;
+            if (kind(y) == OF || kind(y) == ARTICLE) {
+                y++;
+            }
+            return isYear(y) ? dateOf(value(y), month, value(i)) : day.upcoming(month, value(i));
+        }
+
+        // August 15[, 2025]
+        private LocalDate monthDay(int i) {
+            if (!isDayNumber(i + 1)) {
+                return null;
+            }
+            return isYear(i + 2) ? dateOf(value(i + 2), value(i), value(i + 1)) : day.upcoming(value(i), value(i + 1));
+        }
+
+        // el 19, del 19, el día 19, día 19, the 19th
+        private LocalDate dayOfMonth(int j) {
+            if (kind(j) == ARTICLE || is(j, UNIT, DAYS)) {
+                j++;
+            }
+            if (!isDayNumber(j) || isMonthAhead(j + 1) || kind(j + 1) == UNIT) {
+                return null;
+            }
+            return day.dayOfMonth(value(j));
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+
+        private static boolean isCurrency(char c) {
+            return c == '$' || c == '€' || c == '£';
+        }
+    }
+
+    private static LocalDate dateOf(int year, int month, int dayOfMonth) {
+        if (month < 1 || month > 12 || dayOfMonth < 1 || dayOfMonth > 31) {
+            return null;
+        }
+        LocalDate first = LocalDate.of(year, month, 1);
+        return dayOfMonth <= first.lengthOfMonth() ? first.withDayOfMonth(dayOfMonth) : null;
+    }
+
+    /**
+     * Fechas que dependen del día actual, calculadas una vez al día.
+     */
+    private static final class DayTables {
+
+        private final ZoneId zone;
+        private final long startMillis;
+        private final long endMillis;
+        private final LocalDate today;
+        private final LocalDate nextMonday;
+        private final LocalDate nextMonthFirst;
+        private final LocalDate[] plusDays = new LocalDate[CACHED_OFFSETS + 1];
+        // Índice 1..7 = lunes..domingo
+        private final LocalDate[] upcomingWeekday = new LocalDate[8];
+        private final LocalDate[] dayOfMonth = new LocalDate[32];
+
+        DayTables(Instant now, ZoneId zone) {
+            this.zone = zone;
+            this.today = LocalDate.ofInstant(now, zone);
+            this.startMillis = today.atStartOfDay(zone).toInstant().toEpochMilli();
+            this.endMillis = today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            for (int n = 0; n <= CACHED_OFFSETS; n++) {
+                plusDays[n] = today.plusDays(n);
+            }
+            for (int weekday = 1; weekday <= 7; weekday++) {
+                // Siempre en el futuro: "el lunes" dicho un lunes es el de la semana siguiente
+                int ahead = (weekday - today.getDayOfWeek().getValue() + 7) % 7;
+                upcomingWeekday[weekday] = plusDays[ahead == 0 ? 7 : ahead];
+            }
+            this.nextMonday = today.with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+            this.nextMonthFirst = today.with(TemporalAdjusters.firstDayOfNextMonth());
+            for (int d = 1; d <= 31; d++) {
+                LocalDate month = today.withDayOfMonth(1);
+                if (d < today.getDayOfMonth()) {
+                    month = month.plusMonths(1);
+                }
+                while (d > month.lengthOfMonth()) {
+                    month = month.plusMonths(1);
+                }
+                dayOfMonth[d] = month.withDayOfMonth(d);
+            }
+        }
+
+        LocalDate plusDays(int days) {
+            return days <= CACHED_OFFSETS ? plusDays[days] : today.plusDays(days);
+        }
+
+        LocalDate upcomingWeekday(int weekday) {
+            return upcomingWeekday[weekday];
+        }
+
+        LocalDate weekdayNextWeek(int weekday) {
+            return plusDays((int) (nextMonday.toEpochDay() - today.toEpochDay()) + weekday - 1);
+        }
+
+        LocalDate dayOfMonth(int d) {
+            return dayOfMonth[d];
+        }
+
+        // Próxima vez que llega ese día y mes, hoy incluido
+        LocalDate upcoming(int month, int d) {
+            LocalDate date = dateOf(today.getYear(), month, d);
+            if (date == null && month == 2 && d == 29) {
+                for (int year = today.getYear() + 1; date == null; year++) {
+                    date = dateOf(year, month, d);
+                }
+                return date;
+            }
+            if (date != null && date.isBefore(today)) {
+                date = dateOf(today.getYear() + 1, month, d);
+            }
+            return date;
+        }
+    }
+
+    /**
+     * Tabla hash de direccionamiento abierto con las palabras conocidas. Se consulta con un rango
+     * del texto y su hash en minúsculas, sin crear un String por palabra.
+     */
+    private static final class WordTable {
+
+        private static final int CAPACITY = 512;
+
+        private final String[] keys = new String[CAPACITY];
+        private final int[] categories = new int[CAPACITY];
+        private final int[] values = new int[CAPACITY];
+        private final int[] languages = new int[CAPACITY];
+
+        void add(int category, int value, int language, String... words) {
+            for (String word : words) {
+                int slot = word.hashCode() & (CAPACITY - 1);
+                while (keys[slot] != null && !keys[slot].equals(word)) {
+                    slot = (slot + 1) & (CAPACITY - 1);
+                }
+                keys[slot] = word;
+                categories[slot] = category;
+                values[slot] = value;
+                languages[slot] |= language;
+            }
+        }
+
+        int find(CharSequence text, int start, int end, int hash) {
+            int length = end - start;
+            for (int slot = hash & (CAPACITY - 1); keys[slot] != null; slot = (slot + 1) & (CAPACITY - 1)) {
+                String key = keys[slot];
+                if (key.length() == length && regionMatches(key, text, start)) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean regionMatches(String key, CharSequence text, int start) {
+            for (int i = 0; i < key.length(); i++) {
+                if (key.charAt(i) != Character.toLowerCase(text.charAt(start + i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
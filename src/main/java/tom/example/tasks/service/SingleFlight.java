@@ -0,0 +1,69 @@
+package tom.example.tasks.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Agrupa llamadas concurrentes con la misma clave: la primera ejecuta el cálculo y las
+ * demás esperan su resultado. El mapa de claves en curso es un ConcurrentHashMap con
+ * putIfAbsent, sin bloqueo global ni bloqueo mientras dura el cálculo.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final UnaryOperator<V> shareCopy;
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param shareCopy copia del resultado: una se publica a los que se unen a un cálculo en curso, sin
+     *                  que nadie la modifique, y cada uno de ellos recibe a su vez una copia propia
+     */
+    public SingleFlight(UnaryOperator<V> shareCopy) {
+        this.shareCopy = shareCopy;
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return shareCopy.apply(existing.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        executions.increment();
+        try {
+            V value = loader.get();
+            // El llamador original puede modificar su resultado (ids, fusiones) mientras los demás
+            // lo copian en sus hilos: se publica una copia aparte antes de devolverlo
+            created.complete(shareCopy.apply(value));
+            return value;
+        } catch (RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("executions", executions.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+}
@@ -0,0 +1,509 @@
+package tom.example.tasks.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import tom.example.tasks.model.Priority;
+import tom.example.tasks.model.Task;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Detecta y fusiona tareas casi duplicadas ("Enviar el informe al cliente" / "Enviar informe al cliente").
+ * Cada tarea se resume en una firma MinHash de los trigramas de su título y descripción, y las firmas
+ * se indexan por bandas (LSH): solo se comparan las tareas que coinciden en alguna banda, así que
+ * buscar en una ventana de cientos de miles de tareas cuesta lo mismo que en una de cien.
+ * Al fusionar se conserva la primera tarea con la prioridad más alta y la fecha límite más temprana.
+ * Por remitente se guarda una ventana deslizante (tamaño máximo y antigüedad) de las tareas recientes
+ * para detectar la misma tarea repetida en varios emails de un hilo. La ventana guarda solo una foto
+ * de cada tarea (firma, id, prioridad y fecha), nunca la Task que se devolvió, y tiene además un
+ * máximo global de tareas entre todos los remitentes.
+ */
+@Component
+public class TaskDeduplicator {
+
+    // 24 bandas de 4 filas: una pareja con similitud 0,6 coincide en alguna banda el 96% de las veces
+    // y una con similitud 0,3 solo el 18%
+    static final int BANDS = 24;
+    static final int ROWS = 4;
+    static final int SIGNATURE_LENGTH = BANDS * ROWS;
+
+    private static final long[] HASH_MULTIPLIERS = new long[SIGNATURE_LENGTH];
+    private static final long[] HASH_OFFSETS = new long[SIGNATURE_LENGTH];
+
+    static {
+        // Semilla fija: las firmas deben ser estables entre reinicios y entre instancias
+        Random random = new Random(0x5EED);
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            HASH_MULTIPLIERS[i] = random.nextLong() | 1;
+            HASH_OFFSETS[i] = random.nextLong();
+        }
+    }
+
+    private final double similarityThreshold;
+    private final int maxTasksPerSender;
+    private final long windowTtlNanos;
+    private final int maxSenders;
+    private final int maxTasks;
+
+    private final LinkedHashMap<String, SignatureIndex<Snapshot>> windows = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long windowTasks;
+    private long checked;
+    private long merged;
+    private long evictions;
+
+    public TaskDeduplicator(@Value("${tasks.dedupe.similarity-threshold:0.6}") double similarityThreshold,
+                            @Value("${tasks.dedupe.window.max-tasks-per-sender:10000}") int maxTasksPerSender,
+                            @Value("${tasks.dedupe.window.ttl:P14D}") Duration windowTtl,
+                            @Value("${tasks.dedupe.window.max-senders:10000}") int maxSenders,
+                            @Value("${tasks.dedupe.window.max-tasks:20000}") int maxTasks) {
+        this.similarityThreshold = similarityThreshold;
+        this.maxTasksPerSender = maxTasksPerSender;
+        this.windowTtlNanos = windowTtl.toNanos();
+        this.maxSenders = maxSenders;
+        this.maxTasks = maxTasks;
+    }
+
+    /**
+     * Fusiona los casi duplicados dentro de una misma lista, conservando el orden de las primeras apariciones.
+     */
+    public List<Task> deduplicate(List<Task> tasks) {
+        return deduplicate(null, tasks);
+    }
+
+    /**
+     * Fusiona los casi duplicados de la lista y los de la ventana reciente del remitente.
+     * Devuelve las tareas nuevas y, como copias con el id original, las ya vistas cuya prioridad
+     * o fecha ha cambiado al fusionarlas (para que se actualicen en lugar de crearse otra vez).
+     * Las repeticiones que no aportan nada se descartan. Las tareas nuevas entran en la ventana
+     * sin id: hay que llamar a {@link #recordIds} cuando se guarden.
+     */
+    public List<Task> deduplicate(String sender, List<Task> tasks) {
+        if (tasks.size() < 2 && (sender == null || sender.isBlank())) {
+            return tasks;
+        }
+
+        int[][] signatures = new int[tasks.size()][];
+        for (int i = 0; i < tasks.size(); i++) {
+            signatures[i] = signature(tasks.get(i));
+        }
+
+        List<Task> result = new ArrayList<>(tasks.size());
+        synchronized (this) {
+            long now = System.nanoTime();
+
+            // Primero se fusionan los duplicados de la propia lista
+            SignatureIndex<Task> batch = new SignatureIndex<>();
+            List<Entry<Task>> unique = new ArrayList<>(tasks.size());
+            for (int i = 0; i < tasks.size(); i++) {
+                Task task = tasks.get(i);
+                checked++;
+                Entry<Task> duplicate = batch.findSimilar(signatures[i], similarityThreshold);
+                if (duplicate != null) {
+                    merged++;
+                    merge(duplicate.value, task);
+                    continue;
+                }
+                Entry<Task> entry = new Entry<>(signatures[i], task, now);
+                batch.add(entry);
+                unique.add(entry);
+            }
+
+            SignatureIndex<Snapshot> window = sender == null || sender.isBlank() ? null : windowFor(sender);
+            if (window != null) {
+                evictExpired(window, now);
+            }
+            for (Entry<Task> entry : unique) {
+                Entry<Snapshot> previous = window != null ? window.findSimilar(entry.signature, similarityThreshold) : null;
+                if (previous == null) {
+                    result.add(entry.value);
+                    if (window != null) {
+                        window.add(new Entry<>(entry.signature, Snapshot.of(entry.value), now));
+                        windowTasks++;
+                        while (window.size() > maxTasksPerSender) {
+                            evict(window, window.eldest());
+                        }
+                    }
+                    continue;
+                }
+
+                // La tarea ya se entregó en un email anterior: solo se reenvía si la fusión la cambia.
+                // Si aquel email aún no se ha guardado (sin id), la foto conserva la fusión para la próxima vez
+                merged++;
+                window.touch(previous, now);
+                Snapshot updated = previous.value.merge(entry.value);
+                if (updated != previous.value) {
+                    previous.value = updated;
+                    if (updated.id() != null) {
+                        result.add(updated.applyTo(entry.value));
+                    }
+                }
+            }
+            evictBeyondGlobalLimit();
+        }
+        return result;
+    }
+
+    /**
+     * Deduplicación de una lista que llega tarea a tarea (streaming): cada tarea se compara con las ya
+     * aceptadas de la misma petición. Una instancia por petición; no es thread-safe.
+     */
+    public IncrementalBatch startBatch() {
+        return new IncrementalBatch();
+    }
+
+    public final class IncrementalBatch {
+
+        private final SignatureIndex<Task> accepted = new SignatureIndex<>();
+
+        private IncrementalBatch() {
+        }
+
+        /**
+         * Devuelve la propia tarea si es nueva, la tarea aceptada antes si la fusión ha cambiado su
+         * prioridad o su fecha (para actualizarla), o null si es una repetición que no aporta nada.
+         */
+        public Task accept(Task task) {
+            int[] signature = signature(task);
+            Entry<Task> duplicate = accepted.findSimilar(signature, similarityThreshold);
+            synchronized (TaskDeduplicator.this) {
+                checked++;
+                if (duplicate != null) {
+                    merged++;
+                }
+            }
+            if (duplicate == null) {
+                accepted.add(new Entry<>(signature, task, 0));
+                return task;
+            }
+            return merge(duplicate.value, task) ? duplicate.value : null;
+        }
+    }
+
+    /**
+     * Anota en la ventana del remitente los ids que recibieron al guardarse las tareas nuevas
+     * devueltas por {@link #deduplicate(String, List)}.
+     */
+    public void recordIds(String sender, List<Task> saved) {
+        if (sender == null || sender.isBlank()) {
+            return;
+        }
+        int[][] signatures = new int[saved.size()][];
+        for (int i = 0; i < saved.size(); i++) {
+            signatures[i] = saved.get(i).getId() != null ? signature(saved.get(i)) : null;
+        }
+        synchronized (this) {
+            SignatureIndex<Snapshot> window = windows.get(senderKey(sender));
+            if (window == null) {
+                return;
+            }
+            for (int i = 0; i < saved.size(); i++) {
+                Entry<Snapshot> entry = signatures[i] != null ? window.findExact(signatures[i]) : null;
+                if (entry != null && entry.value.id() == null) {
+                    entry.value = entry.value.withId(saved.get(i).getId());
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        windows.clear();
+        windowTasks = 0;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("senders", windows.size());
+        stats.put("windowTasks", windowTasks);
+        stats.put("maxTasks", maxTasks);
+        stats.put("maxTasksPerSender", maxTasksPerSender);
+        stats.put("maxSenders", maxSenders);
+        stats.put("windowTtlSeconds", Duration.ofNanos(windowTtlNanos).toSeconds());
+        stats.put("similarityThreshold", similarityThreshold);
+        stats.put("checked", checked);
+        stats.put("merged", merged);
+        stats.put("evictions", evictions);
+        return stats;
+    }
+
+    private static String senderKey(String sender) {
+        return sender.strip().toLowerCase(Locale.ROOT);
+    }
+
+    private SignatureIndex<Snapshot> windowFor(String sender) {
+        String key = senderKey(sender);
+        SignatureIndex<Snapshot> window = windows.get(key);
+        if (window == null) {
+            window = new SignatureIndex<>();
+            windows.put(key, window);
+            // Expulsar los remitentes que llevan más tiempo sin escribir
+            Iterator<SignatureIndex<Snapshot>> eldest = windows.values().iterator();
+            while (windows.size() > maxSenders && eldest.hasNext()) {
+                SignatureIndex<Snapshot> candidate = eldest.next();
+                if (candidate != window) {
+                    evictions += candidate.size();
+                    windowTasks -= candidate.size();
+                    eldest.remove();
+                }
+            }
+        }
+        return window;
+    }
+
+    private void evictExpired(SignatureIndex<Snapshot> window, long now) {
+        Entry<Snapshot> eldest;
+        while ((eldest = window.eldest()) != null && now - eldest.seenAt > windowTtlNanos) {
+            evict(window, eldest);
+        }
+    }
+
+    // Por encima del máximo global se vacían primero las ventanas de los remitentes menos recientes
+    private void evictBeyondGlobalLimit() {
+        Iterator<SignatureIndex<Snapshot>> senders = windows.values().iterator();
+        while (windowTasks > maxTasks && senders.hasNext()) {
+            SignatureIndex<Snapshot> window = senders.next();
+            while (windowTasks > maxTasks && window.size() > 0) {
+                evict(window, window.eldest());
+            }
+            if (window.size() == 0) {
+                senders.remove();
+            }
+        }
+    }
+
+    private void evict(SignatureIndex<Snapshot> window, Entry<Snapshot> entry) {
+        window.remove(entry);
+        windowTasks--;
+        evictions++;
+    }
+
+    /**
+     * Lleva a la tarea conservada la prioridad más alta y la fecha más temprana. Devuelve si ha cambiado.
+     */
+    static boolean merge(Task kept, Task duplicate) {
+        Priority priority = higher(kept.getPriority(), duplicate.getPriority());
+        LocalDate dueDate = earlier(kept.getDueDate(), duplicate.getDueDate());
+        if (priority == kept.getPriority() && dueDate == kept.getDueDate()) {
+            return false;
+        }
+        kept.setPriority(priority);
+        kept.setDueDate(dueDate);
+        return true;
+    }
+
+    private static Priority higher(Priority kept, Priority duplicate) {
+        return duplicate != null && (kept == null || duplicate.getLevel() > kept.getLevel()) ? duplicate : kept;
+    }
+
+    private static LocalDate earlier(LocalDate kept, LocalDate duplicate) {
+        return duplicate != null && (kept == null || duplicate.isBefore(kept)) ? duplicate : kept;
+    }
+
+    /**
+     * Firma MinHash del conjunto de trigramas de caracteres del título y la descripción normalizados.
+     */
+    static int[] signature(Task task) {
+        String text = normalize(task.getTitle());
+        if (task.getDescription() != null && !task.getDescription().isBlank()) {
+            text = text + " " + normalize(task.getDescription());
+        }
+        String padded = " " + text + " ";
+
+        int[] signature = new int[SIGNATURE_LENGTH];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            long shingle = mix(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+            for (int h = 0; h < SIGNATURE_LENGTH; h++) {
+                int value = (int) ((HASH_MULTIPLIERS[h] * shingle + HASH_OFFSETS[h]) >>> 33);
+                if (value < signature[h]) {
+                    signature[h] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Fracción de posiciones iguales entre dos firmas: estima la similitud de Jaccard de los trigramas.
+     */
+    static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIGNATURE_LENGTH;
+    }
+
+    // Minúsculas, sin tildes y solo letras y dígitos separados por un espacio
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                pendingSpace = false;
+                normalized.append(Character.toLowerCase(c));
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    // Finalizador de MurmurHash3: reparte los bits del trigrama antes de aplicar las permutaciones
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long hash = band;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            hash = hash * 0x9E3779B97F4A7C15L + signature[row];
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Índice LSH: cubetas por clave de banda y, aparte, el orden de llegada para expulsar las más antiguas.
+     */
+    private static final class SignatureIndex<V> {
+
+        private final Map<Long, List<Entry<V>>> buckets = new HashMap<>();
+        private final LinkedHashMap<Entry<V>, Boolean> order = new LinkedHashMap<>(16, 0.75f, true);
+
+        int size() {
+            return order.size();
+        }
+
+        Entry<V> eldest() {
+            return order.isEmpty() ? null : order.keySet().iterator().next();
+        }
+
+        Entry<V> findSimilar(int[] signature, double threshold) {
+            Entry<V> best = null;
+            double bestSimilarity = threshold;
+            for (int band = 0; band < BANDS; band++) {
+                List<Entry<V>> bucket = buckets.get(bandKey(signature, band));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Entry<V> candidate : bucket) {
+                    double similarity = similarity(signature, candidate.signature);
+                    if (similarity >= bestSimilarity && (best == null || similarity > bestSimilarity)) {
+                        best = candidate;
+                        bestSimilarity = similarity;
+                    }
+                }
+            }
+            return best;
+        }
+
+        // Una firma idéntica comparte todas las bandas: basta con mirar la primera cubeta
+        Entry<V> findExact(int[] signature) {
+            List<Entry<V>> bucket = buckets.get(bandKey(signature, 0));
+            if (bucket != null) {
+                for (Entry<V> candidate : bucket) {
+                    if (Arrays.equals(signature, candidate.signature)) {
+                        return candidate;
+                    }
+                }
+            }
+            return null;
+        }
+
+        void add(Entry<V> entry) {
+            for (int band = 0; band < BANDS; band++) {
+                buckets.computeIfAbsent(bandKey(entry.signature, band), key -> new ArrayList<>(1)).add(entry);
+            }
+            order.put(entry, Boolean.TRUE);
+        }
+
+        void touch(Entry<V> entry, long now) {
+            entry.seenAt = now;
+            order.get(entry);
+        }
+
+        void remove(Entry<V> entry) {
+            order.remove(entry);
+            for (int band = 0; band < BANDS; band++) {
+                long key = bandKey(entry.signature, band);
+                List<Entry<V>> bucket = buckets.get(key);
+                if (bucket != null) {
+                    bucket.remove(entry);
+                    if (bucket.isEmpty()) {
+                        buckets.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Entry<V> {
+
+        private final int[] signature;
+        private V value;
+        private long seenAt;
+
+        Entry(int[] signature, V value, long seenAt) {
+            this.signature = signature;
+            this.value = value;
+            this.seenAt = seenAt;
+        }
+    }
+
+    /**
+     * Lo que la ventana recuerda de una tarea ya entregada. Es inmutable: una fusión crea otra foto.
+     */
+    private record Snapshot(Integer id, Priority priority, LocalDate dueDate) {
+
+        static Snapshot of(Task task) {
+            return new Snapshot(task.getId(), task.getPriority(), task.getDueDate());
+        }
+
+        Snapshot merge(Task duplicate) {
+            Priority mergedPriority = higher(priority, duplicate.getPriority());
+            LocalDate mergedDueDate = earlier(dueDate, duplicate.getDueDate());
+            return mergedPriority == priority && mergedDueDate == dueDate
+                ? this : new Snapshot(id, mergedPriority, mergedDueDate);
+        }
+
+        Snapshot withId(Integer newId) {
+            return new Snapshot(newId, priority, dueDate);
+        }
+
+        // Actualización de la tarea guardada: la redacción nueva con el id, la prioridad y la fecha fusionados
+        Task applyTo(Task duplicate) {
+            return new Task(id, duplicate.getTitle(), duplicate.getDescription(), dueDate, duplicate.isCompleted(),
+                priority, duplicate.getCategory(), duplicate.getContext());
+        }
+    }
+}
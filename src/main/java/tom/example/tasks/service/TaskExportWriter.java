@@ -0,0 +1,95 @@
+package tom.example.tasks.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import tom.example.tasks.model.Task;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Escribe una exportación con la misma forma que ApiResponse&lt;List&lt;TaskExportDto&gt;&gt; pero tarea a
+ * tarea sobre un JsonGenerator: no se construyen DTOs ni mapas intermedios, así que la memoria no
+ * depende del número de tareas. El total va al principio y count al final, cuando ya se conoce.
+ */
+public class TaskExportWriter {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString TITLE = new SerializedString("title");
+    private static final SerializedString DESCRIPTION = new SerializedString("description");
+    private static final SerializedString DUE_DATE = new SerializedString("dueDate");
+    private static final SerializedString PRIORITY = new SerializedString("priority");
+    private static final SerializedString COMPLETED = new SerializedString("completed");
+    private static final SerializedString CONTEXT = new SerializedString("context");
+    private static final SerializedString CATEGORY = new SerializedString("category");
+
+    private final JsonGenerator generator;
+    private final Set<ExportFormat> formats;
+    private int count;
+
+    public TaskExportWriter(JsonGenerator generator, Set<ExportFormat> formats) {
+        this.generator = generator;
+        this.formats = EnumSet.copyOf(formats);
+    }
+
+    public void start(int total) throws IOException {
+        generator.writeStartObject();
+        generator.writeBooleanField("success", true);
+        generator.writeStringField("message", "Exportación completada");
+        generator.writeStringField("format", formats.stream()
+            .map(ExportFormat::getName)
+            .collect(Collectors.joining(",")));
+        generator.writeNumberField("total", total);
+        generator.writeArrayFieldStart("data");
+    }
+
+    public void write(Task task) throws IOException {
+        generator.writeStartObject();
+        if (task.getId() != null) {
+            generator.writeFieldName(ID);
+            generator.writeNumber(task.getId());
+        }
+        generator.writeFieldName(TITLE);
+        generator.writeString(task.getTitle());
+        // Mismos campos opcionales que omite @JsonInclude(NON_NULL) en TaskExportDto
+        if (task.getDescription() != null) {
+            generator.writeFieldName(DESCRIPTION);
+            generator.writeString(task.getDescription());
+        }
+        if (task.getDueDate() != null) {
+            generator.writeFieldName(DUE_DATE);
+            generator.writeString(task.getDueDate().toString());
+        }
+        generator.writeFieldName(PRIORITY);
+        generator.writeString(task.getPriority().name());
+        generator.writeFieldName(COMPLETED);
+        generator.writeBoolean(task.isCompleted());
+        if (task.getContext() != null) {
+            generator.writeFieldName(CONTEXT);
+            generator.writeString(task.getContext());
+        }
+        if (task.getCategory() != null) {
+            generator.writeFieldName(CATEGORY);
+            generator.writeString(task.getCategory());
+        }
+        for (ExportFormat format : formats) {
+            format.write(generator, task);
+        }
+        generator.writeEndObject();
+        count++;
+    }
+
+    public void finish() throws IOException {
+        generator.writeEndArray();
+        generator.writeNumberField("count", count);
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
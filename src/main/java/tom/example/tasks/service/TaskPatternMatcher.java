@@ -0,0 +1,269 @@
+package tom.example.tasks.service;
+
+import tom.example.tasks.model.Priority;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Autómata Aho-Corasick precompilado con todas las palabras clave del extractor local.
+ * Una sola pasada sobre el texto (ya en minúsculas) devuelve la máscara de categorías
+ * encontradas: obligaciones, verbos de acción y prioridades.
+ * Las fechas las resuelve {@link RelativeDateParser}.
+ */
+public final class TaskPatternMatcher {
+
+    // Categorías (una palabra puede pertenecer a varias)
+    public static final int OBLIGATION = 1;
+    public static final int DEADLINE = 1 << 1;
+    public static final int ACTION_VERB = 1 << 2;
+    public static final int NAME_ACTION = 1 << 3;
+    public static final int PRIORITY_CRITICA = 1 << 4;
+    public static final int PRIORITY_ALTA = 1 << 5;
+    public static final int PRIORITY_BAJA = 1 << 6;
+    // Terminadores de línea que sobreviven al split y que '.' no acepta en las regex originales
+    public static final int LINE_TERMINATOR = 1 << 7;
+
+    private static final String[] OBLIGATIONS = {
+        "debe", "tiene que", "necesita", "hay que", "tengo que", "tienes que"
+    };
+    private static final String[] ACTION_VERBS = {
+        "hacer", "revisar", "enviar", "llamar", "comprar", "estudiar", "reunir", "contactar",
+        "completar", "terminar", "preparar", "organizar", "planificar", "coordinar", "inscribir",
+        "pagar", "limpiar", "cambiar", "agendar", "actualizar", "documentar", "ejecutar",
+        "restaurar", "identificar", "corregir"
+    };
+    private static final String[] DEADLINES = {
+        "antes del", "antes de", "para el", "para hoy", "urgente", "importante", "deadline", "fecha límite"
+    };
+    private static final String[] NAME_ACTIONS = { "debe", "tiene", "necesita", "va a" };
+    private static final String[] CRITICAL_KEYWORDS = { "urgente", "examen", "emergencia", "crítico", "deadline" };
+    private static final String[] HIGH_KEYWORDS = { "importante", "reunión", "cliente", "proyecto", "entrega" };
+    private static final String[] LOW_KEYWORDS = { "opcional", "cuando pueda", "algún día" };
+
+    private final byte[] symbols = new byte[Character.MAX_VALUE + 1];
+    private final int alphabetSize;
+    // Tabla de transición completa (DFA), fila = estado
+    private final int[] transitions;
+    // Aristas del trie sin enlaces de fallo, para coincidencias ancladas (-1 = sin arista)
+    private final int[] trieEdges;
+    // Categorías acumuladas siguiendo los enlaces de fallo
+    private final int[] outputs;
+    // Categorías de la palabra que termina exactamente en el estado
+    private final int[] ownOutputs;
+
+    public TaskPatternMatcher() {
+        Map<String, Integer> keywords = defaultKeywords();
+
+        int nextSymbol = 1; // 0 = cualquier carácter que no aparece en las palabras clave
+        for (String keyword : keywords.keySet()) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (symbols[c] == 0) {
+                    symbols[c] = (byte) nextSymbol++;
+                }
+            }
+        }
+        this.alphabetSize = nextSymbol;
+
+        // Construcción del trie
+        List<int[]> edges = new ArrayList<>();
+        List<Integer> own = new ArrayList<>();
+        edges.add(newRow());
+        own.add(0);
+        for (Map.Entry<String, Integer> entry : keywords.entrySet()) {
+            int state = 0;
+            String keyword = entry.getKey();
+            for (int i = 0; i < keyword.length(); i++) {
+                int symbol = symbols[keyword.charAt(i)];
+                if (edges.get(state)[symbol] < 0) {
+                    edges.get(state)[symbol] = edges.size();
+                    edges.add(newRow());
+                    own.add(0);
+                }
+                state = edges.get(state)[symbol];
+            }
+            own.set(state, own.get(state) | entry.getValue());
+        }
+
+        int states = edges.size();
+        this.trieEdges = new int[states * alphabetSize];
+        this.transitions = new int[states * alphabetSize];
+        this.outputs = new int[states];
+        this.ownOutputs = new int[states];
+        for (int s = 0; s < states; s++) {
+            System.arraycopy(edges.get(s), 0, trieEdges, s * alphabetSize, alphabetSize);
+            ownOutputs[s] = own.get(s);
+            outputs[s] = own.get(s);
+        }
+
+        // Enlaces de fallo en BFS y compilación a DFA
+        int[] fail = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int row = state * alphabetSize;
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                int next = trieEdges[row + symbol];
+                if (next >= 0) {
+                    fail[next] = state == 0 ? 0 : transitions[fail[state] * alphabetSize + symbol];
+                    outputs[next] |= outputs[fail[next]];
+                    transitions[row + symbol] = next;
+                    queue.add(next);
+                } else {
+                    transitions[row + symbol] = state == 0 ? 0 : transitions[fail[state] * alphabetSize + symbol];
+                }
+            }
+        }
+    }
+
+    /**
+     * Devuelve la máscara de categorías cuyas palabras aparecen en text[from, to).
+     * El texto debe estar ya en minúsculas.
+     */
+    public int scan(CharSequence text, int from, int to) {
+        int state = 0;
+        int found = 0;
+        for (int i = from; i < to; i++) {
+            state = transitions[state * alphabetSize + symbols[text.charAt(i)]];
+            found |= outputs[state];
+        }
+        return found;
+    }
+
+    public int scan(CharSequence text) {
+        return scan(text, 0, text.length());
+    }
+
+    /**
+     * Reglas de palabras clave para la prioridad: crítica, alta y baja por ese orden; si no, media.
+     */
+    public static Priority priority(int matches) {
+        if ((matches & PRIORITY_CRITICA) != 0) {
+            return Priority.CRITICA;
+        }
+        if ((matches & PRIORITY_ALTA) != 0) {
+            return Priority.ALTA;
+        }
+        if ((matches & PRIORITY_BAJA) != 0) {
+            return Priority.BAJA;
+        }
+        return Priority.MEDIA;
+    }
+
+    /**
+     * Categorías de las palabras clave que empiezan exactamente en la posición from.
+     */
+    public int scanPrefix(CharSequence text, int from) {
+        int state = 0;
+        int found = 0;
+        for (int i = from; i < text.length(); i++) {
+            state = trieEdges[state * alphabetSize + symbols[text.charAt(i)]];
+            if (state < 0) {
+                break;
+            }
+            found |= ownOutputs[state];
+        }
+        return found;
+    }
+
+    /**
+     * Equivalente a {@code ^[a-záéíóúü]+\s+(debe|tiene|necesita|va a)}.
+     */
+    public boolean startsWithNameAction(CharSequence lower) {
+        int length = lower.length();
+        int i = 0;
+        while (i < length && isNameLetter(lower.charAt(i))) {
+            i++;
+        }
+        if (i == 0) {
+            return false;
+        }
+        int j = i;
+        while (j < length && isRegexWhitespace(lower.charAt(j))) {
+            j++;
+        }
+        return j > i && (scanPrefix(lower, j) & NAME_ACTION) != 0;
+    }
+
+    /**
+     * Si la frase es un elemento de lista ({@code ^[-*•]\s*.+} o {@code ^\d+[.):]\s*.+})
+     * devuelve el índice donde empieza el título sin marcador; si no, -1.
+     */
+    public static int listItemTitleStart(String sentence) {
+        int length = sentence.length();
+        if (length < 2) {
+            return -1;
+        }
+        char first = sentence.charAt(0);
+        if (first != '-' && first != '*' && first != '•') {
+            int i = 0;
+            while (i < length && isAsciiDigit(sentence.charAt(i))) {
+                i++;
+            }
+            if (i == 0 || i + 1 >= length) {
+                return -1;
+            }
+            char separator = sentence.charAt(i);
+            if (separator != '.' && separator != ')' && separator != ':') {
+                return -1;
+            }
+        }
+
+        // Igual que replaceFirst("^[-*•\\d.):]+\\s*", "").trim()
+        int start = 0;
+        while (start < length && isListMarker(sentence.charAt(start))) {
+            start++;
+        }
+        while (start < length && sentence.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private int[] newRow() {
+        int[] row = new int[alphabetSize];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static Map<String, Integer> defaultKeywords() {
+        Map<String, Integer> keywords = new LinkedHashMap<>();
+        add(keywords, OBLIGATIONS, OBLIGATION);
+        add(keywords, ACTION_VERBS, ACTION_VERB);
+        add(keywords, DEADLINES, DEADLINE);
+        add(keywords, NAME_ACTIONS, NAME_ACTION);
+        add(keywords, CRITICAL_KEYWORDS, PRIORITY_CRITICA);
+        add(keywords, HIGH_KEYWORDS, PRIORITY_ALTA);
+        add(keywords, LOW_KEYWORDS, PRIORITY_BAJA);
+        add(keywords, new String[] { "\u0085", "\u2028", "\u2029" }, LINE_TERMINATOR);
+        return keywords;
+    }
+
+    private static void add(Map<String, Integer> keywords, String[] words, int category) {
+        for (String word : words) {
+            keywords.merge(word, category, (a, b) -> a | b);
+        }
+    }
+
+    private static boolean isNameLetter(char c) {
+        return (c >= 'a' && c <= 'z') || c == 'á' || c == 'é' || c == 'í' || c == 'ó' || c == 'ú' || c == 'ü';
+    }
+
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isListMarker(char c) {
+        return c == '-' || c == '*' || c == '•' || isAsciiDigit(c) || c == '.' || c == ')' || c == ':';
+    }
+}
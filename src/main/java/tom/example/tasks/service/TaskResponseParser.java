@@ -0,0 +1,246 @@
+package tom.example.tasks.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import tom.example.tasks.model.Priority;
+import tom.example.tasks.model.Task;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parser de la respuesta de extracción a nivel de tokens (JsonParser, sin árbol JsonNode).
+ * Salta la prosa o los bloques ``` alrededor del JSON, convierte cada elemento directamente
+ * en una Task y, si un elemento está mal formado, lo descarta sin perder el resto.
+ */
+public class TaskResponseParser {
+
+    private final JsonFactory jsonFactory;
+    private final AtomicLong skippedElements = new AtomicLong();
+
+    public TaskResponseParser(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * @throws IOException si la respuesta no contiene ningún array JSON
+     */
+    public List<Task> parse(String response, String context) throws IOException {
+        int start = response.indexOf('[');
+        if (start < 0) {
+            throw new IOException("La respuesta de Gemini no contiene un array JSON");
+        }
+
+        List<Task> tasks = new ArrayList<>();
+
+        // Camino rápido: un solo parser recorre el array completo sin copiar la respuesta.
+        // resumeAt apunta justo detrás del último elemento completo, para no repetirlo al recuperar
+        int resumeAt = start + 1;
+        StringReader reader = new StringReader(response);
+        reader.skip(start);
+        try (JsonParser parser = jsonFactory.createParser(reader)) {
+            parser.nextToken();
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    skippedElements.incrementAndGet();
+                } else {
+                    Task task = readTask(parser, context);
+                    if (task != null) {
+                        tasks.add(task);
+                    }
+                }
+                resumeAt = start + (int) parser.currentLocation().getCharOffset();
+            }
+        } catch (IOException e) {
+            // Elemento mal formado o salida truncada: se descarta ese elemento y se sigue con el resto
+            System.err.println("Skipping malformed task in Gemini response: " + e.getMessage());
+            recoverFrom(response.toCharArray(), resumeAt, context, tasks);
+        }
+
+        return tasks;
+    }
+
+    /**
+     * Respuesta de un lote: un objeto cuyas claves son los identificadores de documento y cuyos valores
+     * son sus arrays de tareas. Solo se devuelven los documentos cuyo array se ha leído completo; si la
+     * salida está mal formada o truncada, los documentos que faltan quedan fuera y el llamador los
+     * resuelve por otro camino.
+     *
+     * @param contexts contexto de cada identificador esperado; las claves desconocidas se ignoran
+     * @throws IOException si la respuesta no contiene ningún objeto JSON
+     */
+    public Map<String, List<Task>> parseBatch(String response, Map<String, String> contexts) throws IOException {
+        int start = response.indexOf('{');
+        if (start < 0) {
+            throw new IOException("La respuesta de Gemini no contiene un objeto JSON");
+        }
+
+        Map<String, List<Task>> result = new HashMap<>();
+        StringReader reader = new StringReader(response);
+        reader.skip(start);
+        try (JsonParser parser = jsonFactory.createParser(reader)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String id = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value != JsonToken.START_ARRAY || !contexts.containsKey(id)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                String context = contexts.get(id);
+                List<Task> tasks = new ArrayList<>();
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        skippedElements.incrementAndGet();
+                    } else {
+                        Task task = readTask(parser, context);
+                        if (task != null) {
+                            tasks.add(task);
+                        }
+                    }
+                }
+                result.put(id, tasks);
+            }
+        } catch (IOException e) {
+            // Salida truncada o mal formada: se conservan los documentos ya completos
+            System.err.println("Stopping at malformed Gemini batch response: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * Convierte un único objeto JSON en Task. Devuelve null si el elemento no es válido.
+     */
+    public Task parseElement(char[] chars, int offset, int length, String context) {
+        try (JsonParser parser = jsonFactory.createParser(chars, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                skippedElements.incrementAndGet();
+                return null;
+            }
+            return readTask(parser, context);
+        } catch (IOException e) {
+            skippedElements.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Delimita los elementos restantes por profundidad de llaves (respetando cadenas y escapes)
+     * y los convierte uno a uno. Si la salida viene truncada se conservan los elementos completos.
+     */
+    private void recoverFrom(char[] chars, int from, String context, List<Task> tasks) {
+        int depth = 1;
+        int elementStart = -1;
+        boolean inString = false;
+        boolean escaped = false;
+        for (int i = from; i < chars.length && depth > 0; i++) {
+            char c = chars[i];
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> inString = true;
+                case '{', '[' -> {
+                    if (depth == 1) {
+                        elementStart = i;
+                    }
+                    depth++;
+                }
+                case '}', ']' -> {
+                    depth--;
+                    if (depth == 1 && c == '}' && elementStart >= 0) {
+                        Task task = parseElement(chars, elementStart, i + 1 - elementStart, context);
+                        if (task != null) {
+                            tasks.add(task);
+                        }
+                        elementStart = -1;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private Task readTask(JsonParser parser, String context) throws IOException {
+        Task task = new Task();
+        task.setPriority(Priority.MEDIA);
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            if (value.isStructStart()) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "title" -> task.setTitle(parser.getText());
+                case "description" -> task.setDescription(parser.getText());
+                case "dueDate" -> task.setDueDate(parseDate(parser.getText()));
+                case "priority" -> task.setPriority(parsePriority(parser.getText()));
+                default -> {
+                }
+            }
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw new IOException("Objeto de tarea incompleto");
+        }
+
+        if (task.getTitle() == null || task.getTitle().isBlank()) {
+            skippedElements.incrementAndGet();
+            return null;
+        }
+
+        task.setCompleted(false);
+        task.setContext(context);
+        task.setCategory(context != null ? context : "general");
+        return task;
+    }
+
+    public long getSkippedElements() {
+        return skippedElements.get();
+    }
+
+    private static LocalDate parseDate(String value) {
+        if (value.isEmpty() || value.equals("null")) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static Priority parsePriority(String value) {
+        try {
+            return Priority.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Priority.MEDIA;
+        }
+    }
+}
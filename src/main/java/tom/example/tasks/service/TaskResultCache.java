@@ -0,0 +1,209 @@
+package tom.example.tasks.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import tom.example.tasks.model.Task;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caché LRU con TTL y presupuesto de memoria para los resultados de extracción.
+ * La clave es un hash del texto normalizado, el contexto y la fecha actual según el mismo
+ * {@link Clock} que fija la fecha del prompt (las fechas relativas como "mañana" dependen del día).
+ * Las tareas se copian, sin id, al guardar y al leer.
+ */
+@Component
+public class TaskResultCache {
+
+    // Coste aproximado de cabeceras de objeto, referencias y LocalDate por tarea
+    private static final int TASK_OVERHEAD_BYTES = 160;
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long maxBytes;
+    private final Clock clock;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long estimatedBytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public TaskResultCache(@Value("${gemini.cache.max-entries:10000}") int maxEntries,
+                           @Value("${gemini.cache.ttl:PT1H}") Duration ttl,
+                           @Value("${gemini.cache.max-bytes:67108864}") long maxBytes,
+                           Clock clock) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.maxBytes = maxBytes;
+        this.clock = clock;
+    }
+
+    public List<Task> get(String text, String context) {
+        Key key = keyFor(text, context);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            if (System.nanoTime() - entry.createdAt > ttlNanos) {
+                remove(key, entry);
+                expirations++;
+                misses++;
+                return null;
+            }
+            hits++;
+            return copyOf(entry.tasks);
+        }
+    }
+
+    public void put(String text, String context, List<Task> tasks) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        Key key = keyFor(text, context);
+        Entry entry = new Entry(copyOf(tasks), System.nanoTime(), estimateBytes(tasks));
+        if (entry.bytes > maxBytes) {
+            return;
+        }
+
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                estimatedBytes -= previous.bytes;
+            }
+            estimatedBytes += entry.bytes;
+
+            // Expulsar los menos usados recientemente hasta cumplir tamaño y memoria
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || estimatedBytes > maxBytes) && eldest.hasNext()) {
+                Map.Entry<Key, Entry> candidate = eldest.next();
+                if (candidate.getKey().equals(key)) {
+                    continue;
+                }
+                estimatedBytes -= candidate.getValue().bytes;
+                eldest.remove();
+                evictions++;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        estimatedBytes = 0;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long lookups = hits + misses;
+        stats.put("size", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("estimatedBytes", estimatedBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("ttlSeconds", Duration.ofNanos(ttlNanos).toSeconds());
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hits / lookups);
+        stats.put("evictions", evictions);
+        stats.put("expirations", expirations);
+        return stats;
+    }
+
+    private void remove(Key key, Entry entry) {
+        entries.remove(key);
+        estimatedBytes -= entry.bytes;
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        // Unificar saltos de línea y colapsar espacios horizontales; los saltos se conservan
+        // porque separan frases en la extracción local
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\r') {
+                if (i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                    continue;
+                }
+                c = '\n';
+            }
+            if (c == ' ' || c == '\t') {
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace && c != '\n' && normalized.length() > 0
+                    && normalized.charAt(normalized.length() - 1) != '\n') {
+                normalized.append(' ');
+            }
+            pendingSpace = false;
+            normalized.append(c);
+        }
+        return normalized.toString().strip();
+    }
+
+    private Key keyFor(String text, String context) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(normalize(text).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(context).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(LocalDate.now(clock).toString().getBytes(StandardCharsets.US_ASCII));
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+            return new Key(hash.getLong(), hash.getLong());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static long estimateBytes(List<Task> tasks) {
+        long bytes = ENTRY_OVERHEAD_BYTES;
+        for (Task task : tasks) {
+            bytes += TASK_OVERHEAD_BYTES + 2L * (length(task.getTitle()) + length(task.getDescription())
+                + length(task.getCategory()) + length(task.getContext()));
+        }
+        return bytes;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    /**
+     * Copia sin id: son resultados de extracción, no tareas del almacén. En streaming el llamador guarda
+     * las tareas (y les asigna id) antes de que lleguen aquí, y un acierto posterior debe crearlas de nuevo.
+     */
+    static List<Task> copyOf(List<Task> tasks) {
+        List<Task> copy = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            copy.add(new Task(null, task.getTitle(), task.getDescription(), task.getDueDate(),
+                task.isCompleted(), task.getPriority(), task.getCategory(), task.getContext()));
+        }
+        return copy;
+    }
+
+    private record Key(long high, long low) {
+    }
+
+    private record Entry(List<Task> tasks, long createdAt, long bytes) {
+    }
+}
@@ -0,0 +1,82 @@
+package tom.example.tasks.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Divide textos largos en trozos de como máximo maxChars para que cada prompt y su respuesta
+ * quepan en el presupuesto de tokens. Corta preferentemente entre párrafos, si no entre frases
+ * y, en último caso, en un espacio; nunca deja trozos de menos de la mitad del máximo salvo el último.
+ */
+final class TextChunker {
+
+    private TextChunker() {
+    }
+
+    static List<String> split(String text, int maxChars) {
+        if (text.length() <= maxChars) {
+            return List.of(text);
+        }
+
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        while (text.length() - start > maxChars) {
+            int end = cutPoint(text, start, start + maxChars);
+            addChunk(chunks, text, start, end);
+            start = end;
+        }
+        addChunk(chunks, text, start, text.length());
+        return chunks;
+    }
+
+    /**
+     * Mejor punto de corte en (start + mitad, limit]: tras una línea en blanco, tras un fin de frase,
+     * tras cualquier espacio o, si no hay ninguno, en el propio límite.
+     */
+    private static int cutPoint(String text, int start, int limit) {
+        int floor = start + (limit - start) / 2;
+
+        for (int i = limit - 1; i > floor; i--) {
+            if (text.charAt(i) == '\n' && isBlankLineBefore(text, i, floor)) {
+                return i + 1;
+            }
+        }
+        for (int i = limit - 1; i > floor; i--) {
+            char c = text.charAt(i);
+            if (c == '\n' || (Character.isWhitespace(c) && isSentenceEnd(text.charAt(i - 1)))) {
+                return i + 1;
+            }
+        }
+        for (int i = limit - 1; i > floor; i--) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+
+    // Hay otro salto de línea antes de este separado solo por espacios: fin de párrafo
+    private static boolean isBlankLineBefore(String text, int newline, int floor) {
+        for (int i = newline - 1; i > floor; i--) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                return true;
+            }
+            if (!Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSentenceEnd(char c) {
+        return c == '.' || c == '!' || c == '?';
+    }
+
+    private static void addChunk(List<String> chunks, String text, int start, int end) {
+        String chunk = text.substring(start, end).strip();
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package tom.example.tasks.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import tom.example.tasks.dto.ApiResponse;
+import tom.example.tasks.dto.TaskExportDto;
+import tom.example.tasks.dto.WebhookRequest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Idempotencia para /webhook/email con memoria acotada.
+ * Un filtro de Bloom rotativo (dos generaciones, cada una cubre una ventana completa) descarta
+ * rápido las entregas nuevas; un conjunto exacto de claves recientes confirma los duplicados
+ * y guarda la respuesta original. Ambos tienen tamaño fijo, así que la memoria no crece con el tráfico.
+ */
+@Component
+public class WebhookIdempotencyStore {
+
+    private static final String[] MESSAGE_ID_KEYS = { "messageId", "message_id", "Message-ID", "message-id", "id" };
+
+    private final long windowNanos;
+    private final int maxEntries;
+    private final int hashFunctions;
+
+    private long[] currentBloom;
+    private long[] previousBloom;
+    private long generationStartedAt;
+
+    private final LinkedHashMap<Key, Entry> recent = new LinkedHashMap<>();
+    private final SingleFlight<Key, ApiResponse<List<TaskExportDto>>> inFlight = new SingleFlight<>(response -> response);
+
+    private long duplicates;
+    private long bloomNegatives;
+
+    public WebhookIdempotencyStore(@Value("${webhook.dedupe.window:PT24H}") Duration window,
+                                   @Value("${webhook.dedupe.max-entries:10000}") int maxEntries,
+                                   @Value("${webhook.dedupe.bloom-bits:1048576}") int bloomBits,
+                                   @Value("${webhook.dedupe.hash-functions:7}") int hashFunctions) {
+        this.windowNanos = window.toNanos();
+        this.maxEntries = maxEntries;
+        this.hashFunctions = hashFunctions;
+        this.currentBloom = new long[Math.max(1, bloomBits / 64)];
+        this.previousBloom = new long[currentBloom.length];
+        this.generationStartedAt = System.nanoTime();
+    }
+
+    /**
+     * Clave de entrega: el id del mensaje en metadata o, si no existe, un hash de remitente, fecha, asunto y cuerpo.
+     */
+    public String keyFor(WebhookRequest webhook) {
+        Map<String, Object> metadata = webhook.getMetadata();
+        if (metadata != null) {
+            for (String name : MESSAGE_ID_KEYS) {
+                Object id = metadata.get(name);
+                if (id != null && !id.toString().isBlank()) {
+                    return "id:" + id.toString().trim();
+                }
+            }
+        }
+        // Sin fecha, remitente y asunto no bastan: dos emails distintos con el mismo asunto se confundirían
+        byte[] digest = sha256(webhook.getSender() + '\u0000' + webhook.getTimestamp() + '\u0000' + webhook.getSubject()
+            + '\u0000' + webhook.getBody());
+        return "hash:" + HexFormat.of().formatHex(digest);
+    }
+
+    /**
+     * Respuesta original si la entrega ya se procesó dentro de la ventana, o null si es nueva.
+     */
+    public ApiResponse<List<TaskExportDto>> findProcessed(String deliveryKey) {
+        return findProcessed(hash(deliveryKey));
+    }
+
+    private ApiResponse<List<TaskExportDto>> findProcessed(Key key) {
+        synchronized (this) {
+            rotateIfNeeded();
+            if (!mightContain(key)) {
+                bloomNegatives++;
+                return null;
+            }
+            Entry entry = recent.get(key);
+            if (entry == null || System.nanoTime() - entry.processedAt > windowNanos) {
+                return null;
+            }
+            duplicates++;
+            return entry.response;
+        }
+    }
+
+    /**
+     * Procesa la entrega una sola vez aunque lleguen copias simultáneas. Solo se recuerdan las respuestas correctas.
+     * Una copia que pasó findProcessed mientras la original esperaba en la cola llega aquí cuando esta ya ha
+     * terminado: por eso se vuelve a buscar la respuesta recordada antes de procesar.
+     */
+    public ApiResponse<List<TaskExportDto>> processOnce(String deliveryKey,
+                                                        Supplier<ApiResponse<List<TaskExportDto>>> processor) {
+        Key key = hash(deliveryKey);
+        return inFlight.execute(key, () -> {
+            ApiResponse<List<TaskExportDto>> previous = findProcessed(key);
+            if (previous != null) {
+                return previous;
+            }
+            ApiResponse<List<TaskExportDto>> response = processor.get();
+            if (response.isSuccess()) {
+                remember(key, response);
+            }
+            return response;
+        });
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("recentEntries", recent.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("bloomBytes", 2L * currentBloom.length * Long.BYTES);
+        stats.put("duplicates", duplicates);
+        stats.put("bloomNegatives", bloomNegatives);
+        return stats;
+    }
+
+    private synchronized void remember(Key key, ApiResponse<List<TaskExportDto>> response) {
+        rotateIfNeeded();
+        long now = System.nanoTime();
+        for (int i = 0; i < hashFunctions; i++) {
+            int bit = bitIndex(key, i, currentBloom.length);
+            currentBloom[bit >>> 6] |= 1L << bit;
+        }
+
+        recent.remove(key);
+        recent.put(key, new Entry(response, now));
+
+        // Orden de inserción = orden temporal: se expulsan por cabeza las caducadas y las que sobran
+        Iterator<Entry> eldest = recent.values().iterator();
+        while (eldest.hasNext()) {
+            Entry entry = eldest.next();
+            if (recent.size() <= maxEntries && now - entry.processedAt <= windowNanos) {
+                break;
+            }
+            eldest.remove();
+        }
+    }
+
+    private boolean mightContain(Key key) {
+        return contains(currentBloom, key) || contains(previousBloom, key);
+    }
+
+    private boolean contains(long[] bloom, Key key) {
+        for (int i = 0; i < hashFunctions; i++) {
+            int bit = bitIndex(key, i, bloom.length);
+            if ((bloom[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rotateIfNeeded() {
+        long now = System.nanoTime();
+        // Una clave pasa a la generación anterior como pronto una ventana después de entrar y se
+        // descarta en la siguiente rotación: siempre se recuerda al menos la ventana completa
+        if (now - generationStartedAt < windowNanos) {
+            return;
+        }
+        // La generación anterior se reutiliza como nueva actual: sin asignar memoria
+        long[] recycled = previousBloom;
+        Arrays.fill(recycled, 0L);
+        previousBloom = currentBloom;
+        currentBloom = recycled;
+        generationStartedAt = now;
+    }
+
+    private static int bitIndex(Key key, int i, int words) {
+        // Doble hashing: h1 + i * h2
+        long combined = key.high + i * (key.low | 1L);
+        return (int) Math.floorMod(combined, (long) words * 64);
+    }
+
+    private static Key hash(String deliveryKey) {
+        ByteBuffer hash = ByteBuffer.wrap(sha256(deliveryKey));
+        return new Key(hash.getLong(), hash.getLong());
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private record Key(long high, long low) {
+    }
+
+    private record Entry(ApiResponse<List<TaskExportDto>> response, long processedAt) {
+    }
+}
@@ -0,0 +1,364 @@
+package tom.example.tasks.store;
+
+import java.util.Arrays;
+
+/**
+ * Bitmap comprimido de ids al estilo Roaring: los ids se agrupan por sus 16 bits altos y cada
+ * bloque se guarda como array ordenado de char (hasta 4096 valores) o como mapa de 65536 bits.
+ * Así un índice de baja cardinalidad sobre millones de tareas ocupa unos pocos bits por tarea
+ * y las intersecciones trabajan bloque a bloque.
+ */
+final class IdBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    void add(int id) {
+        int index = find((char) (id >>> 16));
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, (char) (id >>> 16), new Container());
+        }
+        containers[index].add((char) id);
+    }
+
+    void remove(int id) {
+        int index = find((char) (id >>> 16));
+        if (index < 0) {
+            return;
+        }
+        Container container = containers[index];
+        container.remove((char) id);
+        if (container.cardinality == 0) {
+            removeContainer(index);
+        }
+    }
+
+    boolean contains(int id) {
+        int index = find((char) (id >>> 16));
+        return index >= 0 && containers[index].contains((char) id);
+    }
+
+    int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    /**
+     * Primer id mayor o igual que {@code from}, o -1 si no hay.
+     */
+    int nextId(int from) {
+        char high = (char) (from >>> 16);
+        int index = find(high);
+        int low = from & 0xFFFF;
+        if (index < 0) {
+            index = -index - 1;
+            low = 0;
+        }
+        for (; index < size; index++) {
+            int value = containers[index].next(keys[index] == high ? low : 0);
+            if (value >= 0) {
+                return (keys[index] << 16) | value;
+            }
+        }
+        return -1;
+    }
+
+    static IdBitmap and(IdBitmap a, IdBitmap b) {
+        IdBitmap result = new IdBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                Container container = a.containers[i].and(b.containers[j]);
+                if (container.cardinality > 0) {
+                    result.appendContainer(a.keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    static IdBitmap andNot(IdBitmap a, IdBitmap b) {
+        IdBitmap result = new IdBitmap();
+        int j = 0;
+        for (int i = 0; i < a.size; i++) {
+            while (j < b.size && b.keys[j] < a.keys[i]) {
+                j++;
+            }
+            Container container = j < b.size && b.keys[j] == a.keys[i]
+                ? a.containers[i].andNot(b.containers[j])
+                : a.containers[i].copy();
+            if (container.cardinality > 0) {
+                result.appendContainer(a.keys[i], container);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Unión de varios bitmaps acumulando cada bloque de ids en un único mapa de bits,
+     * sin crear bitmaps intermedios (rangos de fechas con cientos de días).
+     */
+    static IdBitmap orAll(IdBitmap[] bitmaps, int from, int to) {
+        int maxKey = -1;
+        for (int i = from; i < to; i++) {
+            if (bitmaps[i].size > 0) {
+                maxKey = Math.max(maxKey, bitmaps[i].keys[bitmaps[i].size - 1]);
+            }
+        }
+        long[][] blocks = new long[maxKey + 1][];
+        for (int i = from; i < to; i++) {
+            IdBitmap bitmap = bitmaps[i];
+            for (int c = 0; c < bitmap.size; c++) {
+                char key = bitmap.keys[c];
+                if (blocks[key] == null) {
+                    blocks[key] = new long[BITMAP_WORDS];
+                }
+                bitmap.containers[c].orInto(blocks[key]);
+            }
+        }
+
+        IdBitmap result = new IdBitmap();
+        for (int key = 0; key <= maxKey; key++) {
+            if (blocks[key] != null) {
+                result.appendContainer((char) key, Container.fromWords(blocks[key]));
+            }
+        }
+        return result;
+    }
+
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertContainer(int index, char key, Container container) {
+        ensureCapacity();
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void appendContainer(char key, Container container) {
+        ensureCapacity();
+        keys[size] = key;
+        containers[size] = container;
+        size++;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    private void ensureCapacity() {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+    }
+
+    /**
+     * Bloque de 65536 ids: array ordenado si es disperso, mapa de bits si es denso.
+     */
+    private static final class Container {
+
+        private char[] values = new char[4];
+        private long[] words;
+        private int cardinality;
+
+        void add(char value) {
+            if (words != null) {
+                long mask = 1L << value;
+                if ((words[value >>> 6] & mask) == 0) {
+                    words[value >>> 6] |= mask;
+                    cardinality++;
+                }
+                return;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return;
+            }
+            if (cardinality == ARRAY_MAX) {
+                toBitmap();
+                add(value);
+                return;
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.max(4, Math.min(ARRAY_MAX, cardinality * 2)));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+        }
+
+        void remove(char value) {
+            if (words != null) {
+                long mask = 1L << value;
+                if ((words[value >>> 6] & mask) != 0) {
+                    words[value >>> 6] &= ~mask;
+                    cardinality--;
+                }
+                return;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+        }
+
+        boolean contains(char value) {
+            if (words != null) {
+                return (words[value >>> 6] & (1L << value)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        int next(int from) {
+            if (words != null) {
+                int word = from >>> 6;
+                if (word >= BITMAP_WORDS) {
+                    return -1;
+                }
+                long bits = words[word] & (-1L << from);
+                while (true) {
+                    if (bits != 0) {
+                        return (word << 6) + Long.numberOfTrailingZeros(bits);
+                    }
+                    if (++word == BITMAP_WORDS) {
+                        return -1;
+                    }
+                    bits = words[word];
+                }
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, (char) from);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index < cardinality ? values[index] : -1;
+        }
+
+        Container and(Container other) {
+            if (words != null && other.words != null) {
+                Container result = new Container();
+                result.words = new long[BITMAP_WORDS];
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    result.words[i] = words[i] & other.words[i];
+                    result.cardinality += Long.bitCount(result.words[i]);
+                }
+                return result.optimize();
+            }
+            Container sparse = words == null ? this : other;
+            Container probe = sparse == this ? other : this;
+            Container result = new Container();
+            result.values = new char[sparse.cardinality];
+            for (int i = 0; i < sparse.cardinality; i++) {
+                if (probe.contains(sparse.values[i])) {
+                    result.values[result.cardinality++] = sparse.values[i];
+                }
+            }
+            return result;
+        }
+
+        Container andNot(Container other) {
+            if (words != null) {
+                Container result = copy();
+                if (other.words != null) {
+                    result.cardinality = 0;
+                    for (int i = 0; i < BITMAP_WORDS; i++) {
+                        result.words[i] &= ~other.words[i];
+                        result.cardinality += Long.bitCount(result.words[i]);
+                    }
+                } else {
+                    for (int i = 0; i < other.cardinality; i++) {
+                        result.remove(other.values[i]);
+                    }
+                }
+                return result.optimize();
+            }
+            Container result = new Container();
+            result.values = new char[cardinality];
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) {
+                    result.values[result.cardinality++] = values[i];
+                }
+            }
+            return result;
+        }
+
+        void orInto(long[] target) {
+            if (words != null) {
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    target[i] |= words[i];
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    target[values[i] >>> 6] |= 1L << values[i];
+                }
+            }
+        }
+
+        static Container fromWords(long[] words) {
+            Container container = new Container();
+            container.words = words;
+            for (long word : words) {
+                container.cardinality += Long.bitCount(word);
+            }
+            return container.optimize();
+        }
+
+        Container copy() {
+            Container copy = new Container();
+            copy.cardinality = cardinality;
+            if (words != null) {
+                copy.words = words.clone();
+            } else {
+                copy.values = Arrays.copyOf(values, Math.max(4, cardinality));
+            }
+            return copy;
+        }
+
+        private void toBitmap() {
+            words = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        private Container optimize() {
+            if (words != null && cardinality <= ARRAY_MAX) {
+                values = new char[Math.max(4, cardinality)];
+                int n = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    long bits = words[i];
+                    while (bits != 0) {
+                        values[n++] = (char) ((i << 6) + Long.numberOfTrailingZeros(bits));
+                        bits &= bits - 1;
+                    }
+                }
+                words = null;
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package tom.example.tasks.store;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fichero de segmento de tamaño fijo mapeado en memoria. Los datos viven fuera del heap;
+ * el heap solo guarda la posición de escritura y los bytes vivos para decidir la compactación.
+ */
+final class LogSegment {
+
+    final int id;
+    final Path path;
+    final MappedByteBuffer buffer;
+    private final FileChannel channel;
+
+    int writePosition;
+    long liveBytes;
+
+    private LogSegment(int id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Abre un segmento existente con su tamaño actual o crea uno nuevo de {@code size} bytes.
+     */
+    static LogSegment open(Path directory, int id, int size) throws IOException {
+        Path path = directory.resolve(fileName(id));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        long existing = channel.size();
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, existing > 0 ? existing : size);
+        return new LogSegment(id, path, channel, buffer);
+    }
+
+    static String fileName(int id) {
+        return String.format("segment-%010d.log", id);
+    }
+
+    static int parseId(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith("segment-") || !name.endsWith(".log")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring("segment-".length(), name.length() - ".log".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    int remaining() {
+        return buffer.capacity() - writePosition;
+    }
+
+    int append(byte[] record, int length) {
+        int offset = writePosition;
+        buffer.put(offset, record, 0, length);
+        writePosition += length;
+        return offset;
+    }
+
+    /**
+     * Borra la cola a partir de una escritura incompleta para que la siguiente recuperación no la lea.
+     */
+    void truncate(int position) {
+        for (int i = position; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+        writePosition = position;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,147 @@
+package tom.example.tasks.store;
+
+import tom.example.tasks.model.Priority;
+import tom.example.tasks.model.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índices secundarios en memoria: fechas de vencimiento como array ordenado de días epoch con
+ * un bitmap de ids por día, y bitmaps comprimidos para prioridad, contexto, categoría y estado.
+ * Una consulta intersecta los bitmaps empezando por el más pequeño, sin recorrer las tareas.
+ */
+final class TaskIndex {
+
+    private final IdBitmap all = new IdBitmap();
+    private final IdBitmap completed = new IdBitmap();
+    private final IdBitmap[] byPriority = new IdBitmap[Priority.values().length + 1];
+    private final Map<String, IdBitmap> byContext = new HashMap<>();
+    private final Map<String, IdBitmap> byCategory = new HashMap<>();
+
+    private int[] dueDays = new int[16];
+    private IdBitmap[] dueBitmaps = new IdBitmap[16];
+    private int dueCount;
+
+    TaskIndex() {
+        for (int level = 0; level < byPriority.length; level++) {
+            byPriority[level] = new IdBitmap();
+        }
+    }
+
+    void add(Task task) {
+        int id = task.getId();
+        all.add(id);
+        if (task.isCompleted()) {
+            completed.add(id);
+        }
+        if (task.getPriority() != null) {
+            byPriority[task.getPriority().getLevel()].add(id);
+        }
+        if (task.getContext() != null) {
+            byContext.computeIfAbsent(task.getContext(), key -> new IdBitmap()).add(id);
+        }
+        if (task.getCategory() != null) {
+            byCategory.computeIfAbsent(task.getCategory(), key -> new IdBitmap()).add(id);
+        }
+        if (task.getDueDate() != null) {
+            dueBitmap((int) task.getDueDate().toEpochDay()).add(id);
+        }
+    }
+
+    void remove(Task task) {
+        int id = task.getId();
+        all.remove(id);
+        completed.remove(id);
+        if (task.getPriority() != null) {
+            byPriority[task.getPriority().getLevel()].remove(id);
+        }
+        if (task.getContext() != null && byContext.containsKey(task.getContext())) {
+            byContext.get(task.getContext()).remove(id);
+        }
+        if (task.getCategory() != null && byCategory.containsKey(task.getCategory())) {
+            byCategory.get(task.getCategory()).remove(id);
+        }
+        if (task.getDueDate() != null) {
+            int index = Arrays.binarySearch(dueDays, 0, dueCount, (int) task.getDueDate().toEpochDay());
+            if (index >= 0) {
+                dueBitmaps[index].remove(id);
+            }
+        }
+    }
+
+    /**
+     * Bitmap con los ids que cumplen todos los filtros de la consulta.
+     */
+    IdBitmap select(TaskQuery query) {
+        List<IdBitmap> filters = new ArrayList<>();
+        if (query.priority() != null) {
+            filters.add(byPriority[query.priority().getLevel()]);
+        }
+        if (query.context() != null) {
+            filters.add(byContext.getOrDefault(query.context(), new IdBitmap()));
+        }
+        if (query.category() != null) {
+            filters.add(byCategory.getOrDefault(query.category(), new IdBitmap()));
+        }
+        if (Boolean.TRUE.equals(query.completed())) {
+            filters.add(completed);
+        }
+        if (query.dueFrom() != null || query.dueTo() != null) {
+            filters.add(dueRange(query));
+        }
+
+        IdBitmap result;
+        if (filters.isEmpty()) {
+            result = all;
+        } else {
+            filters.sort(Comparator.comparingInt(IdBitmap::cardinality));
+            result = filters.get(0);
+            for (int i = 1; i < filters.size() && result.cardinality() > 0; i++) {
+                result = IdBitmap.and(result, filters.get(i));
+            }
+        }
+        if (Boolean.FALSE.equals(query.completed())) {
+            result = IdBitmap.andNot(result, completed);
+        }
+        return result;
+    }
+
+    private IdBitmap dueRange(TaskQuery query) {
+        int fromDay = query.dueFrom() != null ? (int) query.dueFrom().toEpochDay() : Integer.MIN_VALUE;
+        int toDay = query.dueTo() != null ? (int) query.dueTo().toEpochDay() : Integer.MAX_VALUE;
+        if (fromDay > toDay) {
+            return new IdBitmap();
+        }
+        int from = lowerBound(fromDay);
+        int to = toDay == Integer.MAX_VALUE ? dueCount : lowerBound(toDay + 1);
+        return IdBitmap.orAll(dueBitmaps, from, to);
+    }
+
+    private IdBitmap dueBitmap(int day) {
+        int index = Arrays.binarySearch(dueDays, 0, dueCount, day);
+        if (index >= 0) {
+            return dueBitmaps[index];
+        }
+        index = -index - 1;
+        if (dueCount == dueDays.length) {
+            dueDays = Arrays.copyOf(dueDays, dueCount * 2);
+            dueBitmaps = Arrays.copyOf(dueBitmaps, dueCount * 2);
+        }
+        System.arraycopy(dueDays, index, dueDays, index + 1, dueCount - index);
+        System.arraycopy(dueBitmaps, index, dueBitmaps, index + 1, dueCount - index);
+        dueDays[index] = day;
+        dueBitmaps[index] = new IdBitmap();
+        dueCount++;
+        return dueBitmaps[index];
+    }
+
+    private int lowerBound(int day) {
+        int index = Arrays.binarySearch(dueDays, 0, dueCount, day);
+        return index >= 0 ? index : -index - 1;
+    }
+}
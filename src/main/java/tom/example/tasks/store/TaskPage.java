@@ -0,0 +1,11 @@
+package tom.example.tasks.store;
+
+import tom.example.tasks.model.Task;
+
+import java.util.List;
+
+/**
+ * Página de resultados ordenada por id. {@code nextCursor} es null en la última página.
+ */
+public record TaskPage(List<Task> tasks, int total, Integer nextCursor) {
+}
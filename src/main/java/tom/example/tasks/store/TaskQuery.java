@@ -0,0 +1,19 @@
+package tom.example.tasks.store;
+
+import tom.example.tasks.model.Priority;
+
+import java.time.LocalDate;
+
+/**
+ * Filtros de consulta sobre el almacén. Los campos null no filtran; las fechas son inclusivas
+ * y el cursor es el último id de la página anterior.
+ */
+public record TaskQuery(LocalDate dueFrom,
+                        LocalDate dueTo,
+                        Priority priority,
+                        String context,
+                        String category,
+                        Boolean completed,
+                        Integer cursor,
+                        int limit) {
+}
@@ -0,0 +1,148 @@
+package tom.example.tasks.store;
+
+import tom.example.tasks.model.Priority;
+import tom.example.tasks.model.Task;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.CRC32C;
+
+/**
+ * Formato binario de un registro del log:
+ * [int longitud del cuerpo][int CRC32C del cuerpo][cuerpo].
+ * Cuerpo: [int id][byte completada][byte prioridad][long día epoch o MIN_VALUE]
+ * y título, descripción, categoría y contexto como [int longitud o -1][UTF-8].
+ * Una longitud 0 marca el final de los datos del segmento (el fichero se crea relleno de ceros).
+ */
+final class TaskRecordCodec {
+
+    static final int HEADER_BYTES = 8;
+
+    private static final long NO_DUE_DATE = Long.MIN_VALUE;
+    private static final int FIXED_BODY_BYTES = 4 + 1 + 1 + 8 + 4 * 4;
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    // Buffer reutilizable; solo se usa con el lock de escritura del almacén
+    private ByteBuffer scratch = ByteBuffer.allocate(512);
+    private final CRC32C crc = new CRC32C();
+
+    /**
+     * Codifica la tarea en el buffer interno y devuelve la longitud total del registro.
+     */
+    int encode(int id, Task task) {
+        byte[] title = bytes(task.getTitle());
+        byte[] description = bytes(task.getDescription());
+        byte[] category = bytes(task.getCategory());
+        byte[] context = bytes(task.getContext());
+        int bodyLength = FIXED_BODY_BYTES + length(title) + length(description) + length(category) + length(context);
+        ensureCapacity(HEADER_BYTES + bodyLength);
+
+        scratch.clear();
+        scratch.putInt(bodyLength);
+        scratch.putInt(0);
+        scratch.putInt(id);
+        scratch.put((byte) (task.isCompleted() ? 1 : 0));
+        scratch.put((byte) (task.getPriority() != null ? task.getPriority().ordinal() : -1));
+        scratch.putLong(task.getDueDate() != null ? task.getDueDate().toEpochDay() : NO_DUE_DATE);
+        putString(title);
+        putString(description);
+        putString(category);
+        putString(context);
+
+        crc.reset();
+        crc.update(scratch.array(), HEADER_BYTES, bodyLength);
+        scratch.putInt(4, (int) crc.getValue());
+        return HEADER_BYTES + bodyLength;
+    }
+
+    /**
+     * Copia un registro ya codificado al buffer interno (compactación).
+     */
+    int copy(ByteBuffer source, int offset) {
+        int length = recordLength(source, offset);
+        ensureCapacity(length);
+        source.get(offset, scratch.array(), 0, length);
+        return length;
+    }
+
+    byte[] buffer() {
+        return scratch.array();
+    }
+
+    /**
+     * Comprueba que el registro cabe en el segmento y que su CRC coincide (detecta escrituras a medias).
+     */
+    boolean isIntact(ByteBuffer source, int offset) {
+        int bodyLength = source.getInt(offset);
+        if (bodyLength < FIXED_BODY_BYTES || (long) offset + HEADER_BYTES + bodyLength > source.capacity()) {
+            return false;
+        }
+        crc.reset();
+        crc.update(source.slice(offset + HEADER_BYTES, bodyLength));
+        return (int) crc.getValue() == source.getInt(offset + 4);
+    }
+
+    static int recordLength(ByteBuffer source, int offset) {
+        return HEADER_BYTES + source.getInt(offset);
+    }
+
+    static int readId(ByteBuffer source, int offset) {
+        return source.getInt(offset + HEADER_BYTES);
+    }
+
+    /**
+     * Decodifica con lecturas absolutas: no modifica la posición del buffer y es seguro entre hilos.
+     */
+    static Task decode(ByteBuffer source, int offset) {
+        int position = offset + HEADER_BYTES;
+        Task task = new Task();
+        task.setId(source.getInt(position));
+        task.setCompleted(source.get(position + 4) != 0);
+        byte priority = source.get(position + 5);
+        task.setPriority(priority >= 0 ? PRIORITIES[priority] : null);
+        long dueDate = source.getLong(position + 6);
+        task.setDueDate(dueDate != NO_DUE_DATE ? LocalDate.ofEpochDay(dueDate) : null);
+        position += 14;
+
+        String[] fields = new String[4];
+        for (int i = 0; i < fields.length; i++) {
+            int length = source.getInt(position);
+            position += 4;
+            if (length >= 0) {
+                byte[] bytes = new byte[length];
+                source.get(position, bytes);
+                fields[i] = new String(bytes, StandardCharsets.UTF_8);
+                position += length;
+            }
+        }
+        task.setTitle(fields[0]);
+        task.setDescription(fields[1]);
+        task.setCategory(fields[2]);
+        task.setContext(fields[3]);
+        return task;
+    }
+
+    private void putString(byte[] value) {
+        if (value == null) {
+            scratch.putInt(-1);
+        } else {
+            scratch.putInt(value.length);
+            scratch.put(value);
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        if (scratch.capacity() < length) {
+            scratch = ByteBuffer.allocate(Math.max(length, scratch.capacity() * 2));
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int length(byte[] value) {
+        return value != null ? value.length : 0;
+    }
+}
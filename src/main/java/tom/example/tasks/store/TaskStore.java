@@ -0,0 +1,470 @@
+package tom.example.tasks.store;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import tom.example.tasks.model.Task;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Almacén embebido de tareas: log binario de solo-añadir repartido en segmentos mapeados en memoria.
+ * El índice por id es un long[] (segmento y offset empaquetados), así que el heap crece con el número
+ * de tareas y no con el tamaño de sus textos. Al arrancar se reconstruye el índice recorriendo los
+ * segmentos y se descarta la cola de una escritura interrumpida; la compactación reescribe los
+ * segmentos con muchas versiones obsoletas.
+ */
+@Component
+public class TaskStore {
+
+    /**
+     * Cuándo se fuerzan los segmentos a disco: tras cada escritura (agrupando escritores
+     * concurrentes), periódicamente o cuando decida el sistema operativo.
+     */
+    public enum FsyncPolicy { ALWAYS, INTERVAL, NEVER }
+
+    private static final long NO_LOCATION = -1L;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final double compactionGarbageRatio;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Orden de adquisición: syncLock antes que lock
+    private final Object syncLock = new Object();
+
+    private final TreeMap<Integer, LogSegment> segments = new TreeMap<>();
+    private final Set<LogSegment> dirtySegments = new LinkedHashSet<>();
+    private final TaskRecordCodec codec = new TaskRecordCodec();
+    private final TaskIndex taskIndex = new TaskIndex();
+    private LogSegment active;
+    private long[] locations = new long[0];
+    private int nextId = 1;
+    private int liveTasks;
+
+    private long appendSequence;
+    private long syncedSequence;
+    private long syncs;
+    private long compactions;
+    private long reclaimedBytes;
+
+    private final ScheduledExecutorService maintenance;
+
+    public TaskStore(@Value("${tasks.store.directory:data/tasks}") String directory,
+                     @Value("${tasks.store.segment-size:67108864}") int segmentSize,
+                     @Value("${tasks.store.fsync:INTERVAL}") FsyncPolicy fsyncPolicy,
+                     @Value("${tasks.store.fsync-interval:PT1S}") Duration fsyncInterval,
+                     @Value("${tasks.store.compaction-interval:PT10M}") Duration compactionInterval,
+                     @Value("${tasks.store.compaction-garbage-ratio:0.5}") double compactionGarbageRatio) throws IOException {
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = fsyncPolicy;
+        this.compactionGarbageRatio = compactionGarbageRatio;
+
+        recover();
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-store-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (fsyncPolicy == FsyncPolicy.INTERVAL && fsyncInterval.toMillis() > 0) {
+            maintenance.scheduleWithFixedDelay(() -> runMaintenance(this::sync),
+                fsyncInterval.toMillis(), fsyncInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (compactionInterval.toMillis() > 0) {
+            maintenance.scheduleWithFixedDelay(() -> runMaintenance(this::compact),
+                compactionInterval.toMillis(), compactionInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public Task save(Task task) {
+        saveAll(List.of(task));
+        return task;
+    }
+
+    /**
+     * Guarda las tareas en una sola escritura al log. Las que no tienen id reciben uno nuevo;
+     * las que ya lo tienen sustituyen a la versión anterior.
+     */
+    public List<Task> saveAll(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return tasks;
+        }
+        long sequence;
+        lock.writeLock().lock();
+        try {
+            for (Task task : tasks) {
+                int id;
+                if (task.getId() == null) {
+                    id = nextId;
+                } else if (task.getId() > 0) {
+                    id = task.getId();
+                } else {
+                    throw new IllegalArgumentException("Id de tarea no válido: " + task.getId());
+                }
+                if (id < locations.length && locations[id] != NO_LOCATION) {
+                    taskIndex.remove(decode(locations[id]));
+                }
+                int length = codec.encode(id, task);
+                long location = append(codec.buffer(), length);
+                index(id, location, length);
+                nextId = Math.max(nextId, id + 1);
+                task.setId(id);
+                taskIndex.add(task);
+            }
+            sequence = appendSequence;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            syncTo(sequence);
+        }
+        return tasks;
+    }
+
+    public Task findById(int id) {
+        lock.readLock().lock();
+        try {
+            if (id <= 0 || id >= locations.length || locations[id] == NO_LOCATION) {
+                return null;
+            }
+            return decode(locations[id]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Recorre la última versión de cada tarea en orden de id. Mantiene el lock de lectura
+     * mientras dura el recorrido, así que las escrituras esperan.
+     */
+    public void forEach(Consumer<Task> consumer) {
+        lock.readLock().lock();
+        try {
+            for (int id = 1; id < locations.length; id++) {
+                long location = locations[id];
+                if (location != NO_LOCATION) {
+                    consumer.accept(decode(location));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Consulta por índices secundarios: intersección de bitmaps y paginación por cursor en orden de id.
+     */
+    public TaskPage query(TaskQuery query) {
+        lock.readLock().lock();
+        try {
+            IdBitmap matches = taskIndex.select(query);
+            int limit = Math.max(1, query.limit());
+            List<Task> tasks = new ArrayList<>(Math.min(limit, 256));
+            int id = matches.nextId(query.cursor() != null ? query.cursor() + 1 : 1);
+            while (id >= 0 && tasks.size() < limit) {
+                tasks.add(decode(locations[id]));
+                id = matches.nextId(id + 1);
+            }
+            Integer nextCursor = id >= 0 ? tasks.get(tasks.size() - 1).getId() : null;
+            return new TaskPage(tasks, matches.cardinality(), nextCursor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveTasks;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fuerza a disco todo lo escrito hasta ahora.
+     */
+    public void sync() {
+        long sequence;
+        lock.readLock().lock();
+        try {
+            sequence = appendSequence;
+        } finally {
+            lock.readLock().unlock();
+        }
+        syncTo(sequence);
+    }
+
+    /**
+     * Reescribe los registros vivos de los segmentos cerrados cuya proporción de versiones
+     * obsoletas supera el umbral y borra esos ficheros. Devuelve los bytes liberados en disco.
+     */
+    public long compact() {
+        synchronized (syncLock) {
+            lock.writeLock().lock();
+            try {
+                List<LogSegment> candidates = new ArrayList<>();
+                for (LogSegment segment : segments.values()) {
+                    if (segment != active && garbageRatio(segment) >= compactionGarbageRatio) {
+                        candidates.add(segment);
+                    }
+                }
+                if (candidates.isEmpty()) {
+                    return 0;
+                }
+
+                for (LogSegment segment : candidates) {
+                    int position = 0;
+                    while (position < segment.writePosition) {
+                        int id = TaskRecordCodec.readId(segment.buffer, position);
+                        int length = TaskRecordCodec.recordLength(segment.buffer, position);
+                        if (locations[id] == location(segment.id, position)) {
+                            codec.copy(segment.buffer, position);
+                            index(id, append(codec.buffer(), length), length);
+                        }
+                        position += length;
+                    }
+                }
+
+                // Las copias deben estar en disco antes de borrar los originales
+                forceDirtySegments();
+                syncedSequence = appendSequence;
+
+                long reclaimed = 0;
+                for (LogSegment segment : candidates) {
+                    segments.remove(segment.id);
+                    reclaimed += segment.buffer.capacity();
+                    segment.delete();
+                }
+                compactions++;
+                reclaimedBytes += reclaimed;
+                return reclaimed;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error al compactar el almacén de tareas", e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            long diskBytes = 0;
+            long liveBytes = 0;
+            long usedBytes = 0;
+            for (LogSegment segment : segments.values()) {
+                diskBytes += segment.buffer.capacity();
+                liveBytes += segment.liveBytes;
+                usedBytes += segment.writePosition;
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("tasks", liveTasks);
+            stats.put("segments", segments.size());
+            stats.put("diskBytes", diskBytes);
+            stats.put("liveBytes", liveBytes);
+            stats.put("garbageBytes", usedBytes - liveBytes);
+            stats.put("indexBytes", (long) locations.length * Long.BYTES);
+            stats.put("fsyncPolicy", fsyncPolicy.name());
+            stats.put("syncs", syncs);
+            stats.put("compactions", compactions);
+            stats.put("reclaimedBytes", reclaimedBytes);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        maintenance.shutdownNow();
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            sync();
+        }
+        lock.writeLock().lock();
+        try {
+            for (LogSegment segment : segments.values()) {
+                segment.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing task store segments: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Commit en grupo: si otro escritor ya forzó hasta nuestra secuencia no hay que volver a hacerlo.
+     */
+    private void syncTo(long sequence) {
+        synchronized (syncLock) {
+            if (syncedSequence >= sequence) {
+                return;
+            }
+            long target;
+            List<LogSegment> pending;
+            lock.writeLock().lock();
+            try {
+                target = appendSequence;
+                pending = new ArrayList<>(dirtySegments);
+                dirtySegments.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            for (LogSegment segment : pending) {
+                segment.force();
+            }
+            syncedSequence = target;
+            syncs++;
+        }
+    }
+
+    private void forceDirtySegments() {
+        for (LogSegment segment : dirtySegments) {
+            segment.force();
+        }
+        dirtySegments.clear();
+        syncs++;
+    }
+
+    private long append(byte[] record, int length) {
+        if (length > segmentSize) {
+            throw new IllegalArgumentException("La tarea ocupa " + length + " bytes, más que un segmento");
+        }
+        if (active.remaining() < length) {
+            try {
+                // El segmento lleno sigue sucio hasta el próximo fsync
+                active = LogSegment.open(directory, active.id + 1, segmentSize);
+                segments.put(active.id, active);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo crear un segmento nuevo", e);
+            }
+        }
+        int offset = active.append(record, length);
+        dirtySegments.add(active);
+        appendSequence++;
+        return location(active.id, offset);
+    }
+
+    private void index(int id, long location, int length) {
+        if (id >= locations.length) {
+            int oldLength = locations.length;
+            locations = Arrays.copyOf(locations, Math.max(id + 1, Math.max(1024, oldLength * 2)));
+            Arrays.fill(locations, oldLength, locations.length, NO_LOCATION);
+        }
+        long previous = locations[id];
+        if (previous == NO_LOCATION) {
+            liveTasks++;
+        } else {
+            LogSegment old = segments.get(segmentOf(previous));
+            if (old != null) {
+                old.liveBytes -= TaskRecordCodec.recordLength(old.buffer, offsetOf(previous));
+            }
+        }
+        locations[id] = location;
+        segments.get(segmentOf(location)).liveBytes += length;
+    }
+
+    /**
+     * Reconstruye el índice leyendo los segmentos en orden: la última versión de cada id gana.
+     * Un registro cortado o con CRC incorrecto marca el final de los datos válidos del segmento.
+     */
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.mapToInt(LogSegment::parseId).filter(id -> id >= 0).forEach(ids::add);
+        }
+        ids.sort(null);
+
+        for (int segmentId : ids) {
+            LogSegment segment = LogSegment.open(directory, segmentId, segmentSize);
+            segments.put(segmentId, segment);
+
+            int position = 0;
+            while (position + TaskRecordCodec.HEADER_BYTES <= segment.buffer.capacity()
+                    && segment.buffer.getInt(position) != 0) {
+                if (!codec.isIntact(segment.buffer, position)) {
+                    System.err.println("Discarding torn record in " + segment.path + " at offset " + position);
+                    segment.truncate(position);
+                    break;
+                }
+                int id = TaskRecordCodec.readId(segment.buffer, position);
+                int length = TaskRecordCodec.recordLength(segment.buffer, position);
+                index(id, location(segmentId, position), length);
+                nextId = Math.max(nextId, id + 1);
+                position += length;
+            }
+            segment.writePosition = position;
+        }
+
+        // Los índices secundarios se construyen sobre la versión final de cada tarea
+        for (int id = 1; id < locations.length; id++) {
+            if (locations[id] != NO_LOCATION) {
+                taskIndex.add(decode(locations[id]));
+            }
+        }
+
+        if (segments.isEmpty()) {
+            active = LogSegment.open(directory, 0, segmentSize);
+            segments.put(active.id, active);
+        } else {
+            active = segments.lastEntry().getValue();
+        }
+    }
+
+    private Task decode(long location) {
+        return TaskRecordCodec.decode(segments.get(segmentOf(location)).buffer, offsetOf(location));
+    }
+
+    private void runMaintenance(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            System.err.println("Task store maintenance failed: " + e.getMessage());
+        }
+    }
+
+    private static double garbageRatio(LogSegment segment) {
+        if (segment.writePosition == 0) {
+            return 1.0;
+        }
+        return 1.0 - (double) segment.liveBytes / segment.writePosition;
+    }
+
+    private static long location(int segmentId, int offset) {
+        return ((long) segmentId << 32) | offset;
+    }
+
+    private static int segmentOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offsetOf(long location) {
+        return (int) location;
+    }
+}
@@ -0,0 +1,372 @@
+package tom.example.tasks.store;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Journal de escritura anticipada para los payloads de /webhook/email.
+ * Cada entrada se escribe en el segmento activo y se fuerza a disco con commit en grupo antes
+ * de procesarla; al terminar se añade un registro de confirmación (sin fsync). El checkpoint guarda
+ * la secuencia por debajo de la cual todo está confirmado, y se borran los segmentos en los que todos
+ * los registros (entradas y confirmaciones) quedan por debajo.
+ * Al arrancar se devuelven las entradas sin confirmar para volver a procesarlas.
+ */
+@Component
+public class WebhookJournal {
+
+    public record Entry(long sequence, byte[] payload) {
+    }
+
+    private static final byte ENTRY = 1;
+    private static final byte ACK = 2;
+    // [int longitud del cuerpo][int CRC32C][cuerpo: byte tipo, long secuencia, payload]
+    private static final int HEADER_BYTES = 8;
+    private static final int BODY_PREFIX_BYTES = 9;
+    private static final byte[] NO_PAYLOAD = new byte[0];
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final long segmentSize;
+
+    // Orden de adquisición: syncLock antes que writeLock
+    private final Object writeLock = new Object();
+    private final Object syncLock = new Object();
+
+    private final CRC32C crc = new CRC32C();
+    // Segmento → mayor secuencia que contiene, de entrada o de confirmación (0 si está vacío)
+    private final TreeMap<Integer, Long> segmentMaxSequence = new TreeMap<>();
+    private final ConcurrentSkipListSet<Long> pending = new ConcurrentSkipListSet<>();
+    private FileChannel active;
+    private int activeId;
+    private long activeSize;
+    private long nextSequence = 1;
+    private long writtenBytes;
+    private long syncedBytes;
+    private long syncs;
+    private long trimmedSegments;
+    private List<Entry> recovered = List.of();
+
+    private final ScheduledExecutorService maintenance;
+
+    public WebhookJournal(@Value("${webhook.journal.directory:data/journal}") String directory,
+                          @Value("${webhook.journal.segment-size:16777216}") long segmentSize,
+                          @Value("${webhook.journal.checkpoint-interval:PT5S}") Duration checkpointInterval) throws IOException {
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSize;
+
+        recover();
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "webhook-journal-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (checkpointInterval.toMillis() > 0) {
+            maintenance.scheduleWithFixedDelay(() -> {
+                try {
+                    checkpoint();
+                } catch (RuntimeException e) {
+                    System.err.println("Webhook journal checkpoint failed: " + e.getMessage());
+                }
+            }, checkpointInterval.toMillis(), checkpointInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Escribe el payload y espera a que esté en disco. Devuelve su número de secuencia.
+     */
+    public long append(byte[] payload) {
+        long sequence;
+        long end;
+        synchronized (writeLock) {
+            sequence = nextSequence++;
+            write(ENTRY, sequence, payload);
+            pending.add(sequence);
+            segmentMaxSequence.merge(activeId, sequence, Math::max);
+            end = writtenBytes;
+        }
+        syncTo(end);
+        return sequence;
+    }
+
+    /**
+     * Marca la entrada como procesada. La confirmación no se fuerza a disco: si se pierde,
+     * la entrada se vuelve a procesar al arrancar (entrega al menos una vez).
+     */
+    public void acknowledge(long sequence) {
+        if (!pending.remove(sequence)) {
+            return;
+        }
+        synchronized (writeLock) {
+            write(ACK, sequence, NO_PAYLOAD);
+            // Si la confirmación se borrase antes de que la marca de agua la supere, la entrada se repetiría
+            segmentMaxSequence.merge(activeId, sequence, Math::max);
+        }
+    }
+
+    /**
+     * Entradas sin confirmar encontradas al arrancar, en orden de llegada. Solo se devuelven una vez.
+     */
+    public synchronized List<Entry> takeRecovered() {
+        List<Entry> entries = recovered;
+        recovered = List.of();
+        return entries;
+    }
+
+    /**
+     * Guarda la marca de agua de confirmaciones y borra los segmentos que ya no hacen falta.
+     */
+    public void checkpoint() {
+        synchronized (syncLock) {
+            long watermark;
+            List<Integer> trimmable = new ArrayList<>();
+            synchronized (writeLock) {
+                watermark = pending.isEmpty() ? nextSequence : pending.first();
+                for (Map.Entry<Integer, Long> segment : segmentMaxSequence.entrySet()) {
+                    if (segment.getKey() != activeId && segment.getValue() < watermark) {
+                        trimmable.add(segment.getKey());
+                    }
+                }
+            }
+            try {
+                writeCheckpoint(watermark);
+                for (int segmentId : trimmable) {
+                    Files.deleteIfExists(directory.resolve(fileName(segmentId)));
+                    synchronized (writeLock) {
+                        segmentMaxSequence.remove(segmentId);
+                    }
+                    trimmedSegments++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo escribir el checkpoint del journal", e);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (writeLock) {
+            stats.put("pending", pending.size());
+            stats.put("nextSequence", nextSequence);
+            stats.put("segments", segmentMaxSequence.size());
+            stats.put("writtenBytes", writtenBytes);
+        }
+        synchronized (syncLock) {
+            stats.put("syncs", syncs);
+            stats.put("trimmedSegments", trimmedSegments);
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        maintenance.shutdownNow();
+        checkpoint();
+        synchronized (writeLock) {
+            try {
+                active.force(false);
+                active.close();
+            } catch (IOException e) {
+                System.err.println("Error closing webhook journal: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Commit en grupo: un solo fsync cubre todas las escrituras hechas hasta ese momento,
+     * así que los escritores que esperaban detrás no tienen que repetirlo.
+     */
+    private void syncTo(long end) {
+        synchronized (syncLock) {
+            if (syncedBytes >= end) {
+                return;
+            }
+            long target;
+            FileChannel channel;
+            synchronized (writeLock) {
+                target = writtenBytes;
+                channel = active;
+            }
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo forzar el journal a disco", e);
+            }
+            syncedBytes = target;
+            syncs++;
+        }
+    }
+
+    private void write(byte type, long sequence, byte[] payload) {
+        int bodyLength = BODY_PREFIX_BYTES + payload.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + bodyLength);
+        record.putInt(bodyLength).putInt(0).put(type).putLong(sequence).put(payload);
+        crc.reset();
+        crc.update(record.array(), HEADER_BYTES, bodyLength);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        try {
+            if (activeSize >= segmentSize) {
+                rollSegment();
+            }
+            while (record.hasRemaining()) {
+                active.write(record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir en el journal", e);
+        }
+        activeSize += record.limit();
+        writtenBytes += record.limit();
+    }
+
+    private void rollSegment() throws IOException {
+        // El segmento cerrado se fuerza aquí porque el siguiente fsync solo verá el nuevo
+        active.force(false);
+        active.close();
+        openSegment(activeId + 1);
+    }
+
+    private void openSegment(int segmentId) throws IOException {
+        active = FileChannel.open(directory.resolve(fileName(segmentId)), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        activeId = segmentId;
+        activeSize = active.size();
+        segmentMaxSequence.putIfAbsent(segmentId, 0L);
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        long watermark = readCheckpoint();
+
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.mapToInt(WebhookJournal::parseId).filter(id -> id >= 0).forEach(ids::add);
+        }
+        ids.sort(null);
+
+        TreeMap<Long, byte[]> unacknowledged = new TreeMap<>();
+        long maxSequence = watermark - 1;
+        for (int segmentId : ids) {
+            Path path = directory.resolve(fileName(segmentId));
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+            long maxRecord = 0;
+            int position = 0;
+            while (position + HEADER_BYTES <= data.limit()) {
+                int bodyLength = data.getInt(position);
+                if (bodyLength < BODY_PREFIX_BYTES || (long) position + HEADER_BYTES + bodyLength > data.limit()
+                        || !checksumMatches(data, position, bodyLength)) {
+                    break;
+                }
+                byte type = data.get(position + HEADER_BYTES);
+                long sequence = data.getLong(position + HEADER_BYTES + 1);
+                maxRecord = Math.max(maxRecord, sequence);
+                if (type == ENTRY) {
+                    maxSequence = Math.max(maxSequence, sequence);
+                    if (sequence >= watermark) {
+                        byte[] payload = new byte[bodyLength - BODY_PREFIX_BYTES];
+                        data.get(position + HEADER_BYTES + BODY_PREFIX_BYTES, payload);
+                        unacknowledged.put(sequence, payload);
+                    }
+                } else if (type == ACK) {
+                    unacknowledged.remove(sequence);
+                }
+                position += HEADER_BYTES + bodyLength;
+            }
+            if (position < data.limit()) {
+                System.err.println("Discarding torn journal tail in " + path + " at offset " + position);
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(position);
+                }
+            }
+            segmentMaxSequence.put(segmentId, maxRecord);
+        }
+
+        nextSequence = maxSequence + 1;
+        List<Entry> entries = new ArrayList<>(unacknowledged.size());
+        for (Map.Entry<Long, byte[]> entry : unacknowledged.entrySet()) {
+            entries.add(new Entry(entry.getKey(), entry.getValue()));
+            pending.add(entry.getKey());
+        }
+        recovered = entries;
+
+        // Siempre se abre un segmento nuevo: la cola del anterior puede estar truncada
+        openSegment(ids.isEmpty() ? 0 : ids.get(ids.size() - 1) + 1);
+    }
+
+    private boolean checksumMatches(ByteBuffer data, int position, int bodyLength) {
+        crc.reset();
+        crc.update(data.array(), position + HEADER_BYTES, bodyLength);
+        return (int) crc.getValue() == data.getInt(position + 4);
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path path = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(path)) {
+            return 1;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (data.limit() != 12) {
+            return 1;
+        }
+        crc.reset();
+        crc.update(data.array(), 0, 8);
+        return (int) crc.getValue() == data.getInt(8) ? data.getLong(0) : 1;
+    }
+
+    private void writeCheckpoint(long watermark) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(12).putLong(watermark);
+        CRC32C checksum = new CRC32C();
+        checksum.update(data.array(), 0, 8);
+        data.putInt((int) checksum.getValue()).flip();
+
+        Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(false);
+        }
+        Files.move(temporary, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String fileName(int segmentId) {
+        return String.format("journal-%010d.wal", segmentId);
+    }
+
+    private static int parseId(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith("journal-") || !name.endsWith(".wal")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring("journal-".length(), name.length() - ".wal".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
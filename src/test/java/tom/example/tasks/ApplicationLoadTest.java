@@ -0,0 +1,234 @@
+package tom.example.tasks;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import tom.example.tasks.support.GeminiStubServer;
+import tom.example.tasks.support.GeminiStubServer.Outcome;
+import tom.example.tasks.support.LoadGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Prueba de carga de extremo a extremo sin red: arranca la aplicación completa contra un
+ * {@link GeminiStubServer} y lanza /analyze-text y /webhook/email a ritmo fijo.
+ * No se ejecuta con mvn test (etiqueta "load"): se lanza con el perfil loadtest. Por defecto es una
+ * pasada corta de humo; para buscar el punto de saturación antes de una release:
+ * <pre>
+ * ./mvnw test -Ploadtest -Dloadtest.rates=50,100,200,400 -Dloadtest.duration=PT30S
+ * </pre>
+ * Antes del primer paso se lanza carga durante loadtest.warmup para que el JIT no distorsione las medidas.
+ * Propiedades: loadtest.rates (req/s por endpoint, separados por comas), loadtest.duration, loadtest.warmup,
+ * loadtest.latency-median, loadtest.latency-p99 (latencia log-normal del stub), loadtest.server-error-rate,
+ * loadtest.rate-limit-rate, loadtest.malformed-rate, loadtest.truncated-rate, loadtest.fenced-rate y
+ * loadtest.max-fallback-ratio (fracción máxima de extracciones con circuito abierto o error HTTP propio).
+ */
+@Tag("load")
+// Hilos virtuales como en producción: main() los activa, pero el contexto de test no pasa por main()
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "spring.threads.virtual.enabled=true")
+class ApplicationLoadTest {
+
+    private static final String STUB_RESPONSE = """
+        [
+          {"title": "Enviar el informe al cliente", "description": "Versión final", "dueDate": null, "priority": "ALTA"},
+          {"title": "Revisar el contrato", "description": null, "dueDate": null, "priority": "MEDIA"}
+        ]""";
+
+    private static final GeminiStubServer STUB = startStub();
+    private static final Path DATA_DIRECTORY = createDataDirectory();
+
+    @LocalServerPort
+    private int port;
+
+    private long stepCounter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${gemini.http.read-timeout:PT30S}")
+    private Duration readTimeout;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("gemini.api.key", () -> "load-test");
+        registry.add("gemini.api.base-url", STUB::getBaseUrl);
+        registry.add("tasks.store.directory", () -> DATA_DIRECTORY.resolve("tasks").toString());
+        registry.add("webhook.journal.directory", () -> DATA_DIRECTORY.resolve("journal").toString());
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.close();
+    }
+
+    @Test
+    void reportsThroughputLatencyAndFallbacksPerRate() throws Exception {
+        STUB.setResponseText(STUB_RESPONSE);
+        STUB.setLatency(GeminiStubServer.Latency.logNormal(
+            Duration.parse(System.getProperty("loadtest.latency-median", "PT0.05S")),
+            Duration.parse(System.getProperty("loadtest.latency-p99", "PT0.25S"))));
+        STUB.setServerErrorRate(doubleProperty("loadtest.server-error-rate", 0.02));
+        STUB.setRateLimitRate(doubleProperty("loadtest.rate-limit-rate", 0.02), 1);
+        STUB.setMalformedRate(doubleProperty("loadtest.malformed-rate", 0.02));
+        STUB.setTruncatedRate(doubleProperty("loadtest.truncated-rate", 0.02));
+        STUB.setFencedRate(doubleProperty("loadtest.fenced-rate", 0.5));
+
+        Duration duration = Duration.parse(System.getProperty("loadtest.duration", "PT3S"));
+        double[] rates = Arrays.stream(System.getProperty("loadtest.rates", "20").split(","))
+            .mapToDouble(rate -> Double.parseDouble(rate.trim()))
+            .toArray();
+
+        Duration warmup = Duration.parse(System.getProperty("loadtest.warmup", "PT2S"));
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        if (!warmup.isZero()) {
+            LoadGenerator.Result[] results = runStep(client, "calentamiento", rates[0], warmup);
+            // Si las llamadas agotan el timeout de lectura, la prueba mide los timeouts y no la aplicación
+            for (LoadGenerator.Result result : results) {
+                assertThat(result.percentileMillis(0.99)).isLessThan(readTimeout.toMillis());
+            }
+        }
+        for (double rate : rates) {
+            runStep(client, String.format("%.0f req/s por endpoint", rate), rate, duration);
+        }
+    }
+
+    private LoadGenerator.Result[] runStep(HttpClient client, String label, double rate, Duration duration)
+        throws Exception {
+        // Textos e ids de mensaje únicos en toda la prueba: ni la caché ni la deduplicación acortan el camino
+        long step = stepCounter++;
+        Map<Outcome, Long> outcomesBefore = stubOutcomes();
+        Map<String, Double> fallbacksBefore = fallbacks();
+        double requestsBefore = extractionRequests();
+        long stubRequestsBefore = STUB.getRequestCount();
+
+        CompletableFuture<LoadGenerator.Result> analyzeText = CompletableFuture.supplyAsync(() ->
+            generate(client, rate, duration, i -> post("/api/v1/analyze-text", """
+                {"text": "Tengo que enviar el informe %d-%d al cliente antes del viernes. Hay que revisar el contrato.",
+                 "context": "work"}""".formatted(step, i))));
+        CompletableFuture<LoadGenerator.Result> webhook = CompletableFuture.supplyAsync(() ->
+            generate(client, rate, duration, i -> post("/api/v1/webhook/email", """
+                {"sender": "cliente%d@empresa.com", "subject": "Informe pendiente",
+                 "body": "Necesito que me envíes el informe %d-%d antes del viernes.",
+                 "metadata": {"messageId": "load-%d-%d"}}""".formatted(i, step, i, step, i))));
+        LoadGenerator.Result analyzeTextResult = analyzeText.get();
+        LoadGenerator.Result webhookResult = webhook.get();
+
+        Map<Outcome, Long> outcomes = stubOutcomes();
+        outcomes.replaceAll((outcome, count) -> count - outcomesBefore.get(outcome));
+        Map<String, Double> fallbacks = fallbacks();
+        fallbacks.replaceAll((reason, count) -> count - fallbacksBefore.get(reason));
+        double requests = extractionRequests() - requestsBefore;
+        long stubRequests = STUB.getRequestCount() - stubRequestsBefore;
+        double totalFallbacks = fallbacks.values().stream().mapToDouble(Double::doubleValue).sum();
+        // Los 429 no cuentan: se reintentan tras su Retry-After
+        long stubFailures = outcomes.get(Outcome.SERVER_ERROR) + outcomes.get(Outcome.MALFORMED);
+
+        System.out.printf("== %s durante %s ==%n", label, duration);
+        System.out.printf("  /analyze-text  : %s%n", analyzeTextResult);
+        System.out.printf("  /webhook/email : %s%n", webhookResult);
+        System.out.printf("  Gemini stub    : %s%n", outcomes);
+        System.out.printf("  Fallbacks      : %.0f de %.0f extracciones (%.1f%%) %s%n",
+            totalFallbacks, requests, requests > 0 ? 100 * totalFallbacks / requests : 0, fallbacks);
+
+        // El servicio recurre a la IA local ante cualquier fallo de Gemini: nunca debe devolver un error
+        assertThat(analyzeTextResult.count(200)).isEqualTo(analyzeTextResult.requests());
+        assertThat(webhookResult.count(200)).isEqualTo(webhookResult.requests());
+        // Cada fallo del stub produce un fallback; el resto son timeouts, falta de cuota o el circuito abierto
+        assertThat(totalFallbacks - fallbacks.get("circuit_open") - fallbacks.get("rate_limited"))
+            .isGreaterThanOrEqualTo(stubFailures);
+        // Todo eso solo vale si el paso ha medido de verdad el camino de Gemini
+        double maxFallbacks = doubleProperty("loadtest.max-fallback-ratio", 0.1) * requests;
+        assertThat(stubRequests).as("llamadas atendidas por el stub").isPositive();
+        assertThat(fallbacks.get("circuit_open")).as("fallbacks con el circuito abierto").isLessThanOrEqualTo(maxFallbacks);
+        assertThat(fallbacks.get("http_error") - outcomes.get(Outcome.SERVER_ERROR))
+            .as("errores HTTP que no son 500 del stub").isLessThanOrEqualTo(maxFallbacks);
+        return new LoadGenerator.Result[] { analyzeTextResult, webhookResult };
+    }
+
+    private static LoadGenerator.Result generate(HttpClient client, double rate, Duration duration,
+                                                 IntFunction<HttpRequest> requests) {
+        try {
+            return LoadGenerator.run(client, rate, duration, requests);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(json))
+            .build();
+    }
+
+    private Map<String, Double> fallbacks() {
+        Map<String, Double> fallbacks = new LinkedHashMap<>();
+        for (String reason : new String[] { "no_api_key", "circuit_open", "rate_limited", "http_error", "parse_error" }) {
+            fallbacks.put(reason, meterRegistry.get("tasks.extraction.fallbacks")
+                .tag("operation", "extraction")
+                .tag("reason", reason)
+                .counter()
+                .count());
+        }
+        return fallbacks;
+    }
+
+    private double extractionRequests() {
+        return meterRegistry.get("tasks.extraction.tasks.per.request").summary().count();
+    }
+
+    private static Map<Outcome, Long> stubOutcomes() {
+        Map<Outcome, Long> outcomes = new EnumMap<>(Outcome.class);
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, STUB.getOutcomeCount(outcome));
+        }
+        return outcomes;
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    private static GeminiStubServer startStub() {
+        try {
+            return GeminiStubServer.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path createDataDirectory() {
+        try {
+            return Files.createTempDirectory("tasks-load-test");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
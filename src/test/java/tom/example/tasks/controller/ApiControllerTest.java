@@ -0,0 +1,77 @@
+package tom.example.tasks.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.ResponseEntity;
+
+import tom.example.tasks.dto.ApiResponse;
+import tom.example.tasks.dto.TaskExportDto;
+import tom.example.tasks.model.Priority;
+import tom.example.tasks.model.Task;
+import tom.example.tasks.service.ExtractionMetrics;
+import tom.example.tasks.store.TaskStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ApiControllerTest {
+
+    @TempDir
+    Path directory;
+
+    private TaskStore store;
+    private ApiController controller;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new TaskStore(directory.toString(), 1 << 16, TaskStore.FsyncPolicy.NEVER, Duration.ZERO, Duration.ZERO, 0.5);
+        controller = new ApiController(null, null, null, null, store, null, null, null, null,
+            new ExtractionMetrics(new SimpleMeterRegistry()), new ObjectMapper().findAndRegisterModules());
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void queryTasksFiltersByPriority() {
+        store.saveAll(List.of(task("Enviar el informe", Priority.ALTA), task("Comprar leche", Priority.BAJA)));
+
+        ResponseEntity<ApiResponse<List<TaskExportDto>>> response =
+            controller.queryTasks(null, null, " alta ", null, null, null, null, 50);
+
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(response.getBody().getData()).extracting(TaskExportDto::getTitle).containsExactly("Enviar el informe");
+    }
+
+    @Test
+    void queryTasksReportsEachInvalidParameterWithItsOwnMessage() {
+        ResponseEntity<ApiResponse<List<TaskExportDto>>> badPriority =
+            controller.queryTasks(null, null, "URGENTE", null, null, null, null, 50);
+        ResponseEntity<ApiResponse<List<TaskExportDto>>> badCursor =
+            controller.queryTasks(null, null, "ALTA", null, null, null, -5, 50);
+
+        assertThat(badPriority.getStatusCode().value()).isEqualTo(400);
+        assertThat(badPriority.getBody().getMessage()).isEqualTo("Prioridad no válida: URGENTE");
+        assertThat(badCursor.getStatusCode().value()).isEqualTo(400);
+        assertThat(badCursor.getBody().getMessage()).isEqualTo("Error al consultar tareas: Cursor no válido: -5");
+    }
+
+    private static Task task(String title, Priority priority) {
+        Task task = new Task();
+        task.setTitle(title);
+        task.setPriority(priority);
+        task.setContext("work");
+        task.setCategory("work");
+        return task;
+    }
+}
@@ -0,0 +1,137 @@
+package tom.example.tasks.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import tom.example.tasks.dto.ApiResponse;
+import tom.example.tasks.dto.JobStatus;
+import tom.example.tasks.dto.TaskExportDto;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmailIngestionQueueTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void rejectsWithRetryAfterWhenQueueIsFull() throws Exception {
+        EmailIngestionQueue queue = new EmailIngestionQueue(1, 1, Duration.ofMinutes(1), 100, Duration.ofSeconds(1),
+            objectMapper);
+        CountDownLatch release = new CountDownLatch(1);
+
+        JobStatus running = queue.submit(() -> {
+            await(release);
+            return success();
+        }, null);
+        queue.submit(this::success, null);
+
+        assertThatThrownBy(() -> queue.submit(this::success, null))
+            .isInstanceOf(EmailIngestionQueue.QueueFullException.class)
+            .satisfies(e -> assertThat(((EmailIngestionQueue.QueueFullException) e).getRetryAfterSeconds()).isPositive());
+
+        release.countDown();
+        waitForState(queue, running.getJobId(), "SUCCEEDED");
+        assertThat(queue.getStatus(running.getJobId()).getResult().isSuccess()).isTrue();
+        queue.shutdown();
+    }
+
+    @Test
+    void failedProcessingIsReportedOnTheJob() throws Exception {
+        EmailIngestionQueue queue = new EmailIngestionQueue(2, 10, Duration.ofMinutes(1), 100, Duration.ofSeconds(1),
+            objectMapper);
+
+        JobStatus job = queue.submit(() -> {
+            throw new IllegalStateException("sin conexión");
+        }, null);
+
+        waitForState(queue, job.getJobId(), "FAILED");
+        assertThat(queue.getStatus(job.getJobId()).getError()).contains("sin conexión");
+        queue.shutdown();
+    }
+
+    @Test
+    void finishedJobsArePrunedEvenBehindASlowerOlderJob() throws Exception {
+        EmailIngestionQueue queue = new EmailIngestionQueue(2, 10, Duration.ofMinutes(1), 3, Duration.ofSeconds(1),
+            objectMapper);
+        CountDownLatch release = new CountDownLatch(1);
+        JobStatus slow = queue.submit(() -> {
+            await(release);
+            return success();
+        }, null);
+
+        List<String> quick = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            JobStatus job = queue.submit(this::success, null);
+            waitForState(queue, job.getJobId(), "SUCCEEDED");
+            quick.add(job.getJobId());
+        }
+
+        // El primero sigue en curso, pero los rápidos que acabaron antes se olvidan igualmente
+        assertThat(queue.getStats()).containsEntry("trackedJobs", 3);
+        assertThat(queue.getStatus(slow.getJobId()).getStatus()).isEqualTo("RUNNING");
+        assertThat(queue.getStatus(quick.get(0))).isNull();
+        assertThat(queue.getStatus(quick.get(4)).getStatus()).isEqualTo("SUCCEEDED");
+
+        release.countDown();
+        waitForState(queue, slow.getJobId(), "SUCCEEDED");
+        queue.shutdown();
+    }
+
+    @Test
+    void postsFinalStatusToCallbackUrl() throws Exception {
+        CompletableFuture<String> callbackBody = new CompletableFuture<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/done", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+            callbackBody.complete(body);
+        });
+        server.start();
+        EmailIngestionQueue queue = new EmailIngestionQueue(1, 10, Duration.ofMinutes(1), 100, Duration.ofSeconds(5),
+            objectMapper);
+        try {
+            JobStatus job = queue.submit(this::success, "http://127.0.0.1:" + server.getAddress().getPort() + "/done");
+
+            String body = callbackBody.get(5, TimeUnit.SECONDS);
+            assertThat(body).contains(job.getJobId()).contains("\"status\":\"SUCCEEDED\"");
+        } finally {
+            queue.shutdown();
+            server.stop(0);
+        }
+    }
+
+    private ApiResponse<List<TaskExportDto>> success() {
+        ApiResponse<List<TaskExportDto>> response = new ApiResponse<>();
+        response.setSuccess(true);
+        response.setData(List.of());
+        return response;
+    }
+
+    private static void waitForState(EmailIngestionQueue queue, String jobId, String state) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!state.equals(queue.getStatus(jobId).getStatus()) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(queue.getStatus(jobId).getStatus()).isEqualTo(state);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package tom.example.tasks.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailPreprocessorTest {
+
+    private final EmailPreprocessor preprocessor = new EmailPreprocessor();
+
+    @Test
+    void convertsHtmlAndDropsQuotedReplySignatureAndDisclaimer() {
+        String html = """
+            <html><head><style>p{margin:0}</style></head><body><div dir="ltr">
+            <div>Necesito el informe antes del viernes.&nbsp;Tambi&eacute;n hay que revisar el contrato.</div>
+            <div><br></div><div>Un saludo,</div><div>Carlos G&oacute;mez<br>Director Comercial | ACME S.L.</div>
+            <p>AVISO LEGAL: Este mensaje es confidencial y se dirige exclusivamente a su destinatario.</p>
+            </div><div class="gmail_quote"><div class="gmail_attr">El jue, 17 jul 2025 a las 18:42, Marta
+            (&lt;marta@acme.example&gt;) escribi&oacute;:<br></div><blockquote class="gmail_quote">
+            <div>&iquest;Para cu&aacute;ndo necesitas el informe?</div></blockquote></div></body></html>""";
+
+        EmailPreprocessor.Result result = preprocessor.preprocess("RE: Re: Informe", html);
+
+        assertThat(result.text()).isEqualTo("""
+            Asunto: Informe
+            Necesito el informe antes del viernes. También hay que revisar el contrato.""");
+        assertThat(result.bytesSaved()).isPositive();
+        assertThat(result.tokensSaved()).isEqualTo(
+            EmailPreprocessor.estimateTokens(result.originalBytes()) - EmailPreprocessor.estimateTokens(result.cleanedBytes()));
+    }
+
+    @Test
+    void cutsPlainTextHistoryAtOutlookHeadersAndDropsQuotedLines() {
+        String body = """
+            Hi team,
+
+            Please send the signed SOW to the client by Thursday.
+            > Can you also book the venue?
+            Priya will book the venue.
+
+            Sent from my iPhone
+
+            -----Original Message-----
+            From: Priya Shah <priya@northwind.example>
+            Sent: Tuesday, July 15, 2025 4:12 PM
+
+            I need the final headcount first.""";
+
+        assertThat(preprocessor.preprocess(null, body).text()).isEqualTo("""
+            Hi team,
+
+            Please send the signed SOW to the client by Thursday.
+            Priya will book the venue.""");
+    }
+
+    @Test
+    void keepsForwardedContentAndSignOffsFollowedByMoreText() {
+        String forward = """
+            ---------- Forwarded message ---------
+            From: Luis <luis@example.com>
+            Date: Mon, 14 Jul 2025
+            Subject: Factura
+
+            Hay que pagar la factura 2025-114 antes del día 30.""";
+        assertThat(preprocessor.preprocess(null, forward).text())
+            .isEqualTo("Hay que pagar la factura 2025-114 antes del día 30.");
+
+        String body = "Gracias\nPor cierto, hay que enviar el presupuesto al cliente mañana sin falta.\n\nSaludos,\nAna";
+        assertThat(preprocessor.preprocess(null, body).text())
+            .isEqualTo("Gracias\nPor cierto, hay que enviar el presupuesto al cliente mañana sin falta.");
+    }
+
+    @Test
+    void keepsContentThatOnlyLooksLikeADisclaimerOrASignature() {
+        String reminder = "Hola equipo,\n\nEste mensaje es para recordaros que hay que revisar el contrato legal antes del "
+            + "viernes.\n\nTambién hay que enviar el informe al cliente.\n\nSaludos,\nMarta";
+        assertThat(preprocessor.preprocess(null, reminder).text()).isEqualTo("""
+            Hola equipo,
+
+            Este mensaje es para recordaros que hay que revisar el contrato legal antes del viernes.
+
+            También hay que enviar el informe al cliente.""");
+
+        String afterSignOff = "Hola Ana,\n\nGracias!\nPor favor envíame el informe antes del viernes\n"
+            + "Y reserva la sala para el lunes";
+        assertThat(preprocessor.preprocess(null, afterSignOff).text()).isEqualTo("""
+            Hola Ana,
+
+            Gracias!
+            Por favor envíame el informe antes del viernes
+            Y reserva la sala para el lunes""");
+    }
+
+    @Test
+    void dropsTrailingDisclaimersAndSignatureBlocks() {
+        String body = """
+            Hay que revisar el contrato antes del viernes.
+
+            Un saludo,
+            Carlos Gómez
+            Responsable de Compras
+            Tel: +34 600 123 456
+            www.acme.example
+
+            Este mensaje y sus adjuntos son confidenciales y se dirigen exclusivamente a su destinatario.
+            Si lo ha recibido por error, notifíquelo al remitente y
+            elimínelo.
+
+            Antes de imprimir este correo, piense en el medio ambiente.""";
+        assertThat(preprocessor.preprocess(null, body).text()).isEqualTo("Hay que revisar el contrato antes del viernes.");
+
+        String separated = """
+            Enviar el presupuesto mañana.
+            __________________________________
+            This message is intended only for the named recipient.
+            Please send the budget to finance as well.""";
+        assertThat(preprocessor.preprocess(null, separated).text()).isEqualTo("Enviar el presupuesto mañana.");
+    }
+
+    @Test
+    void sendsTheWholeBodyWhenOnlyQuotedTextIsLeft() {
+        assertThat(preprocessor.preprocess(null, "> Revisar el contrato\n>   antes del lunes").text())
+            .isEqualTo("> Revisar el contrato\n> antes del lunes");
+    }
+}
@@ -0,0 +1,58 @@
+package tom.example.tasks.service;
+
+import org.junit.jupiter.api.Test;
+
+import tom.example.tasks.model.Task;
+import tom.example.tasks.service.ExtractionMetrics.Route;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExtractionRouterTest {
+
+    private final ExtractionRouter router = new ExtractionRouter(new TaskPatternMatcher());
+
+    @Test
+    void bulletedSpanishListsAreRoutedLocally() {
+        ExtractionRouter.Decision decision = router.route("""
+            Pendientes de la semana:
+            - Enviar el informe al cliente
+            - Revisar el contrato con legal
+            1) Reservar la sala para el lunes""", 0.8);
+
+        assertThat(decision.route()).isEqualTo(Route.LOCAL);
+        assertThat(decision.listItems()).isEqualTo(3);
+    }
+
+    @Test
+    void proseAndEnglishTextsGoToGemini() {
+        ExtractionRouter.Decision prose = router.route(
+            "Ayer hablé con Marta sobre el proyecto. Cree que el cliente no está contento con el diseño "
+                + "y quizá convenga replantear la propuesta antes de la próxima reunión.", 0.8);
+        ExtractionRouter.Decision english = router.route("""
+            - Send the report to the client
+            - Review the contract with legal""", 0.8);
+
+        assertThat(prose.route()).isEqualTo(Route.GEMINI);
+        assertThat(english.route()).isEqualTo(Route.GEMINI);
+        assertThat(english.englishRatio()).isGreaterThan(0.5);
+    }
+
+    @Test
+    void shadowComparisonToleratesRewordedTitles() {
+        List<Task> local = List.of(task("Enviar el informe al cliente"), task("Revisar el contrato"));
+
+        assertThat(ExtractionRouter.agree(local, List.of(task("Revisar contrato"), task("Enviar informe al cliente"))))
+            .isTrue();
+        assertThat(ExtractionRouter.agree(local, List.of(task("Enviar informe al cliente")))).isFalse();
+        assertThat(ExtractionRouter.agree(local, List.of(task("Enviar informe al cliente"), task("Llamar al banco"))))
+            .isFalse();
+    }
+
+    private static Task task(String title) {
+        Task task = new Task();
+        task.setTitle(title);
+        return task;
+    }
+}
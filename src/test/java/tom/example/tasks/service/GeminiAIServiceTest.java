@@ -0,0 +1,337 @@
+package tom.example.tasks.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import tom.example.tasks.controller.ApiController;
+import tom.example.tasks.dto.ApiResponse;
+import tom.example.tasks.dto.BatchAnalysisResult;
+import tom.example.tasks.dto.TaskExportDto;
+import tom.example.tasks.dto.TextAnalysisRequest;
+import tom.example.tasks.model.Priority;
+import tom.example.tasks.model.Task;
+import tom.example.tasks.store.TaskStore;
+import tom.example.tasks.support.GeminiAIServiceFixture;
+import tom.example.tasks.support.GeminiStubServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class GeminiAIServiceTest {
+
+    private GeminiStubServer stub;
+    private SimpleMeterRegistry registry;
+    private GeminiCircuitBreaker circuitBreaker;
+    private GeminiAIService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = GeminiStubServer.start();
+        registry = new SimpleMeterRegistry();
+        circuitBreaker = GeminiAIServiceFixture.defaultCircuitBreaker();
+        service = GeminiAIServiceFixture.against(stub).circuitBreaker(circuitBreaker).registry(registry).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void analyzePrioritiesScoresChunksAndFallsBackPerEntry() {
+        ReflectionTestUtils.setField(service, "priorityChunkSize", 2);
+        stub.setResponseText("```json\n{\"t0\": \"CRITICA\", \"t1\": \"no sé\", \"t2\": \"BAJA\"}\n```");
+
+        List<Task> tasks = new ArrayList<>();
+        for (String title : List.of("Preparar demo", "Entrega del proyecto", "Leer artículo", "Regar plantas")) {
+            Task task = new Task();
+            task.setTitle(title);
+            tasks.add(task);
+        }
+
+        List<Priority> priorities = service.analyzePriorities(tasks, "work");
+
+        // Dos bloques de dos tareas: t0/t1 en el primero, t2/t3 en el segundo
+        assertThat(stub.getRequestCount()).isEqualTo(2);
+        assertThat(priorities).containsExactly(Priority.CRITICA, Priority.ALTA, Priority.BAJA, Priority.MEDIA);
+    }
+
+    @Test
+    void extractionFallbacksAreCountedByReason() {
+        // Respuesta sin array JSON: error de parseo
+        stub.setResponseText("No he encontrado tareas en el texto.");
+        service.extractTasksFromText("Tengo que enviar el informe mañana", "work");
+
+        // Nadie escucha en el puerto 1: error HTTP
+        ReflectionTestUtils.setField(service, "apiBaseUrl", "http://127.0.0.1:1");
+        service.extractTasksFromText("Tengo que llamar al banco hoy", "work");
+
+        ReflectionTestUtils.setField(service, "apiKey", "");
+        service.extractTasksFromText("Hay que revisar el contrato", "work");
+
+        assertThat(fallbacks("parse_error")).isEqualTo(1.0);
+        assertThat(fallbacks("http_error")).isEqualTo(1.0);
+        assertThat(fallbacks("no_api_key")).isEqualTo(1.0);
+        assertThat(fallbacks("circuit_open")).isZero();
+        assertThat(registry.get("tasks.extraction.stage").tag("stage", "gemini_call").timer().count()).isEqualTo(2);
+        assertThat(registry.get("tasks.extraction.stage").tag("stage", "local_extraction").timer().count()).isEqualTo(3);
+        assertThat(registry.get("tasks.extraction.tasks.per.request").summary().count()).isEqualTo(3);
+    }
+
+    @Test
+    void longTextIsExtractedInParallelChunksAndMergedInOrder() {
+        ReflectionTestUtils.setField(service, "chunkMaxChars", 120);
+        ReflectionTestUtils.setField(service, "chunkMaxConcurrency", 4);
+        stub.setLatency(Duration.ofMillis(500));
+        // Todos los trozos devuelven las mismas tareas: solo deben quedar una vez
+        stub.setResponseText("""
+            [{"title": "Enviar el informe", "dueDate": null, "priority": "ALTA"},
+             {"title": "Revisar el contrato", "dueDate": "2025-08-01", "priority": "MEDIA"}]""");
+        String text = String.join("\n\n", List.of(
+            "Tengo que enviar el informe al cliente antes del viernes y revisar el contrato con legal.",
+            "También hay que preparar la reunión del lunes con el equipo y reservar la sala grande.",
+            "Recuerda llamar al banco para confirmar la transferencia y actualizar la hoja de gastos.",
+            "Por último, hay que revisar el contrato otra vez cuando llegue la versión firmada."));
+
+        long start = System.nanoTime();
+        List<Task> tasks = service.extractTasksFromText(text, "work");
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(stub.getRequestCount()).isEqualTo(4);
+        // Cuatro llamadas de 500 ms en paralelo, no en serie (2 s)
+        assertThat(elapsed).isLessThan(Duration.ofMillis(1500));
+        assertThat(tasks).extracting(Task::getTitle).containsExactly("Enviar el informe", "Revisar el contrato");
+    }
+
+    @Test
+    void bulletedListsAreRoutedLocallyAndShadowModeComparesBothPaths() {
+        List<Task> local = service.extractTasksFromText("- Enviar el informe al cliente\n- Revisar el contrato con legal", "work");
+
+        assertThat(stub.getRequestCount()).isZero();
+        assertThat(local).hasSize(2);
+        assertThat(registry.get("tasks.router.decisions").tag("route", "local").counter().count()).isEqualTo(1.0);
+
+        // Con muestreo total, una petición enviada a Gemini también pasa por la vía local
+        ReflectionTestUtils.setField(service, "routerShadowSampleRate", 1.0);
+        stub.setResponseText("[{\"title\": \"Preparar la demo\", \"dueDate\": null, \"priority\": \"ALTA\"}]");
+        List<Task> tasks = service.extractTasksFromText("Tengo que enviar el informe mañana", "work");
+
+        assertThat(stub.getRequestCount()).isEqualTo(1);
+        assertThat(tasks).extracting(Task::getTitle).containsExactly("Preparar la demo");
+        assertThat(registry.get("tasks.router.shadow.comparisons")
+            .tag("route", "gemini")
+            .tag("outcome", "disagree")
+            .counter()
+            .count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void batchDocumentsAreSplitAcrossPromptsAndMappedById() {
+        ReflectionTestUtils.setField(service, "batchMaxDocuments", 2);
+        // El stub devuelve siempre lo mismo: cada prompt solo toma los identificadores de sus documentos
+        stub.setResponseText("""
+            ```json
+            {"d0": [{"title": "Enviar el informe", "dueDate": null, "priority": "ALTA"}],
+             "d1": [],
+             "d2": [{"title": "Pagar el alquiler", "priority": "CRITICA"},
+                    {"title": "Llamar al casero", "priority": "BAJA"}],
+             "d9": [{"title": "No pertenece al lote"}]}
+            ```""");
+
+        List<List<Task>> results = service.extractTasksFromTexts(List.of(
+            new TextAnalysisRequest("Tengo que enviar el informe", "work"),
+            new TextAnalysisRequest("Nada pendiente por hoy", "personal"),
+            new TextAnalysisRequest("Hay que pagar el alquiler y llamar al casero", "personal")));
+
+        assertThat(stub.getRequestCount()).isEqualTo(2);
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0)).extracting(Task::getTitle, Task::getContext)
+            .containsExactly(tuple("Enviar el informe", "work"));
+        assertThat(results.get(1)).isEmpty();
+        assertThat(results.get(2)).extracting(Task::getTitle, Task::getPriority)
+            .containsExactly(tuple("Pagar el alquiler", Priority.CRITICA), tuple("Llamar al casero", Priority.BAJA));
+        assertThat(fallbacks("parse_error")).isZero();
+    }
+
+    @Test
+    void batchDocumentsWithoutAValidEntryFallBackToLocalExtraction() {
+        // d0 completo, d1 truncado a mitad de elemento y d2 ausente
+        stub.setResponseText("{\"d0\": [{\"title\": \"Enviar el informe\", \"priority\": \"ALTA\"}], "
+            + "\"d1\": [{\"title\": \"Revisar el contr");
+        List<TextAnalysisRequest> documents = List.of(
+            new TextAnalysisRequest("Tengo que enviar el informe", "work"),
+            new TextAnalysisRequest("Tengo que revisar el contrato mañana", "work"),
+            new TextAnalysisRequest("Hay que llamar al banco hoy", "personal"));
+
+        List<List<Task>> results = service.extractTasksFromTexts(documents);
+
+        assertThat(stub.getRequestCount()).isEqualTo(1);
+        assertThat(results.get(0)).extracting(Task::getTitle).containsExactly("Enviar el informe");
+        assertThat(results.get(1)).isNotEmpty().allMatch(task -> "work".equals(task.getContext()));
+        assertThat(results.get(2)).isNotEmpty().allMatch(task -> "personal".equals(task.getContext()));
+        assertThat(fallbacks("parse_error")).isEqualTo(2.0);
+
+        // Sin ningún objeto JSON en la respuesta, todo el lote va a la IA local
+        stub.setResponseText("No he encontrado tareas.");
+        List<List<Task>> local = service.extractTasksFromTexts(List.of(
+            new TextAnalysisRequest("Tengo que preparar la reunión", "work")));
+
+        assertThat(local.get(0)).isNotEmpty();
+        assertThat(fallbacks("parse_error")).isEqualTo(3.0);
+    }
+
+    @Test
+    void analyzeBatchReturnsOneResultPerDocumentInOrder() {
+        stub.setResponseText("""
+            {"d0": [{"title": "Enviar el informe", "priority": "ALTA"}],
+             "d1": [{"title": "Pagar el alquiler", "priority": "CRITICA"}]}""");
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        ApiController controller = new ApiController(service, null, null, null, null, null, null, null, null,
+            new ExtractionMetrics(registry), objectMapper);
+
+        ResponseEntity<ApiResponse<List<BatchAnalysisResult>>> response = controller.analyzeBatch(List.of(
+            new TextAnalysisRequest("Tengo que enviar el informe", "work"),
+            new TextAnalysisRequest("Hay que pagar el alquiler", "personal")));
+
+        ApiResponse<List<BatchAnalysisResult>> body = response.getBody();
+        assertThat(body.isSuccess()).isTrue();
+        assertThat(body.getCount()).isEqualTo(2);
+        assertThat(body.getData()).extracting(BatchAnalysisResult::getIndex, BatchAnalysisResult::getContext,
+                BatchAnalysisResult::getCount)
+            .containsExactly(tuple(0, "work", 1), tuple(1, "personal", 1));
+        assertThat(body.getData().get(1).getTasks()).extracting(TaskExportDto::getTitle, TaskExportDto::getPriority)
+            .containsExactly(tuple("Pagar el alquiler", "CRITICA"));
+        assertThat(stub.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void clientDisconnectsDuringStreamingAreNotCountedAsGeminiFailures() {
+        stub.setResponseText("[{\"title\": \"Enviar el informe\", \"priority\": \"ALTA\"}, {\"title\": \"Revisar el contrato\"}]");
+        List<Task> delivered = new ArrayList<>();
+
+        // El cliente se desconecta al recibir la primera tarea: el error le llega a quien escribe, sin fallback
+        assertThatThrownBy(() -> service.streamTasksFromText("Tengo que enviar el informe mañana", "work", task -> {
+            delivered.add(task);
+            throw new UncheckedIOException(new IOException("Broken pipe"));
+        })).isInstanceOf(UncheckedIOException.class);
+
+        assertThat(stub.getRequestCount()).isEqualTo(1);
+        assertThat(delivered).extracting(Task::getTitle).containsExactly("Enviar el informe");
+        assertThat(circuitBreaker.getStatus()).containsEntry("windowCalls", 0).containsEntry("windowFailures", 0);
+    }
+
+    @Test
+    void analyzeTextStreamMergesRepeatsAndSavesEachTask(@TempDir Path directory) throws Exception {
+        stub.setResponseText("""
+            [{"title": "Enviar el informe al cliente", "priority": "MEDIA"},
+             {"title": "Enviar informe al cliente", "priority": "CRITICA"},
+             {"title": "Enviar informe al cliente"},
+             {"title": "Reservar la sala", "priority": "BAJA"}]""");
+
+        TaskStore store = taskStore(directory);
+        try {
+            List<String> lines = stream(streamingController(store), "sse");
+
+            assertThat(lines).filteredOn(line -> line.startsWith("event: "))
+                .containsExactly("event: task", "event: update", "event: task", "event: done");
+            assertThat(lines).filteredOn(line -> line.startsWith("data: "))
+                .last().isEqualTo("data: {\"count\":2}");
+            assertThat(store.findById(1).getPriority()).isEqualTo(Priority.CRITICA);
+            assertThat(store.findById(2).getTitle()).isEqualTo("Reservar la sala");
+            assertThat(store.findById(3)).isNull();
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void analyzeTextStreamEndsWithAnErrorWhenGeminiFailsMidStream(@TempDir Path directory) throws Exception {
+        stub.setResponseText("""
+            [{"title": "Enviar el informe al cliente", "priority": "ALTA"},
+             {"title": "Reservar la sala para la reunión del lunes", "priority": "BAJA"}]""");
+        stub.setTruncatedRate(1.0);
+
+        TaskStore store = taskStore(directory);
+        try {
+            List<String> lines = stream(streamingController(store), "ndjson");
+
+            assertThat(lines).hasSize(2);
+            assertThat(lines.get(0)).contains("\"title\":\"Enviar el informe al cliente\"");
+            assertThat(lines.get(1)).contains("\"error\":\"Error al analizar texto").contains("\"count\":1");
+            assertThat(store.findById(1)).isNotNull();
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void analyzeTextAfterAStreamCreatesNewTasksFromTheCachedResult(@TempDir Path directory) throws Exception {
+        service = GeminiAIServiceFixture.against(stub).circuitBreaker(circuitBreaker).registry(registry)
+            .resultCache(new TaskResultCache(100, Duration.ofHours(1), 1 << 20, Clock.systemDefaultZone()))
+            .build();
+        stub.setResponseText("""
+            [{"title": "Enviar el informe al cliente", "priority": "ALTA"},
+             {"title": "Reservar la sala", "priority": "BAJA"}]""");
+
+        TaskStore store = taskStore(directory);
+        try {
+            ApiController controller = streamingController(store);
+            stream(controller, "ndjson");
+            ResponseEntity<ApiResponse<List<TaskExportDto>>> response = controller.analyzeText(
+                new TextAnalysisRequest("Tengo que enviar el informe al cliente mañana", "work"));
+
+            // El segundo análisis sale de la caché, pero sus tareas son nuevas: no sustituyen a las del stream
+            assertThat(stub.getRequestCount()).isEqualTo(1);
+            assertThat(response.getBody().getData()).extracting(TaskExportDto::getId).containsExactly(3, 4);
+            assertThat(store.size()).isEqualTo(4);
+            assertThat(store.findById(1).getTitle()).isEqualTo("Enviar el informe al cliente");
+            assertThat(store.findById(2).getTitle()).isEqualTo("Reservar la sala");
+        } finally {
+            store.close();
+        }
+    }
+
+    private TaskStore taskStore(Path directory) throws IOException {
+        return new TaskStore(directory.toString(), 1 << 16, TaskStore.FsyncPolicy.NEVER, Duration.ZERO, Duration.ZERO, 0.5);
+    }
+
+    private ApiController streamingController(TaskStore store) {
+        return new ApiController(service, null, null, null, store, null, null,
+            new TaskDeduplicator(0.6, 1000, Duration.ofDays(14), 100, 10_000), null,
+            new ExtractionMetrics(registry), new ObjectMapper().findAndRegisterModules());
+    }
+
+    private static List<String> stream(ApiController controller, String format) throws IOException {
+        ResponseEntity<StreamingResponseBody> response = controller.analyzeTextStream(
+            new TextAnalysisRequest("Tengo que enviar el informe al cliente mañana", "work"), format);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toString(StandardCharsets.UTF_8).lines().filter(line -> !line.isEmpty()).toList();
+    }
+
+    private double fallbacks(String reason) {
+        return registry.get("tasks.extraction.fallbacks")
+            .tag("operation", "extraction")
+            .tag("reason", reason)
+            .counter()
+            .count();
+    }
+}
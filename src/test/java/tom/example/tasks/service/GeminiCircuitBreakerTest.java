@@ -0,0 +1,94 @@
+package tom.example.tasks.service;
+
+import org.junit.jupiter.api.Test;
+
+import tom.example.tasks.service.GeminiCircuitBreaker.Permit;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GeminiCircuitBreakerTest {
+
+    @Test
+    void opensWhenFailureRateExceedsThreshold() {
+        GeminiCircuitBreaker breaker = new GeminiCircuitBreaker(10, 4, 50, Duration.ofMinutes(1), 2);
+
+        for (int i = 0; i < 3; i++) {
+            Permit permit = breaker.tryAcquire();
+            assertThat(permit).isNotNull();
+            breaker.onSuccess(permit);
+        }
+        for (int i = 0; i < 3; i++) {
+            Permit permit = breaker.tryAcquire();
+            assertThat(permit).isNotNull();
+            breaker.onFailure(permit);
+        }
+
+        assertThat(breaker.getState()).isEqualTo(GeminiCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isNull();
+    }
+
+    @Test
+    void halfOpenAllowsLimitedProbesAndClosesAfterSuccesses() {
+        GeminiCircuitBreaker breaker = new GeminiCircuitBreaker(4, 2, 50, Duration.ZERO, 2);
+        breaker.onFailure(breaker.tryAcquire());
+        breaker.onFailure(breaker.tryAcquire());
+        assertThat(breaker.getState()).isEqualTo(GeminiCircuitBreaker.State.OPEN);
+
+        Permit first = breaker.tryAcquire();
+        Permit second = breaker.tryAcquire();
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(breaker.tryAcquire()).isNull();
+        assertThat(breaker.getState()).isEqualTo(GeminiCircuitBreaker.State.HALF_OPEN);
+
+        breaker.onSuccess(first);
+        breaker.onSuccess(second);
+
+        assertThat(breaker.getState()).isEqualTo(GeminiCircuitBreaker.State.CLOSED);
+        assertThat(breaker.getStatus()).containsKey("transitions");
+    }
+
+    @Test
+    void failedProbeReopensCircuit() {
+        GeminiCircuitBreaker breaker = new GeminiCircuitBreaker(2, 1, 50, Duration.ZERO, 1);
+        breaker.onFailure(breaker.tryAcquire());
+
+        Permit probe = breaker.tryAcquire();
+        assertThat(probe).isNotNull();
+        breaker.onFailure(probe);
+
+        assertThat(breaker.getState()).isEqualTo(GeminiCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void resultsOfCallsAuthorizedBeforeATransitionAreIgnored() {
+        GeminiCircuitBreaker breaker = new GeminiCircuitBreaker(2, 1, 50, Duration.ZERO, 1);
+        // Una llamada lenta autorizada con el circuito cerrado
+        Permit slow = breaker.tryAcquire();
+        breaker.onFailure(breaker.tryAcquire());
+        assertThat(breaker.getState()).isEqualTo(GeminiCircuitBreaker.State.OPEN);
+
+        // Su éxito tardío no cuenta como prueba superada
+        Permit probe = breaker.tryAcquire();
+        breaker.onSuccess(slow);
+        assertThat(breaker.getState()).isEqualTo(GeminiCircuitBreaker.State.HALF_OPEN);
+
+        breaker.onSuccess(probe);
+        assertThat(breaker.getState()).isEqualTo(GeminiCircuitBreaker.State.CLOSED);
+
+        // Ni su fallo tardío reabre un circuito ya cerrado de nuevo
+        breaker.onFailure(slow);
+        assertThat(breaker.getState()).isEqualTo(GeminiCircuitBreaker.State.CLOSED);
+        assertThat(breaker.getStatus()).containsEntry("windowFailures", 0);
+    }
+
+    @Test
+    void rejectsAnEmptyWindow() {
+        assertThatThrownBy(() -> new GeminiCircuitBreaker(0, 0, 50, Duration.ofSeconds(30), 3))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("window-size");
+    }
+}
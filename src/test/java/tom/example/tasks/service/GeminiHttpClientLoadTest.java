@@ -0,0 +1,53 @@
+package tom.example.tasks.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import tom.example.tasks.config.GeminiHttpClientConfig;
+import tom.example.tasks.model.Task;
+import tom.example.tasks.support.GeminiAIServiceFixture;
+import tom.example.tasks.support.GeminiStubServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeminiHttpClientLoadTest {
+
+    private static final int REQUESTS = 100;
+
+    @Test
+    void pooledClientOnVirtualThreadsCompletesEveryConcurrentCall() throws Exception {
+        // El rendimiento frente al pool fijo de hilos se mide en GeminiHttpClientBenchmark (perfil jmh)
+        try (GeminiStubServer stub = GeminiStubServer.start()) {
+            stub.setLatency(Duration.ofMillis(50));
+            stub.setResponseText("[{\"title\": \"Llamar al cliente\", \"priority\": \"ALTA\"}]");
+
+            GeminiHttpClientConfig config = new GeminiHttpClientConfig();
+            RestTemplate pooled = config.geminiRestTemplate(
+                config.geminiHttpClient(Duration.ofSeconds(2)), Duration.ofSeconds(10));
+
+            run(GeminiAIServiceFixture.against(stub).restTemplate(pooled).build(), Executors.newVirtualThreadPerTaskExecutor());
+
+            assertThat(stub.getRequestCount()).isEqualTo(REQUESTS);
+        }
+    }
+
+    private static void run(GeminiAIService service, ExecutorService executor) throws Exception {
+        try (executor) {
+            List<Future<List<Task>>> futures = new ArrayList<>(REQUESTS);
+            for (int i = 0; i < REQUESTS; i++) {
+                String text = "Llamar al cliente número " + i;
+                futures.add(executor.submit(() -> service.extractTasksFromText(text, "work")));
+            }
+            for (Future<List<Task>> future : futures) {
+                assertThat(future.get()).extracting(Task::getTitle).containsExactly("Llamar al cliente");
+            }
+        }
+    }
+}
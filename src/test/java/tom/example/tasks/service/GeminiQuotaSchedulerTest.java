@@ -0,0 +1,138 @@
+package tom.example.tasks.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import tom.example.tasks.model.Task;
+import tom.example.tasks.service.GeminiQuotaScheduler.Urgency;
+import tom.example.tasks.support.GeminiAIServiceFixture;
+import tom.example.tasks.support.GeminiStubServer;
+import tom.example.tasks.support.GeminiStubServer.Outcome;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GeminiQuotaSchedulerTest {
+
+    private GeminiStubServer stub;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = GeminiStubServer.start();
+        stub.setResponseText("[{\"title\": \"Enviar el informe\", \"dueDate\": null, \"priority\": \"ALTA\"}]");
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void burstIsSpreadAcrossKeysWithinTheirQuota() throws Exception {
+        // El stub admite 6 peticiones por segundo y clave; el planificador se queda algo por debajo (300/min,
+        // ráfaga de 1 s), como con la API real, porque la latencia de red desplaza un bucket respecto al otro
+        stub.setQuota(6, Duration.ofSeconds(1));
+        GeminiAIService service = service("key-a,key-b",
+            new GeminiQuotaScheduler(300, 0, Duration.ofSeconds(1), Duration.ofSeconds(10), 100, Duration.ofSeconds(1)));
+        // Una llamada por clave abre las conexiones y arranca los buckets del stub a la vez que los del planificador
+        service.extractTasksFromText("Tengo que preparar la reunión", "work");
+        service.extractTasksFromText("Tengo que revisar el contrato", "work");
+
+        List<List<Task>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<Task>>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                String text = "Tengo que enviar el informe número " + i;
+                futures.add(executor.submit(() -> service.extractTasksFromText(text, "work")));
+            }
+            for (Future<List<Task>> future : futures) {
+                results.add(future.get());
+            }
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        // Ráfaga de 8 (lo que queda en los buckets) y el resto a 10/s: ni un 429 ni un fallback, pero tarda más de 1 s
+        assertThat(stub.getOutcomeCount(Outcome.RATE_LIMITED)).isZero();
+        assertThat(stub.getRequestCount("key-a") + stub.getRequestCount("key-b")).isEqualTo(22);
+        assertThat(stub.getRequestCount("key-a")).isBetween(9L, 13L);
+        assertThat(results).allSatisfy(tasks ->
+            assertThat(tasks).extracting(Task::getTitle).containsExactly("Enviar el informe"));
+        assertThat(elapsed).isGreaterThan(Duration.ofMillis(1000));
+    }
+
+    @Test
+    void rateLimitedCallsWaitForRetryAfterInsteadOfFallingBack() {
+        // Sin límite en el cliente: el stub admite una petición por segundo y responde 429 a la segunda
+        stub.setQuota(1, Duration.ofSeconds(1));
+        GeminiAIService service = service("key-a",
+            new GeminiQuotaScheduler(0, 0, Duration.ofMinutes(1), Duration.ofSeconds(10), 100, Duration.ofSeconds(10)));
+
+        service.extractTasksFromText("Tengo que enviar el informe mañana", "work");
+        long start = System.nanoTime();
+        List<Task> tasks = service.extractTasksFromText("Tengo que enviar el informe el lunes", "work");
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(stub.getOutcomeCount(Outcome.RATE_LIMITED)).isEqualTo(1);
+        assertThat(stub.getRequestCount()).isEqualTo(3);
+        assertThat(tasks).extracting(Task::getTitle).containsExactly("Enviar el informe");
+        // Retry-After: 1 del stub
+        assertThat(elapsed).isGreaterThan(Duration.ofMillis(900));
+        assertThat(registry.get("tasks.extraction.fallbacks").counters())
+            .allSatisfy(counter -> assertThat(counter.count()).isZero());
+    }
+
+    @Test
+    void interactiveCallsOvertakeQueuedBackgroundOnes() throws Exception {
+        // Una petición cada 250 ms y sin ráfaga
+        GeminiQuotaScheduler scheduler = new GeminiQuotaScheduler(
+            240, 0, Duration.ofMillis(250), Duration.ofSeconds(10), 100, Duration.ofSeconds(1));
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        scheduler.execute(List.of("key-a"), Urgency.BACKGROUND, 0, lease -> order.add("first"));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                futures.add(executor.submit(() ->
+                    scheduler.execute(List.of("key-a"), Urgency.BACKGROUND, 0, lease -> order.add("background"))));
+            }
+            while (scheduler.queued(Urgency.BACKGROUND) < 3) {
+                Thread.sleep(5);
+            }
+            futures.add(executor.submit(() ->
+                scheduler.execute(List.of("key-a"), Urgency.INTERACTIVE, 0, lease -> order.add("interactive"))));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertThat(order).containsExactly("first", "interactive", "background", "background", "background");
+    }
+
+    @Test
+    void callsGiveUpAfterMaxWait() throws Exception {
+        GeminiQuotaScheduler scheduler = new GeminiQuotaScheduler(
+            1, 0, Duration.ofMinutes(1), Duration.ofMillis(200), 100, Duration.ofSeconds(1));
+        scheduler.execute(List.of("key-a"), Urgency.INTERACTIVE, 0, lease -> lease.key());
+
+        assertThatThrownBy(() -> scheduler.execute(List.of("key-a"), Urgency.INTERACTIVE, 0, lease -> lease.key()))
+            .isInstanceOf(GeminiQuotaScheduler.QuotaExhaustedException.class);
+        assertThat(scheduler.getStats()).containsEntry("granted", 1L).containsEntry("timedOut", 1L);
+    }
+
+    private GeminiAIService service(String apiKeys, GeminiQuotaScheduler scheduler) {
+        return GeminiAIServiceFixture.against(stub).apiKey(apiKeys).quotaScheduler(scheduler).registry(registry).build();
+    }
+}
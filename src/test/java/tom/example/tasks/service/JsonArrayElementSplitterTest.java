@@ -0,0 +1,28 @@
+package tom.example.tasks.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonArrayElementSplitterTest {
+
+    @Test
+    void emitsEachObjectAsSoonAsItCloses() {
+        List<String> elements = new ArrayList<>();
+        JsonArrayElementSplitter splitter = new JsonArrayElementSplitter(elements::add);
+
+        splitter.feed("```json\n[\n  {\"title\": \"Llamar {al} cliente\", ");
+        assertThat(elements).isEmpty();
+
+        splitter.feed("\"priority\": \"ALTA\"},\n  {\"title\": \"Comillas \\\"}\\\" ok\"");
+        assertThat(elements).containsExactly("{\"title\": \"Llamar {al} cliente\", \"priority\": \"ALTA\"}");
+
+        splitter.feed(", \"tags\": [\"a\"]}\n]\n```");
+        assertThat(elements).hasSize(2);
+        assertThat(elements.get(1)).isEqualTo("{\"title\": \"Comillas \\\"}\\\" ok\", \"tags\": [\"a\"]}");
+        assertThat(splitter.isComplete()).isTrue();
+    }
+}
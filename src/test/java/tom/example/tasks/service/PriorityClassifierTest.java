@@ -0,0 +1,68 @@
+package tom.example.tasks.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import tom.example.tasks.model.Priority;
+import tom.example.tasks.service.PriorityModel.Example;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PriorityClassifierTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void modelLoadedFromTheBinaryFilePredictsLikeTheTrainedOne() throws Exception {
+        List<Example> examples = PriorityClassifierTrainer.readCorpus(corpus());
+        PriorityModel model = PriorityModel.train(examples, PriorityClassifierTrainer.DEFAULT_BITS,
+            PriorityClassifierTrainer.DEFAULT_ALPHA);
+        Path file = directory.resolve("priority-model.bin");
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(file))) {
+            model.write(output);
+        }
+
+        PriorityClassifier classifier = new PriorityClassifier(file.toString());
+
+        assertThat(classifier.isLoaded()).isTrue();
+        PriorityModel.Scorer scorer = new PriorityModel.Scorer();
+        for (Example example : examples) {
+            assertThat(classifier.classify(example.title(), example.description(), example.context()))
+                .isEqualTo(model.predict(example.title(), example.description(), example.context(), scorer));
+        }
+        assertThat(classifier.classify("El servidor de producción está caído", null, "work")).isEqualTo(Priority.CRITICA);
+        assertThat(classifier.classify("Ordenar los cajones cuando pueda", null, "personal")).isEqualTo(Priority.BAJA);
+    }
+
+    @Test
+    void crossValidatedClassifierBeatsKeywordRules() throws Exception {
+        PriorityClassifierTrainer.Report report = PriorityClassifierTrainer.crossValidate(
+            PriorityClassifierTrainer.readCorpus(corpus()), PriorityClassifierTrainer.DEFAULT_FOLDS,
+            PriorityClassifierTrainer.DEFAULT_BITS, PriorityClassifierTrainer.DEFAULT_ALPHA);
+
+        assertThat(report.classifier().accuracy()).isGreaterThan(report.keywords().accuracy());
+        assertThat(report.classifier().macroF1()).isGreaterThan(report.keywords().macroF1());
+    }
+
+    @Test
+    void withoutModelPathTheClassifierIsDisabled() {
+        PriorityClassifier classifier = new PriorityClassifier("");
+
+        assertThat(classifier.isLoaded()).isFalse();
+        assertThatThrownBy(() -> classifier.classify("Enviar el informe", null, null))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static Path corpus() throws URISyntaxException {
+        return Path.of(PriorityClassifierTest.class.getResource("/priority/tasks.tsv").toURI());
+    }
+}
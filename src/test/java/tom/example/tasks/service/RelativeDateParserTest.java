@@ -0,0 +1,111 @@
+package tom.example.tasks.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RelativeDateParserTest {
+
+    private static final ZoneId MADRID = ZoneId.of("Europe/Madrid");
+    // Miércoles
+    private static final Clock CLOCK = Clock.fixed(ZonedDateTime.of(2025, 7, 16, 10, 0, 0, 0, MADRID).toInstant(), MADRID);
+
+    private final RelativeDateParser parser = new RelativeDateParser(CLOCK);
+
+    @Test
+    void resolvesEveryExpressionOfTheCorpus() throws IOException {
+        List<String[]> expressions = expressions();
+        List<String> failures = new ArrayList<>();
+        for (String[] expression : expressions) {
+            LocalDate expected = expression[1].equals("-") ? null : LocalDate.parse(expression[1]);
+            LocalDate actual = parser.parse(expression[0]);
+            if (!Objects.equals(expected, actual)) {
+                failures.add(expression[0] + " -> " + actual + " (esperado " + expected + ")");
+            }
+        }
+
+        assertThat(failures).isEmpty();
+    }
+
+    @Test
+    void tablesFollowTheClockAcrossMidnight() {
+        MutableClock clock = new MutableClock(ZonedDateTime.of(2025, 7, 16, 23, 59, 0, 0, MADRID).toInstant(), MADRID);
+        RelativeDateParser rolling = new RelativeDateParser(clock);
+
+        assertThat(rolling.parse("Enviar mañana")).isEqualTo(LocalDate.of(2025, 7, 17));
+        assertThat(rolling.parse("el jueves")).isEqualTo(LocalDate.of(2025, 7, 17));
+
+        clock.advance(Duration.ofMinutes(2));
+
+        assertThat(rolling.parse("Enviar mañana")).isEqualTo(LocalDate.of(2025, 7, 18));
+        // Hoy es jueves: "el jueves" pasa a ser el de la semana siguiente
+        assertThat(rolling.parse("el jueves")).isEqualTo(LocalDate.of(2025, 7, 24));
+    }
+
+    @Test
+    void parsesOnlyTheRequestedRangeAndKeepsTheFirstExpression() {
+        String text = "Llamar hoy y enviar el informe el viernes";
+
+        assertThat(parser.parse(text)).isEqualTo(LocalDate.of(2025, 7, 16));
+        assertThat(parser.parse(text, text.indexOf("enviar"), text.length())).isEqualTo(LocalDate.of(2025, 7, 18));
+        assertThat(parser.parse("")).isNull();
+    }
+
+    private static List<String[]> expressions() throws IOException {
+        List<String[]> expressions = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                RelativeDateParserTest.class.getResourceAsStream("/dates/expressions.tsv"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank() && !line.startsWith("#")) {
+                    expressions.add(line.split("\t"));
+                }
+            }
+        }
+        return expressions;
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+        private final ZoneId zone;
+
+        MutableClock(Instant now, ZoneId zone) {
+            this.now = now;
+            this.zone = zone;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return new MutableClock(now, zone);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package tom.example.tasks.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersWithSameKeyShareOneExecution() throws Exception {
+        SingleFlight<String, List<String>> flights = new SingleFlight<>(ArrayList::new);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> flights.execute("misma clave", () -> {
+                    executions.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return List.of("tarea");
+                })));
+            }
+            while ((long) flights.getStats().get("coalesced") < callers - 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<List<String>> result : results) {
+                assertThat(result.get()).containsExactly("tarea");
+            }
+        }
+
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(flights.getStats()).containsEntry("executions", 1L).containsEntry("inFlight", 0);
+    }
+
+    @Test
+    void followersDoNotSeeChangesTheLeaderMakesToItsResult() throws Exception {
+        SingleFlight<String, List<String>> flights = new SingleFlight<>(ArrayList::new);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<List<String>> leader = executor.submit(() -> flights.execute("k", () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new ArrayList<>(List.of("tarea"));
+            }));
+            while ((long) flights.getStats().get("executions") < 1) {
+                Thread.sleep(5);
+            }
+            Future<List<String>> follower = executor.submit(() -> flights.execute("k", List::of));
+            while ((long) flights.getStats().get("coalesced") < 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            leader.get().add("modificada por el llamador original");
+
+            assertThat(follower.get()).containsExactly("tarea");
+        }
+    }
+
+    @Test
+    void failuresAreSharedAndKeyIsReleased() {
+        SingleFlight<String, String> flights = new SingleFlight<>(value -> value);
+
+        try {
+            flights.execute("k", () -> {
+                throw new IllegalStateException("fallo");
+            });
+        } catch (IllegalStateException expected) {
+            // esperado
+        }
+
+        assertThat(flights.execute("k", () -> "ok")).isEqualTo("ok");
+    }
+}
@@ -0,0 +1,105 @@
+package tom.example.tasks.service;
+
+import org.junit.jupiter.api.Test;
+
+import tom.example.tasks.model.Priority;
+import tom.example.tasks.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskDeduplicatorTest {
+
+    private final TaskDeduplicator deduplicator = new TaskDeduplicator(0.6, 1000, Duration.ofDays(14), 100, 10_000);
+
+    @Test
+    void mergesRewordedTasksKeepingHighestPriorityAndEarliestDate() {
+        List<Task> tasks = deduplicator.deduplicate(List.of(
+            task("Enviar el informe al cliente", Priority.MEDIA, LocalDate.of(2025, 8, 10)),
+            task("Comprar leche", Priority.BAJA, null),
+            task("Enviar informe al cliente", Priority.ALTA, LocalDate.of(2025, 8, 5)),
+            task("Comprar pan", Priority.BAJA, null)));
+
+        assertThat(tasks).extracting(Task::getTitle)
+            .containsExactly("Enviar el informe al cliente", "Comprar leche", "Comprar pan");
+        assertThat(tasks.get(0).getPriority()).isEqualTo(Priority.ALTA);
+        assertThat(tasks.get(0).getDueDate()).isEqualTo(LocalDate.of(2025, 8, 5));
+    }
+
+    @Test
+    void incrementalBatchMergesRepeatsAsTheyArrive() {
+        TaskDeduplicator.IncrementalBatch batch = deduplicator.startBatch();
+        Task first = task("Enviar el informe al cliente", Priority.MEDIA, null);
+
+        assertThat(batch.accept(first)).isSameAs(first);
+        // Sube la prioridad: se devuelve la tarea ya aceptada, fusionada
+        assertThat(batch.accept(task("Enviar informe al cliente", Priority.ALTA, null))).isSameAs(first);
+        assertThat(first.getPriority()).isEqualTo(Priority.ALTA);
+        // No aporta nada
+        assertThat(batch.accept(task("Enviar informe al cliente", Priority.BAJA, null))).isNull();
+        Task other = task("Comprar leche", Priority.BAJA, null);
+        assertThat(batch.accept(other)).isSameAs(other);
+        assertThat(deduplicator.getStats()).containsEntry("checked", 4L).containsEntry("merged", 2L);
+    }
+
+    @Test
+    void repeatedTaskFromSameSenderIsOnlyReturnedWhenTheMergeChangesIt() {
+        Task first = deduplicator.deduplicate("ana@empresa.com",
+            List.of(task("Revisar el contrato de alquiler", Priority.MEDIA, null))).get(0);
+        first.setId(7);
+        deduplicator.recordIds("ana@empresa.com", List.of(first));
+
+        // Mismo hilo, misma tarea: no aporta nada
+        assertThat(deduplicator.deduplicate("Ana@Empresa.com",
+            List.of(task("Revisar contrato de alquiler", Priority.BAJA, null)))).isEmpty();
+        // Otro remitente: es una tarea nueva
+        assertThat(deduplicator.deduplicate("luis@empresa.com",
+            List.of(task("Revisar el contrato de alquiler", Priority.MEDIA, null)))).hasSize(1);
+
+        // Llega con fecha y más urgencia: se devuelve una copia con el id original, sin tocar la ya entregada
+        List<Task> updated = deduplicator.deduplicate("ana@empresa.com",
+            List.of(task("Revisar el contrato de alquiler.", Priority.CRITICA, LocalDate.of(2025, 9, 1))));
+        assertThat(updated).hasSize(1);
+        assertThat(updated.get(0)).isNotSameAs(first);
+        assertThat(updated.get(0).getId()).isEqualTo(7);
+        assertThat(updated.get(0).getPriority()).isEqualTo(Priority.CRITICA);
+        assertThat(updated.get(0).getDueDate()).isEqualTo(LocalDate.of(2025, 9, 1));
+        assertThat(first.getPriority()).isEqualTo(Priority.MEDIA);
+        assertThat(first.getDueDate()).isNull();
+    }
+
+    @Test
+    void windowKeepsOnlyTheMostRecentTasksPerSender() {
+        TaskDeduplicator small = new TaskDeduplicator(0.6, 2, Duration.ofDays(14), 100, 10_000);
+        small.deduplicate("ana@empresa.com", List.of(task("Llamar al banco", Priority.MEDIA, null)));
+        small.deduplicate("ana@empresa.com", List.of(task("Preparar la presentación", Priority.MEDIA, null)));
+        small.deduplicate("ana@empresa.com", List.of(task("Reservar la sala grande", Priority.MEDIA, null)));
+
+        assertThat(small.deduplicate("ana@empresa.com", List.of(task("Llamar al banco", Priority.MEDIA, null))))
+            .hasSize(1);
+        assertThat(small.getStats()).containsEntry("windowTasks", 2L).containsEntry("evictions", 2L);
+    }
+
+    @Test
+    void windowsShareAGlobalLimitAcrossSenders() {
+        TaskDeduplicator small = new TaskDeduplicator(0.6, 100, Duration.ofDays(14), 100, 3);
+        small.deduplicate("ana@empresa.com", List.of(task("Llamar al banco", Priority.MEDIA, null),
+            task("Preparar la presentación", Priority.MEDIA, null)));
+        small.deduplicate("luis@empresa.com", List.of(task("Reservar la sala grande", Priority.MEDIA, null),
+            task("Pagar la factura del hosting", Priority.MEDIA, null)));
+
+        assertThat(small.getStats()).containsEntry("windowTasks", 3L).containsEntry("evictions", 1L);
+        // La más antigua del remitente menos reciente es la que sale
+        assertThat(small.deduplicate("luis@empresa.com", List.of(task("Reservar la sala grande", Priority.MEDIA, null))))
+            .isEmpty();
+        assertThat(small.deduplicate("ana@empresa.com", List.of(task("Llamar al banco", Priority.MEDIA, null))))
+            .hasSize(1);
+    }
+
+    private static Task task(String title, Priority priority, LocalDate dueDate) {
+        return new Task(null, title, null, dueDate, false, priority, null, "work");
+    }
+}
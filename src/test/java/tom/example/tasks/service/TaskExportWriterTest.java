@@ -0,0 +1,76 @@
+package tom.example.tasks.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import tom.example.tasks.controller.ApiController;
+import tom.example.tasks.dto.TaskExportDto;
+import tom.example.tasks.model.Priority;
+import tom.example.tasks.model.Task;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskExportWriterTest {
+
+    // Misma configuración que el ObjectMapper de Spring Boot: fechas ISO
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final ApiController controller = new ApiController(null, null, null, null, null, null, null, null, null,
+        new ExtractionMetrics(new SimpleMeterRegistry()), objectMapper);
+
+    @Test
+    void writesTheSameTasksAsTheMapBasedConversion() throws Exception {
+        List<Task> tasks = List.of(
+            new Task(1, "Enviar el informe", "Versión final", LocalDate.of(2025, 7, 22), false, Priority.CRITICA,
+                "work", "work"),
+            new Task(2, "Revisar el contrato", null, null, true, Priority.BAJA, "personal", null));
+        Set<ExportFormat> formats = EnumSet.of(ExportFormat.TODOIST, ExportFormat.NOTION, ExportFormat.CLICKUP);
+
+        JsonNode streamed = objectMapper.readTree(stream(tasks, formats, new ByteArrayOutputStream()).toByteArray());
+
+        assertThat(streamed.get("success").asBoolean()).isTrue();
+        assertThat(streamed.get("format").asText()).isEqualTo("todoist,notion,clickup");
+        assertThat(streamed.get("total").asInt()).isEqualTo(2);
+        assertThat(streamed.get("count").asInt()).isEqualTo(2);
+        for (int i = 0; i < tasks.size(); i++) {
+            assertThat(streamed.get("data").get(i)).isEqualTo(mapBased(tasks.get(i)));
+        }
+    }
+
+    private <T extends OutputStream> T stream(List<Task> tasks, Set<ExportFormat> formats, T out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            TaskExportWriter writer = new TaskExportWriter(generator, formats);
+            writer.start(tasks.size());
+            for (Task task : tasks) {
+                writer.write(task);
+            }
+            writer.finish();
+        }
+        return out;
+    }
+
+    private JsonNode mapBased(Task task) {
+        ObjectNode expected = objectMapper.valueToTree(convert(task, "todoist"));
+        expected.set("notionFormat", objectMapper.valueToTree(convert(task, "notion").getNotionFormat()));
+        expected.set("clickUpFormat", objectMapper.valueToTree(convert(task, "clickup").getClickUpFormat()));
+        return expected;
+    }
+
+    private TaskExportDto convert(Task task, String format) {
+        return ReflectionTestUtils.invokeMethod(controller, "convertToExportDto", task, format);
+    }
+}
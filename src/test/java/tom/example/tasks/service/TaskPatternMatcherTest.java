@@ -0,0 +1,115 @@
+package tom.example.tasks.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import tom.example.tasks.model.Priority;
+import tom.example.tasks.model.Task;
+import tom.example.tasks.support.GeminiAIServiceFixture;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskPatternMatcherTest {
+
+    private static final String[] SAMPLES = {
+        "Hola equipo,\n- Revisar el informe antes del viernes 19\n- Enviar presupuesto al cliente mañana\n1) Llamar al proveedor hoy\n2: Preparar la reunión del lunes 22",
+        "Juan debe entregar el proyecto. María va a organizar la cena. Pedro tiene una cita.",
+        "Tenemos que hablar. Hay que pagar la factura urgente! Es importante para el miércoles?",
+        "Estudiar para el examen de cálculo. Comprar leche cuando pueda. Algún día limpiar el garaje, opcional.",
+        "• Actualizar la documentación del cliente\n* Corregir el deadline crítico\n10: emergencia en producción",
+        "Tomorrow I need to buy milk and call the dentist. The meeting is important.",
+        "ÁLVARO DEBE llamar  hoy. Se necesita revisar todo. ok. -x",
+        "Reunión con el cliente para el lunes 22. Antes de eso hay que coordinar con el equipo de ventas.",
+    };
+
+    private GeminiAIService service;
+
+    @BeforeEach
+    void setUp() {
+        service = GeminiAIServiceFixture.local().build();
+    }
+
+    @Test
+    void matchesLegacyRegexExtraction() {
+        for (String sample : SAMPLES) {
+            List<Task> expected = LegacyLocalExtractor.extract(sample, "work");
+            List<Task> actual = service.extractTasksFromText(sample, "work");
+
+            assertThat(actual).hasSameSizeAs(expected);
+            for (int i = 0; i < expected.size(); i++) {
+                assertThat(actual.get(i).getTitle()).isEqualTo(expected.get(i).getTitle());
+                assertThat(actual.get(i).getPriority()).isEqualTo(expected.get(i).getPriority());
+            }
+        }
+    }
+
+    @Test
+    void scanFindsOverlappingKeywordsInOnePass() {
+        TaskPatternMatcher matcher = new TaskPatternMatcher();
+
+        int matches = matcher.scan("la entrega urgente es para hoy");
+
+        assertThat(matches & TaskPatternMatcher.PRIORITY_ALTA).isNotZero();
+        assertThat(matches & TaskPatternMatcher.PRIORITY_CRITICA).isNotZero();
+        assertThat(matches & TaskPatternMatcher.DEADLINE).isNotZero();
+        assertThat(matches & TaskPatternMatcher.PRIORITY_BAJA).isZero();
+    }
+
+    /**
+     * Copia de la implementación basada en regex, usada como referencia de resultados.
+     * Las fechas ya no se comparan: las resuelve {@link RelativeDateParser} (ver RelativeDateParserTest).
+     */
+    private static final class LegacyLocalExtractor {
+
+        static List<Task> extract(String text, String context) {
+            List<Task> tasks = new ArrayList<>();
+            for (String sentence : text.split("[.!?\\n\\r]+")) {
+                sentence = sentence.trim();
+                if (sentence.length() < 8) continue;
+
+                boolean isTask = false;
+                String taskTitle = sentence;
+                if (sentence.matches("^[-*•]\\s*.+") || sentence.matches("^\\d+[.):]\\s*.+")) {
+                    taskTitle = sentence.replaceFirst("^[-*•\\d.):]+\\s*", "").trim();
+                    isTask = true;
+                } else if (sentence.toLowerCase().matches(".*(debe|tiene que|necesita|hay que|tengo que|tienes que).*")) {
+                    isTask = true;
+                } else if (sentence.toLowerCase().matches("^(hacer|revisar|enviar|llamar|comprar|estudiar|reunir|contactar|completar|terminar|preparar|organizar|planificar|coordinar|inscribir|pagar|limpiar|cambiar|agendar|actualizar|documentar|ejecutar|restaurar|identificar|corregir).*")) {
+                    isTask = true;
+                } else if (sentence.toLowerCase().matches(".*(antes del|antes de|para el|para hoy|urgente|importante|deadline|fecha límite).*")) {
+                    isTask = true;
+                } else if (sentence.toLowerCase().matches("^[a-záéíóúü]+\\s+(debe|tiene|necesita|va a).*")) {
+                    isTask = true;
+                }
+
+                if (isTask && taskTitle.length() > 5) {
+                    Task task = new Task();
+                    task.setTitle(taskTitle);
+                    task.setContext(context);
+                    task.setPriority(priority(taskTitle + " "));
+                    tasks.add(task);
+                }
+            }
+            return tasks;
+        }
+
+        static Priority priority(String raw) {
+            String text = raw.toLowerCase();
+            if (text.contains("urgente") || text.contains("examen") || text.contains("emergencia")
+                || text.contains("crítico") || text.contains("deadline")) {
+                return Priority.CRITICA;
+            }
+            if (text.contains("importante") || text.contains("reunión") || text.contains("cliente")
+                || text.contains("proyecto") || text.contains("entrega")) {
+                return Priority.ALTA;
+            }
+            if (text.contains("opcional") || text.contains("cuando pueda") || text.contains("algún día")) {
+                return Priority.BAJA;
+            }
+            return Priority.MEDIA;
+        }
+    }
+}
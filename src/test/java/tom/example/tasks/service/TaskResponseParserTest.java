@@ -0,0 +1,72 @@
+package tom.example.tasks.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import tom.example.tasks.model.Priority;
+import tom.example.tasks.model.Task;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TaskResponseParserTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TaskResponseParser parser = new TaskResponseParser(objectMapper.getFactory());
+
+    @Test
+    void skipsProseAndFencesAroundTheArray() throws Exception {
+        String response = """
+            Claro, aquí tienes las tareas:
+            ```json
+            [{"title": "Llamar al cliente", "dueDate": "2025-07-22", "priority": "ALTA", "extra": {"a": [1, 2]}}]
+            ```
+            ¿Algo más?
+            """;
+
+        List<Task> tasks = parser.parse(response, "work");
+
+        assertThat(tasks).hasSize(1);
+        assertThat(tasks.get(0).getTitle()).isEqualTo("Llamar al cliente");
+        assertThat(tasks.get(0).getDueDate()).isEqualTo(LocalDate.of(2025, 7, 22));
+        assertThat(tasks.get(0).getPriority()).isEqualTo(Priority.ALTA);
+        assertThat(tasks.get(0).getCategory()).isEqualTo("work");
+    }
+
+    @Test
+    void skipsMalformedElementsAndKeepsTheRest() throws Exception {
+        String response = """
+            [
+              {"title": "Primera", "priority": "CRITICA"},
+              {"title": "Rota" "priority": "ALTA"},
+              {"description": "sin título"},
+              {"title": "Fecha rara", "dueDate": "el viernes", "priority": "URGENTISIMA"},
+              {"title": "Truncada", "descr
+            """;
+
+        List<Task> tasks = parser.parse(response, null);
+
+        assertThat(tasks).extracting(Task::getTitle).containsExactly("Primera", "Fecha rara");
+        assertThat(tasks.get(1).getDueDate()).isNull();
+        assertThat(tasks.get(1).getPriority()).isEqualTo(Priority.MEDIA);
+        assertThat(tasks.get(1).getCategory()).isEqualTo("general");
+        assertThat(parser.getSkippedElements()).isEqualTo(2);
+    }
+
+    @Test
+    void recoversAfterSyntaxErrorsBetweenElementsWithoutDuplicates() throws Exception {
+        assertThat(parser.parse("[{\"title\":\"Uno\"} {\"title\":\"Dos\"}]", null))
+            .extracting(Task::getTitle).containsExactly("Uno", "Dos");
+        assertThat(parser.parse("[{\"title\":\"Uno\"}, {\"title\":\"Dos\"}, x, {\"title\":\"Tres\"}]", null))
+            .extracting(Task::getTitle).containsExactly("Uno", "Dos", "Tres");
+    }
+
+    @Test
+    void failsWhenThereIsNoArray() {
+        assertThatThrownBy(() -> parser.parse("No encontré tareas.", "work"))
+            .isInstanceOf(java.io.IOException.class);
+    }
+}
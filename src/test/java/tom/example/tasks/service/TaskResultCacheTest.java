@@ -0,0 +1,55 @@
+package tom.example.tasks.service;
+
+import org.junit.jupiter.api.Test;
+
+import tom.example.tasks.model.Priority;
+import tom.example.tasks.model.Task;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskResultCacheTest {
+
+    @Test
+    void returnsDefensiveCopies() {
+        TaskResultCache cache = new TaskResultCache(10, Duration.ofMinutes(5), 1 << 20, Clock.systemDefaultZone());
+        cache.put("Llamar al cliente", "work", List.of(task("Llamar al cliente")));
+
+        List<Task> first = cache.get("Llamar al cliente", "work");
+        first.get(0).setTitle("modificado");
+
+        assertThat(cache.get("Llamar al cliente", "work").get(0).getTitle()).isEqualTo("Llamar al cliente");
+    }
+
+    @Test
+    void normalizesWhitespaceAndSeparatesContexts() {
+        TaskResultCache cache = new TaskResultCache(10, Duration.ofMinutes(5), 1 << 20, Clock.systemDefaultZone());
+        cache.put("Llamar  al cliente\r\n", "work", List.of(task("Llamar al cliente")));
+
+        assertThat(cache.get("  Llamar al cliente", "work")).hasSize(1);
+        assertThat(cache.get("Llamar al cliente", "personal")).isNull();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() {
+        TaskResultCache cache = new TaskResultCache(2, Duration.ofMinutes(5), 1 << 20, Clock.systemDefaultZone());
+        cache.put("a", "work", List.of(task("a")));
+        cache.put("b", "work", List.of(task("b")));
+        cache.get("a", "work");
+        cache.put("c", "work", List.of(task("c")));
+
+        assertThat(cache.get("b", "work")).isNull();
+        assertThat(cache.get("a", "work")).isNotNull();
+        assertThat(cache.getStats()).containsEntry("evictions", 1L).containsEntry("size", 2);
+    }
+
+    private static Task task(String title) {
+        Task task = new Task();
+        task.setTitle(title);
+        task.setPriority(Priority.ALTA);
+        return task;
+    }
+}
@@ -0,0 +1,35 @@
+package tom.example.tasks.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextChunkerTest {
+
+    @Test
+    void shortTextIsASingleChunk() {
+        assertThat(TextChunker.split("Enviar el informe.", 100)).containsExactly("Enviar el informe.");
+    }
+
+    @Test
+    void prefersParagraphThenSentenceBoundaries() {
+        String text = "Enviar el informe al cliente.\n\nRevisar el contrato. Llamar al banco hoy.";
+
+        assertThat(TextChunker.split(text, 50))
+            .containsExactly("Enviar el informe al cliente.", "Revisar el contrato. Llamar al banco hoy.");
+        assertThat(TextChunker.split("Revisar el contrato. Llamar al banco hoy.", 30))
+            .containsExactly("Revisar el contrato.", "Llamar al banco hoy.");
+    }
+
+    @Test
+    void everyChunkFitsAndNoTextIsLost() {
+        String text = "palabra ".repeat(500) + "x".repeat(120);
+
+        List<String> chunks = TextChunker.split(text, 100);
+
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.length()).isLessThanOrEqualTo(100));
+        assertThat(String.join("", chunks).replace(" ", "")).isEqualTo(text.replace(" ", ""));
+    }
+}
@@ -0,0 +1,132 @@
+package tom.example.tasks.service;
+
+import org.junit.jupiter.api.Test;
+
+import tom.example.tasks.dto.ApiResponse;
+import tom.example.tasks.dto.TaskExportDto;
+import tom.example.tasks.dto.WebhookRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebhookIdempotencyStoreTest {
+
+    @Test
+    void redeliveryReturnsOriginalResponseWithoutReprocessing() {
+        WebhookIdempotencyStore store = new WebhookIdempotencyStore(Duration.ofHours(1), 100, 1 << 16, 7);
+        AtomicInteger processed = new AtomicInteger();
+        String key = store.keyFor(email("<abc@mail>", "Reunión"));
+
+        assertThat(store.findProcessed(key)).isNull();
+        ApiResponse<List<TaskExportDto>> original = store.processOnce(key, () -> {
+            processed.incrementAndGet();
+            return success();
+        });
+
+        assertThat(store.findProcessed(key)).isSameAs(original);
+        assertThat(processed.get()).isEqualTo(1);
+    }
+
+    @Test
+    void redeliveryQueuedBeforeTheOriginalFinishedIsNotReprocessed() {
+        WebhookIdempotencyStore store = new WebhookIdempotencyStore(Duration.ofHours(1), 100, 1 << 16, 7);
+        AtomicInteger processed = new AtomicInteger();
+        String key = store.keyFor(email("<cola@mail>", "Reunión"));
+
+        // Modo asíncrono: las dos copias se comprueban y encolan antes de que se procese la primera
+        assertThat(store.findProcessed(key)).isNull();
+        assertThat(store.findProcessed(key)).isNull();
+        ApiResponse<List<TaskExportDto>> original = store.processOnce(key, () -> {
+            processed.incrementAndGet();
+            return success();
+        });
+        ApiResponse<List<TaskExportDto>> queued = store.processOnce(key, () -> {
+            processed.incrementAndGet();
+            return success();
+        });
+
+        assertThat(queued).isSameAs(original);
+        assertThat(processed.get()).isEqualTo(1);
+        assertThat(store.getStats()).containsEntry("duplicates", 1L);
+    }
+
+    @Test
+    void keyFallsBackToSenderTimestampAndSubject() {
+        WebhookIdempotencyStore store = new WebhookIdempotencyStore(Duration.ofHours(1), 100, 1 << 16, 7);
+
+        assertThat(store.keyFor(email(null, "Reunión"))).isEqualTo(store.keyFor(email(null, "Reunión")));
+        assertThat(store.keyFor(email(null, "Reunión"))).isNotEqualTo(store.keyFor(email(null, "Factura")));
+    }
+
+    @Test
+    void fallbackKeyDistinguishesBodiesWhenThereIsNoTimestamp() {
+        WebhookIdempotencyStore store = new WebhookIdempotencyStore(Duration.ofHours(1), 100, 1 << 16, 7);
+        WebhookRequest first = email(null, "Pendientes");
+        first.setTimestamp(null);
+        first.setBody("Enviar el informe");
+        WebhookRequest second = email(null, "Pendientes");
+        second.setTimestamp(null);
+        second.setBody("Revisar el contrato");
+
+        assertThat(store.keyFor(first)).isNotEqualTo(store.keyFor(second));
+    }
+
+    @Test
+    void deliveriesAreRememberedForTheWholeWindowAcrossBloomRotations() throws Exception {
+        WebhookIdempotencyStore store = new WebhookIdempotencyStore(Duration.ofMillis(400), 100, 1 << 16, 7);
+        Thread.sleep(150);
+        String key = store.keyFor(email("<tarde@mail>", "Reunión"));
+        store.processOnce(key, this::success);
+
+        // Pasada media ventana y después la ventana entera desde que se creó el filtro: rota al menos una vez
+        Thread.sleep(60);
+        assertThat(store.findProcessed(key)).isNotNull();
+        Thread.sleep(210);
+        assertThat(store.findProcessed(key)).isNotNull();
+    }
+
+    @Test
+    void failedResponsesAreNotRemembered() {
+        WebhookIdempotencyStore store = new WebhookIdempotencyStore(Duration.ofHours(1), 100, 1 << 16, 7);
+        String key = store.keyFor(email("<fallo@mail>", "Reunión"));
+
+        store.processOnce(key, ApiResponse::new);
+
+        assertThat(store.findProcessed(key)).isNull();
+    }
+
+    @Test
+    void memoryStaysBoundedUnderManyDistinctDeliveries() {
+        WebhookIdempotencyStore store = new WebhookIdempotencyStore(Duration.ofHours(1), 50, 1 << 16, 7);
+
+        for (int i = 0; i < 10_000; i++) {
+            store.processOnce(store.keyFor(email("<" + i + "@mail>", "Aviso")), this::success);
+        }
+
+        assertThat(store.getStats()).containsEntry("recentEntries", 50);
+        assertThat(store.findProcessed(store.keyFor(email("<9999@mail>", "Aviso")))).isNotNull();
+        assertThat(store.findProcessed(store.keyFor(email("<0@mail>", "Aviso")))).isNull();
+    }
+
+    private ApiResponse<List<TaskExportDto>> success() {
+        ApiResponse<List<TaskExportDto>> response = new ApiResponse<>();
+        response.setSuccess(true);
+        response.setData(List.of());
+        return response;
+    }
+
+    private static WebhookRequest email(String messageId, String subject) {
+        WebhookRequest webhook = new WebhookRequest();
+        webhook.setSender("ana@example.com");
+        webhook.setTimestamp("2025-07-18T09:00:00Z");
+        webhook.setSubject(subject);
+        if (messageId != null) {
+            webhook.setMetadata(Map.of("messageId", messageId));
+        }
+        return webhook;
+    }
+}
@@ -0,0 +1,206 @@
+package tom.example.tasks.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import tom.example.tasks.model.Priority;
+import tom.example.tasks.model.Task;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void assignsIdsAndReadsTasksBack() throws IOException {
+        TaskStore store = open(1 << 16);
+
+        List<Task> saved = store.saveAll(List.of(
+            task("Revisar el informe", LocalDate.of(2025, 7, 19), Priority.ALTA),
+            task("Comprar leche", null, Priority.BAJA)));
+
+        assertThat(saved).extracting(Task::getId).containsExactly(1, 2);
+        Task first = store.findById(1);
+        assertThat(first.getTitle()).isEqualTo("Revisar el informe");
+        assertThat(first.getDueDate()).isEqualTo(LocalDate.of(2025, 7, 19));
+        assertThat(first.getPriority()).isEqualTo(Priority.ALTA);
+        assertThat(first.getDescription()).isNull();
+        assertThat(store.findById(2).getDueDate()).isNull();
+        assertThat(store.findById(3)).isNull();
+        store.close();
+    }
+
+    @Test
+    void recoversIndexAndDiscardsTornTailOnRestart() throws IOException {
+        TaskStore store = open(1 << 16);
+        for (int i = 0; i < 100; i++) {
+            store.save(task("Tarea " + i, null, Priority.MEDIA));
+        }
+        Task updated = store.findById(10);
+        updated.setCompleted(true);
+        store.save(updated);
+        store.close();
+
+        // Simular una escritura interrumpida: cabecera con longitud pero sin cuerpo válido
+        Path segment = segmentFiles().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            long end = findEndOfData(file);
+            file.seek(end);
+            file.writeInt(64);
+            file.writeInt(12345);
+            file.writeInt(7);
+        }
+
+        TaskStore reopened = open(1 << 16);
+        assertThat(reopened.size()).isEqualTo(100);
+        assertThat(reopened.findById(10).isCompleted()).isTrue();
+        assertThat(reopened.save(task("Nueva", null, Priority.ALTA)).getId()).isEqualTo(101);
+        reopened.close();
+
+        TaskStore again = open(1 << 16);
+        assertThat(again.findById(101).getTitle()).isEqualTo("Nueva");
+        again.close();
+    }
+
+    @Test
+    void truncatesTailWithGarbageLengthInsteadOfFailingToStart() throws IOException {
+        TaskStore store = open(1 << 16);
+        for (int i = 0; i < 20; i++) {
+            store.save(task("Tarea " + i, null, Priority.MEDIA));
+        }
+        store.close();
+
+        // Una longitud basura cercana a Integer.MAX_VALUE desborda offset + cabecera + longitud en int
+        Path segment = segmentFiles().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(findEndOfData(file));
+            file.writeInt(Integer.MAX_VALUE - 4);
+            file.writeInt(12345);
+        }
+
+        TaskStore reopened = open(1 << 16);
+        assertThat(reopened.size()).isEqualTo(20);
+        assertThat(reopened.save(task("Nueva", null, Priority.ALTA)).getId()).isEqualTo(21);
+        reopened.close();
+
+        TaskStore again = open(1 << 16);
+        assertThat(again.findById(21).getTitle()).isEqualTo("Nueva");
+        again.close();
+    }
+
+    @Test
+    void compactionRewritesLiveRecordsAndDeletesObsoleteSegments() throws IOException {
+        TaskStore store = open(4096);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            tasks.add(task("Tarea con un título algo largo " + i, null, Priority.MEDIA));
+        }
+        store.saveAll(tasks);
+        // Sobrescribir todas las tareas deja los primeros segmentos llenos de versiones obsoletas
+        for (Task task : tasks) {
+            task.setPriority(Priority.CRITICA);
+        }
+        store.saveAll(tasks);
+        int segmentsBefore = segmentFiles().size();
+
+        long reclaimed = store.compact();
+
+        assertThat(reclaimed).isPositive();
+        assertThat(segmentFiles().size()).isLessThan(segmentsBefore);
+        assertThat(store.size()).isEqualTo(50);
+        store.close();
+
+        TaskStore reopened = open(4096);
+        assertThat(reopened.size()).isEqualTo(50);
+        for (int id = 1; id <= 50; id++) {
+            assertThat(reopened.findById(id).getPriority()).isEqualTo(Priority.CRITICA);
+        }
+        reopened.close();
+    }
+
+    @Test
+    void queryCombinesIndexesAndPagesByCursor() throws IOException {
+        TaskStore store = open(1 << 16);
+        for (int i = 0; i < 30; i++) {
+            Task task = task("Tarea " + i, LocalDate.of(2025, 7, 1).plusDays(i), i % 2 == 0 ? Priority.ALTA : Priority.BAJA);
+            task.setContext(i % 3 == 0 ? "student" : "work");
+            store.save(task);
+        }
+        // Una actualización debe mover la tarea entre índices
+        Task moved = store.findById(1);
+        moved.setPriority(Priority.CRITICA);
+        moved.setCompleted(true);
+        store.save(moved);
+
+        TaskQuery query = new TaskQuery(LocalDate.of(2025, 7, 5), LocalDate.of(2025, 7, 24), Priority.ALTA, "work",
+            null, false, null, 3);
+        List<Integer> ids = new ArrayList<>();
+        TaskPage page = store.query(query);
+        assertThat(page.total()).isEqualTo(7);
+        while (true) {
+            page.tasks().forEach(task -> ids.add(task.getId()));
+            if (page.nextCursor() == null) {
+                break;
+            }
+            page = store.query(new TaskQuery(query.dueFrom(), query.dueTo(), query.priority(), query.context(),
+                null, false, page.nextCursor(), 3));
+        }
+        assertThat(ids).containsExactly(5, 9, 11, 15, 17, 21, 23);
+
+        assertThat(store.query(new TaskQuery(null, null, Priority.ALTA, null, null, null, null, 50)).tasks())
+            .extracting(Task::getId).doesNotContain(1);
+        store.close();
+
+        // Los índices se reconstruyen al reabrir
+        TaskStore reopened = open(1 << 16);
+        assertThat(reopened.query(new TaskQuery(null, null, Priority.CRITICA, null, null, true, null, 50)).tasks())
+            .extracting(Task::getId).containsExactly(1);
+        assertThat(reopened.query(query).total()).isEqualTo(7);
+        reopened.close();
+    }
+
+    private TaskStore open(int segmentSize) throws IOException {
+        return new TaskStore(directory.toString(), segmentSize, TaskStore.FsyncPolicy.ALWAYS,
+            Duration.ZERO, Duration.ZERO, 0.5);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static long findEndOfData(RandomAccessFile file) throws IOException {
+        long position = 0;
+        while (true) {
+            file.seek(position);
+            int length = file.readInt();
+            if (length == 0) {
+                return position;
+            }
+            position += 8 + length;
+        }
+    }
+
+    private static Task task(String title, LocalDate dueDate, Priority priority) {
+        Task task = new Task();
+        task.setTitle(title);
+        task.setDueDate(dueDate);
+        task.setPriority(priority);
+        task.setContext("work");
+        task.setCategory("work");
+        return task;
+    }
+}
@@ -0,0 +1,125 @@
+package tom.example.tasks.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebhookJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysUnacknowledgedEntriesAfterCrash() throws IOException {
+        WebhookJournal journal = open();
+        List<Long> sequences = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            sequences.add(journal.append(("email " + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        for (int i = 0; i < 20; i++) {
+            if (i != 7 && i != 12) {
+                journal.acknowledge(sequences.get(i));
+            }
+        }
+        // Sin close(): simula una caída del proceso, con una escritura a medias al final
+        try (RandomAccessFile file = new RandomAccessFile(lastSegment().toFile(), "rw")) {
+            file.seek(file.length());
+            file.writeInt(40);
+            file.writeInt(123);
+        }
+
+        WebhookJournal reopened = open();
+        List<WebhookJournal.Entry> recovered = reopened.takeRecovered();
+
+        assertThat(recovered).extracting(entry -> new String(entry.payload(), StandardCharsets.UTF_8))
+            .containsExactly("email 7", "email 12");
+        assertThat(reopened.takeRecovered()).isEmpty();
+        assertThat(reopened.append(new byte[] { 1 })).isEqualTo(21);
+        reopened.close();
+    }
+
+    @Test
+    void discardsTailWithGarbageLengthInsteadOfFailingToStart() throws IOException {
+        WebhookJournal journal = open();
+        long pending = journal.append("email pendiente".getBytes(StandardCharsets.UTF_8));
+        journal.acknowledge(journal.append("email confirmado".getBytes(StandardCharsets.UTF_8)));
+        // Una longitud basura cercana a Integer.MAX_VALUE desborda posición + cabecera + longitud en int
+        try (RandomAccessFile file = new RandomAccessFile(lastSegment().toFile(), "rw")) {
+            file.seek(file.length());
+            file.writeInt(Integer.MAX_VALUE - 4);
+            file.writeInt(123);
+        }
+
+        WebhookJournal reopened = open();
+
+        assertThat(reopened.takeRecovered()).extracting(WebhookJournal.Entry::sequence).containsExactly(pending);
+        assertThat(reopened.append(new byte[] { 1 })).isEqualTo(3);
+        reopened.close();
+    }
+
+    @Test
+    void checkpointTrimsFullyAcknowledgedSegments() throws IOException {
+        WebhookJournal journal = open();
+        for (int i = 0; i < 200; i++) {
+            journal.acknowledge(journal.append(new byte[100]));
+        }
+        long segmentsBefore = segments().size();
+
+        journal.checkpoint();
+
+        assertThat(segmentsBefore).isGreaterThan(1);
+        assertThat(segments()).hasSize(1);
+        journal.close();
+        assertThat(open().takeRecovered()).isEmpty();
+    }
+
+    @Test
+    void checkpointKeepsSegmentsWithAcknowledgementsAboveTheWatermark() throws IOException {
+        WebhookJournal journal = open();
+        long held = journal.append("email sin confirmar".getBytes(StandardCharsets.UTF_8));
+        List<Long> sequences = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            sequences.add(journal.append(new byte[0]));
+        }
+        // Las confirmaciones llenan segmentos propios, posteriores a los de sus entradas
+        for (long sequence : sequences) {
+            journal.acknowledge(sequence);
+        }
+
+        journal.checkpoint();
+
+        // Sin close(): la entrada retenida deja la marca de agua en su secuencia y las confirmaciones deben seguir
+        WebhookJournal reopened = open();
+        assertThat(reopened.takeRecovered()).extracting(WebhookJournal.Entry::sequence).containsExactly(held);
+        reopened.acknowledge(held);
+        reopened.checkpoint();
+        assertThat(segments()).hasSize(1);
+        reopened.close();
+    }
+
+    private WebhookJournal open() throws IOException {
+        return new WebhookJournal(directory.toString(), 4096, Duration.ZERO);
+    }
+
+    private Path lastSegment() throws IOException {
+        List<Path> segments = segments();
+        return segments.get(segments.size() - 1);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+}
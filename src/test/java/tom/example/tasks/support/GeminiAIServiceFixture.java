@@ -0,0 +1,103 @@
+package tom.example.tasks.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import tom.example.tasks.service.ExtractionMetrics;
+import tom.example.tasks.service.GeminiAIService;
+import tom.example.tasks.service.GeminiCircuitBreaker;
+import tom.example.tasks.service.GeminiQuotaScheduler;
+import tom.example.tasks.service.PriorityClassifier;
+import tom.example.tasks.service.TaskResultCache;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Construye un GeminiAIService para tests y benchmarks con los colaboradores por defecto: sin caché,
+ * sin cuota, circuito con los valores de application.properties y sin modelo de prioridad.
+ * Cada test sustituye solo lo que necesita observar o controlar.
+ */
+public class GeminiAIServiceFixture {
+
+    private RestTemplate restTemplate = new RestTemplate();
+    private TaskResultCache resultCache = new TaskResultCache(0, Duration.ZERO, 0, Clock.systemDefaultZone());
+    private GeminiCircuitBreaker circuitBreaker = defaultCircuitBreaker();
+    private GeminiQuotaScheduler quotaScheduler = defaultQuotaScheduler();
+    private MeterRegistry registry = new SimpleMeterRegistry();
+    private String apiKey = "";
+    private String apiBaseUrl;
+
+    private GeminiAIServiceFixture() {
+    }
+
+    /**
+     * Sin clave de API: todas las extracciones van por el camino local.
+     */
+    public static GeminiAIServiceFixture local() {
+        return new GeminiAIServiceFixture();
+    }
+
+    /**
+     * Con clave de prueba y apuntando al stub.
+     */
+    public static GeminiAIServiceFixture against(GeminiStubServer stub) {
+        GeminiAIServiceFixture fixture = new GeminiAIServiceFixture();
+        fixture.apiKey = "test";
+        fixture.apiBaseUrl = stub.getBaseUrl();
+        return fixture;
+    }
+
+    public static GeminiCircuitBreaker defaultCircuitBreaker() {
+        return new GeminiCircuitBreaker(20, 10, 50, Duration.ofSeconds(30), 3);
+    }
+
+    public static GeminiQuotaScheduler defaultQuotaScheduler() {
+        return new GeminiQuotaScheduler(0, 0, Duration.ofMinutes(1), Duration.ofSeconds(30), 1000, Duration.ofSeconds(10));
+    }
+
+    public GeminiAIServiceFixture restTemplate(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+        return this;
+    }
+
+    public GeminiAIServiceFixture resultCache(TaskResultCache resultCache) {
+        this.resultCache = resultCache;
+        return this;
+    }
+
+    public GeminiAIServiceFixture circuitBreaker(GeminiCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    public GeminiAIServiceFixture quotaScheduler(GeminiQuotaScheduler quotaScheduler) {
+        this.quotaScheduler = quotaScheduler;
+        return this;
+    }
+
+    public GeminiAIServiceFixture registry(MeterRegistry registry) {
+        this.registry = registry;
+        return this;
+    }
+
+    /**
+     * Una o varias claves separadas por comas, como gemini.api.key.
+     */
+    public GeminiAIServiceFixture apiKey(String apiKey) {
+        this.apiKey = apiKey;
+        return this;
+    }
+
+    public GeminiAIService build() {
+        GeminiAIService service = new GeminiAIService(restTemplate, resultCache, circuitBreaker, quotaScheduler,
+            new ExtractionMetrics(registry), Clock.systemDefaultZone(), new PriorityClassifier(""));
+        ReflectionTestUtils.setField(service, "apiKey", apiKey);
+        if (apiBaseUrl != null) {
+            ReflectionTestUtils.setField(service, "apiBaseUrl", apiBaseUrl);
+        }
+        return service;
+    }
+}
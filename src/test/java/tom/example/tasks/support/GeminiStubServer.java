@@ -0,0 +1,320 @@
+package tom.example.tasks.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Servidor local que imita el endpoint generateContent de Gemini para pruebas sin red.
+ * Se puede configurar la distribución de latencias y la proporción de respuestas 500, 429,
+ * sin JSON, con JSON truncado o envuelto en ```json, para reproducir en local el comportamiento de la API real.
+ * También puede aplicar una cuota de peticiones por clave y responde con usageMetadata como Gemini.
+ */
+public class GeminiStubServer implements AutoCloseable {
+
+    /**
+     * Tipo de respuesta enviada a cada petición.
+     */
+    public enum Outcome { OK, FENCED, TRUNCATED, MALFORMED, SERVER_ERROR, RATE_LIMITED }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+    private final Map<String, LongAdder> requestsByKey = new ConcurrentHashMap<>();
+    // Semilla fija: dos ejecuciones con la misma configuración reciben la misma secuencia de fallos
+    private final Random random = new Random(42);
+
+    private volatile Latency latency = Latency.fixed(Duration.ZERO);
+    private volatile String responseText = "[]";
+    private volatile double serverErrorRate;
+    private volatile double rateLimitRate;
+    private volatile int retryAfterSeconds = 1;
+    private volatile double malformedRate;
+    private volatile double truncatedRate;
+    private volatile double fencedRate;
+    private volatile Quota quota;
+
+    private GeminiStubServer(HttpServer server) {
+        this.server = server;
+        // Hilos de plataforma: si el stub usara hilos virtuales, sus lecturas bloqueantes del cuerpo fijarían
+        // los hilos portadores que necesita el cliente HTTP de la aplicación (en la misma JVM) para enviarlo
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "gemini-stub-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, new LongAdder());
+        }
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public static GeminiStubServer start() throws IOException {
+        GeminiStubServer stub = new GeminiStubServer(HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024));
+        stub.server.start();
+        return stub;
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public void setLatency(Duration latency) {
+        this.latency = Latency.fixed(latency);
+    }
+
+    public void setLatency(Latency latency) {
+        this.latency = latency;
+    }
+
+    public void setResponseText(String responseText) {
+        this.responseText = responseText;
+    }
+
+    /**
+     * Proporción de peticiones que reciben un 500.
+     */
+    public void setServerErrorRate(double serverErrorRate) {
+        this.serverErrorRate = serverErrorRate;
+    }
+
+    /**
+     * Proporción de peticiones que reciben un 429 RESOURCE_EXHAUSTED con Retry-After.
+     */
+    public void setRateLimitRate(double rateLimitRate, int retryAfterSeconds) {
+        this.rateLimitRate = rateLimitRate;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Proporción de respuestas 200 cuyo texto no contiene ningún array JSON.
+     */
+    public void setMalformedRate(double malformedRate) {
+        this.malformedRate = malformedRate;
+    }
+
+    /**
+     * Proporción de respuestas 200 cuyo array JSON está cortado a la mitad, como al agotar maxOutputTokens.
+     */
+    public void setTruncatedRate(double truncatedRate) {
+        this.truncatedRate = truncatedRate;
+    }
+
+    /**
+     * Proporción de respuestas 200 cuyo texto va dentro de un bloque ```json, como suele devolverlo Gemini.
+     */
+    public void setFencedRate(double fencedRate) {
+        this.fencedRate = fencedRate;
+    }
+
+    /**
+     * Cuota por clave (parámetro key de la URL): un token bucket de {@code requests} peticiones que se
+     * rellena entero cada {@code window}. Al agotarlo se responde 429 con el Retry-After hasta la siguiente.
+     */
+    public void setQuota(int requests, Duration window) {
+        this.quota = new Quota(requests, window);
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getRequestCount(String key) {
+        LongAdder count = requestsByKey.get(key);
+        return count != null ? count.sum() : 0;
+    }
+
+    public long getOutcomeCount(Outcome outcome) {
+        return outcomes.get(outcome).sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        int requestBytes = exchange.getRequestBody().readAllBytes().length;
+        String key = apiKey(exchange.getRequestURI().getRawQuery());
+        requestsByKey.computeIfAbsent(key, k -> new LongAdder()).increment();
+
+        Quota currentQuota = quota;
+        long quotaWait = currentQuota != null ? currentQuota.tryAcquire(key) : 0;
+        if (quotaWait > 0) {
+            outcomes.get(Outcome.RATE_LIMITED).increment();
+            long seconds = Math.max(1, (quotaWait + 999_999_999) / 1_000_000_000);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("Retry-After", Long.toString(seconds));
+            send(exchange, 429, error(429, "RESOURCE_EXHAUSTED", "Quota exceeded for requests per minute."));
+            return;
+        }
+
+        Duration delay;
+        Outcome outcome;
+        synchronized (random) {
+            delay = latency.sample(random);
+            outcome = nextOutcome();
+        }
+        outcomes.get(outcome).increment();
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        // streamGenerateContent?alt=sse: la respuesta llega en un único evento
+        boolean streaming = exchange.getRequestURI().getPath().endsWith(":streamGenerateContent");
+        switch (outcome) {
+            case SERVER_ERROR -> send(exchange, 500, error(500, "INTERNAL", "Internal error encountered."));
+            case RATE_LIMITED -> {
+                exchange.getResponseHeaders().set("Retry-After", Integer.toString(retryAfterSeconds));
+                send(exchange, 429, error(429, "RESOURCE_EXHAUSTED", "Resource has been exhausted (e.g. check quota)."));
+            }
+            case MALFORMED -> sendCandidate(exchange, "Lo siento, no he podido identificar tareas en este texto.", requestBytes, streaming, false);
+            case TRUNCATED -> sendCandidate(exchange, responseText.substring(0, responseText.length() / 2), requestBytes, streaming, true);
+            case FENCED -> sendCandidate(exchange, "```json\n" + responseText + "\n```", requestBytes, streaming, false);
+            default -> sendCandidate(exchange, responseText, requestBytes, streaming, false);
+        }
+    }
+
+    private void sendCandidate(HttpExchange exchange, String text, int requestBytes, boolean streaming, boolean truncated)
+        throws IOException {
+        byte[] body = candidate(text, requestBytes);
+        if (streaming) {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            String events = "data: " + new String(body, StandardCharsets.UTF_8) + "\r\n\r\n";
+            if (truncated) {
+                // El stream se corta a mitad del siguiente evento
+                events += "data: {\"candidates\": [";
+            }
+            body = events.getBytes(StandardCharsets.UTF_8);
+        }
+        send(exchange, 200, body);
+    }
+
+    private Outcome nextOutcome() {
+        double roll = random.nextDouble();
+        if ((roll -= serverErrorRate) < 0) {
+            return Outcome.SERVER_ERROR;
+        }
+        if ((roll -= rateLimitRate) < 0) {
+            return Outcome.RATE_LIMITED;
+        }
+        if ((roll -= malformedRate) < 0) {
+            return Outcome.MALFORMED;
+        }
+        if ((roll -= truncatedRate) < 0) {
+            return Outcome.TRUNCATED;
+        }
+        return random.nextDouble() < fencedRate ? Outcome.FENCED : Outcome.OK;
+    }
+
+    private byte[] candidate(String text, int requestBytes) throws IOException {
+        // Unos 4 bytes por token, como la estimación del servicio
+        Map<String, Object> body = Map.of(
+            "candidates", List.of(Map.of("content", Map.of("parts", List.of(Map.of("text", text))))),
+            "usageMetadata", Map.of("totalTokenCount", (requestBytes + text.length()) / 4));
+        return objectMapper.writeValueAsBytes(body);
+    }
+
+    private static String apiKey(String query) {
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("key=")) {
+                    return parameter.substring(4);
+                }
+            }
+        }
+        return "";
+    }
+
+    private static byte[] error(int code, String status, String message) {
+        return String.format("{\"error\": {\"code\": %d, \"message\": \"%s\", \"status\": \"%s\"}}", code, message, status)
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] bytes) throws IOException {
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static final class Quota {
+
+        private final double capacity;
+        private final double perNano;
+        // Por clave: {peticiones disponibles, último relleno en nanos}
+        private final Map<String, double[]> buckets = new HashMap<>();
+
+        Quota(int requests, Duration window) {
+            this.capacity = requests;
+            this.perNano = requests / (double) window.toNanos();
+        }
+
+        /**
+         * 0 si la petición cabe en la cuota; si no, nanosegundos hasta que quepa.
+         */
+        synchronized long tryAcquire(String key) {
+            long now = System.nanoTime();
+            double[] bucket = buckets.computeIfAbsent(key, k -> new double[] { capacity, now });
+            bucket[0] = Math.min(capacity, bucket[0] + (now - (long) bucket[1]) * perNano);
+            bucket[1] = now;
+            if (bucket[0] >= 1) {
+                bucket[0] -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - bucket[0]) / perNano);
+        }
+    }
+
+    /**
+     * Distribución de latencias del servidor simulado.
+     */
+    @FunctionalInterface
+    public interface Latency {
+
+        Duration sample(Random random);
+
+        static Latency fixed(Duration latency) {
+            return random -> latency;
+        }
+
+        static Latency uniform(Duration min, Duration max) {
+            long span = max.toNanos() - min.toNanos();
+            return random -> min.plusNanos((long) (random.nextDouble() * span));
+        }
+
+        /**
+         * Log-normal con la mediana y el percentil 99 indicados: cola larga como la de una API de LLM.
+         */
+        static Latency logNormal(Duration median, Duration p99) {
+            double sigma = Math.log((double) p99.toNanos() / median.toNanos()) / 2.326;
+            return random -> Duration.ofNanos((long) (median.toNanos() * Math.exp(sigma * random.nextGaussian())));
+        }
+    }
+}
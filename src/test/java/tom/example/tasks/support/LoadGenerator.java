@@ -0,0 +1,109 @@
+package tom.example.tasks.support;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+/**
+ * Generador de carga en lazo abierto: lanza las peticiones a un ritmo fijo sin esperar a que
+ * terminen las anteriores, cada una en su hilo virtual. La latencia se mide desde el instante
+ * en que la petición debía salir, así que si el servicio se satura la cola de espera aparece
+ * en los percentiles en lugar de ocultarse (coordinated omission).
+ */
+public final class LoadGenerator {
+
+    private LoadGenerator() {
+    }
+
+    public static Result run(HttpClient client, double requestsPerSecond, Duration duration,
+                             IntFunction<HttpRequest> requests) throws InterruptedException {
+        int total = (int) Math.max(1, Math.round(requestsPerSecond * duration.toNanos() / 1e9));
+        long intervalNanos = (long) (1e9 / requestsPerSecond);
+        long[] latencies = new long[total];
+        int[] statuses = new int[total];
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < total; i++) {
+                long scheduledAt = start + i * intervalNanos;
+                long wait;
+                while ((wait = scheduledAt - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                int index = i;
+                HttpRequest request = requests.apply(i);
+                executor.execute(() -> {
+                    try {
+                        statuses[index] = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (IOException e) {
+                        statuses[index] = -1;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        statuses[index] = -1;
+                    }
+                    latencies[index] = System.nanoTime() - scheduledAt;
+                });
+            }
+        }
+        return new Result(System.nanoTime() - start, latencies, statuses);
+    }
+
+    /**
+     * Resultado de una ejecución: latencias ordenadas y número de respuestas por código HTTP (-1 = error de red).
+     */
+    public static final class Result {
+
+        private final long elapsedNanos;
+        private final long[] sortedLatencies;
+        private final Map<Integer, Integer> statusCounts = new TreeMap<>();
+
+        Result(long elapsedNanos, long[] latencies, int[] statuses) {
+            this.elapsedNanos = elapsedNanos;
+            this.sortedLatencies = latencies.clone();
+            Arrays.sort(sortedLatencies);
+            for (int status : statuses) {
+                statusCounts.merge(status, 1, Integer::sum);
+            }
+        }
+
+        public int requests() {
+            return sortedLatencies.length;
+        }
+
+        public double throughput() {
+            return sortedLatencies.length / (elapsedNanos / 1e9);
+        }
+
+        public Map<Integer, Integer> statusCounts() {
+            return statusCounts;
+        }
+
+        public int count(int status) {
+            return statusCounts.getOrDefault(status, 0);
+        }
+
+        /**
+         * Percentil de latencia en milisegundos, con {@code quantile} entre 0 y 1.
+         */
+        public double percentileMillis(double quantile) {
+            int index = (int) Math.ceil(quantile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(sortedLatencies.length - 1, index))] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d peticiones, %.1f req/s, p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms, estados %s",
+                requests(), throughput(), percentileMillis(0.50), percentileMillis(0.95), percentileMillis(0.99),
+                percentileMillis(1.0), statusCounts);
+        }
+    }
+}